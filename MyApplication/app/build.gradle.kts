@@ -58,6 +58,10 @@ dependencies {
     
     // Image handling
     implementation(libs.glide)
+    implementation(libs.glide.recyclerview) {
+        isTransitive = false
+    }
+    annotationProcessor(libs.glide.compiler)
     
     // Date and time picker
     // Removed problematic dependency: implementation("com.github.drawers:SpinnerDatePicker:2.1.0")
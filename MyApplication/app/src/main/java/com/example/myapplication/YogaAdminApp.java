@@ -1,12 +1,16 @@
 package com.example.myapplication;
 
 import android.app.Application;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
 import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
 import java.util.concurrent.TimeUnit;
 import com.example.myapplication.firebase.UserAutoSyncWorker;
 
+import com.example.myapplication.util.DiskImageCache;
 import com.example.myapplication.util.NotificationHelper;
 
 public class YogaAdminApp extends Application {
@@ -17,15 +21,22 @@ public class YogaAdminApp extends Application {
         
         // Initialize notification channel
         NotificationHelper.createNotificationChannel(this);
+        // Load the course photo cache index and trim the cache in the background
+        DiskImageCache.getInstance(this);
         // Schedule periodic user sync with WorkManager
+        Constraints syncConstraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
         PeriodicWorkRequest userSyncRequest = new PeriodicWorkRequest.Builder(
                 UserAutoSyncWorker.class,
                 1, TimeUnit.HOURS)
+                .setConstraints(syncConstraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
                 .build();
         WorkManager.getInstance(this)
                 .enqueueUniquePeriodicWork(
                         "UserSyncWork",
-                        ExistingPeriodicWorkPolicy.KEEP,
+                        ExistingPeriodicWorkPolicy.UPDATE,
                         userSyncRequest
                 );
     }
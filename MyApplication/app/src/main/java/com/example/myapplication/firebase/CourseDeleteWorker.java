@@ -0,0 +1,210 @@
+package com.example.myapplication.firebase;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.example.myapplication.model.Course;
+import com.example.myapplication.util.ImageUtil;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Deletes a course together with everything that hangs off it. The course document goes
+ * first, so the course disappears for every client at once. Its instances are then deleted
+ * one batch at a time, and finally its image variants, unless another course still uses the
+ * same content-addressed object. Every step can be repeated, so a retried run simply picks
+ * up what is left.
+ */
+public class CourseDeleteWorker extends Worker {
+    private static final String TAG = "CourseDeleteWorker";
+    private static final String PREFS_NAME = "course_deletes";
+    private static final String IMAGE_FOLDER = "course_images/";
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long STORAGE_TIMEOUT_SECONDS = 30;
+
+    public static final String KEY_COURSE_ID = "course_id";
+    public static final String KEY_IMAGE_URLS = "image_urls";
+    public static final String KEY_INSTANCES_DELETED = "instances_deleted";
+    public static final String KEY_FAILURE = "failure";
+
+    public CourseDeleteWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Queue the deletion of a course, its instances and its images
+     * @param context Context used to reach WorkManager
+     * @param course Course to delete; its image URLs are used if the document is already gone
+     * @return ID of the queued work, for observing its progress
+     */
+    public static UUID enqueue(Context context, Course course) {
+        // An image still uploading would otherwise be patched into a course that is going away
+        CourseImageUploadWorker.cancel(context, course.getId());
+        Data input = new Data.Builder()
+                .putLong(KEY_COURSE_ID, course.getId())
+                .putStringArray(KEY_IMAGE_URLS, imageUrls(course))
+                .build();
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CourseDeleteWorker.class)
+                .setInputData(input)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .addTag(TAG)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                "CourseDelete_" + course.getId(), ExistingWorkPolicy.KEEP, request);
+        return request.getId();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        long courseId = getInputData().getLong(KEY_COURSE_ID, -1);
+        if (courseId < 0) {
+            Log.e(TAG, "Invalid delete request");
+            return Result.failure();
+        }
+        SharedPreferences prefs = getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        FirebaseService firebaseService = FirebaseService.getInstance();
+        long deleted = prefs.getLong(courseId + "_deleted", 0);
+
+        try {
+            String[] urls = rememberImageUrls(prefs, courseId, firebaseService);
+            firebaseService.deleteCourseBlocking(courseId);
+
+            int page;
+            do {
+                if (isStopped()) {
+                    return Result.retry();
+                }
+                page = firebaseService.deleteInstancePage(courseId, FirebaseService.MAX_BATCH_WRITES);
+                deleted += page;
+                prefs.edit().putLong(courseId + "_deleted", deleted).apply();
+                setProgressAsync(new Data.Builder().putLong(KEY_INSTANCES_DELETED, deleted).build());
+            } while (page == FirebaseService.MAX_BATCH_WRITES);
+
+            for (String url : urls) {
+                deleteImageIfUnused(firebaseService, url);
+            }
+            ImageUtil.deleteLocalCourseImage(getApplicationContext(), courseId);
+            Log.d(TAG, "Deleted course " + courseId + " with " + deleted + " instances");
+            clear(prefs, courseId);
+            return Result.success(new Data.Builder().putLong(KEY_INSTANCES_DELETED, deleted).build());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (TimeoutException e) {
+            Log.w(TAG, "Deleting course " + courseId + " timed out", e);
+            return retryOrFail(prefs, courseId, deleted, "Timed out deleting from Firebase");
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Deleting course " + courseId + " failed", e);
+            if (FirebaseErrors.isTransient(e.getCause())) {
+                return retryOrFail(prefs, courseId, deleted, e.getCause().getMessage());
+            }
+            return fail(prefs, courseId, deleted, "Failed to delete course: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Image URLs of the course, read from its document on the first run and persisted, since
+     * the document is deleted before the images
+     */
+    private String[] rememberImageUrls(SharedPreferences prefs, long courseId, FirebaseService firebaseService)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        String saved = prefs.getString(courseId + "_images", null);
+        if (saved != null) {
+            return saved.isEmpty() ? new String[0] : saved.split("\n");
+        }
+        Course course = firebaseService.getCourseBlocking(courseId);
+        String[] urls = course != null ? imageUrls(course) : getInputData().getStringArray(KEY_IMAGE_URLS);
+        if (urls == null) {
+            urls = new String[0];
+        }
+        prefs.edit().putString(courseId + "_images", String.join("\n", urls)).commit();
+        return urls;
+    }
+
+    // Distinct non-empty image URLs of a course
+    private static String[] imageUrls(Course course) {
+        List<String> urls = new ArrayList<>(3);
+        for (String url : new String[]{course.getPhotoPath(), course.getMediumUrl(), course.getThumbnailUrl()}) {
+            if (url != null && !url.isEmpty() && !urls.contains(url)) {
+                urls.add(url);
+            }
+        }
+        return urls.toArray(new String[0]);
+    }
+
+    /**
+     * Delete an uploaded course image unless another course still points at it
+     */
+    static void deleteImageIfUnused(FirebaseService firebaseService, String url)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        StorageReference imageRef;
+        try {
+            imageRef = FirebaseStorage.getInstance().getReferenceFromUrl(url);
+        } catch (IllegalArgumentException e) {
+            // Not a Storage URL, e.g. a local path saved by an old version
+            return;
+        }
+        String path = imageRef.getPath();
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        // Only objects this app uploads are deleted, and only once no course points at them
+        if (!path.startsWith(IMAGE_FOLDER) || firebaseService.isCourseImageReferenced(url)) {
+            return;
+        }
+        try {
+            Tasks.await(imageRef.delete(), STORAGE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof StorageException)
+                    || ((StorageException) e.getCause()).getErrorCode() != StorageException.ERROR_OBJECT_NOT_FOUND) {
+                throw e;
+            }
+        }
+    }
+
+    private Result retryOrFail(SharedPreferences prefs, long courseId, long deleted, String message) {
+        if (getRunAttemptCount() < MAX_ATTEMPTS) {
+            return Result.retry();
+        }
+        return fail(prefs, courseId, deleted, message);
+    }
+
+    private static Result fail(SharedPreferences prefs, long courseId, long deleted, String message) {
+        clear(prefs, courseId);
+        return Result.failure(new Data.Builder()
+                .putLong(KEY_INSTANCES_DELETED, deleted)
+                .putString(KEY_FAILURE, message)
+                .build());
+    }
+
+    private static void clear(SharedPreferences prefs, long courseId) {
+        prefs.edit()
+                .remove(courseId + "_images")
+                .remove(courseId + "_deleted")
+                .apply();
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.myapplication.firebase;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Uploads a course's staged image variants to Firebase Storage and then patches the course
+ * document with their download URLs. Objects are named after the SHA-256 of their bytes, so a
+ * variant that already exists in Storage (the same photo picked again, or shared between
+ * courses) is reused without uploading anything. Each remaining variant is uploaded through a
+ * resumable session whose URI is persisted as soon as Storage hands it out, so a run interrupted
+ * by process death or a dropped connection continues from the last uploaded chunk.
+ */
+public class CourseImageUploadWorker extends Worker {
+    private static final String TAG = "CourseImageUploadWorker";
+    private static final String PREFS_NAME = "course_image_uploads";
+    private static final String STAGING_DIR = "pending_uploads";
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long UPLOAD_TIMEOUT_MINUTES = 10;
+
+    public static final String KEY_COURSE_ID = "course_id";
+    public static final String KEY_UPLOAD_ID = "upload_id";
+    public static final String KEY_FILE_PATHS = "file_paths";
+    public static final String KEY_VARIANT_NAMES = "variant_names";
+    public static final String KEY_CONTENT_HASHES = "content_hashes";
+    public static final String KEY_CONTENT_TYPE = "content_type";
+    public static final String KEY_BLUR_HASH = "blur_hash";
+    public static final String KEY_PROGRESS = "progress";
+
+    public CourseImageUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Directory where image variants are staged until their upload completes
+     */
+    public static File getStagingDir(Context context) {
+        File directory = new File(context.getFilesDir(), STAGING_DIR);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        return directory;
+    }
+
+    /**
+     * Queue the upload of staged variants for a course. Uploads for the same course run one
+     * after another; one superseded by a newer upload before it starts only cleans up.
+     * @param context Context used to reach WorkManager
+     * @param courseId Course to patch once the upload completes
+     * @param uploadId Unique ID of this upload, used to key its persisted state
+     * @param files Staged files, largest variant first
+     * @param variantNames Variant names matching the files (full, medium, thumb)
+     * @param contentHashes SHA-256 of each file, used as its Storage object name
+     * @param contentType MIME type shared by all variants
+     * @param blurHash BlurHash preview saved along with the URLs; may be null
+     */
+    public static void enqueue(Context context, long courseId, String uploadId, File[] files,
+                               String[] variantNames, String[] contentHashes, String contentType,
+                               String blurHash) {
+        String[] paths = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            paths[i] = files[i].getAbsolutePath();
+        }
+        // Recorded before queueing so an older queued upload sees it has been superseded
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Set<String> uploadIds = new HashSet<>(prefs.getStringSet(uploadsKey(courseId), Collections.emptySet()));
+        uploadIds.add(uploadId);
+        prefs.edit()
+                .putString(latestUploadKey(courseId), uploadId)
+                .putStringSet(uploadsKey(courseId), uploadIds)
+                .commit();
+        Data input = new Data.Builder()
+                .putLong(KEY_COURSE_ID, courseId)
+                .putString(KEY_UPLOAD_ID, uploadId)
+                .putStringArray(KEY_FILE_PATHS, paths)
+                .putStringArray(KEY_VARIANT_NAMES, variantNames)
+                .putStringArray(KEY_CONTENT_HASHES, contentHashes)
+                .putString(KEY_CONTENT_TYPE, contentType)
+                .putString(KEY_BLUR_HASH, blurHash)
+                .build();
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CourseImageUploadWorker.class)
+                .setInputData(input)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .addTag(TAG)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                "CourseImageUpload_" + courseId, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    /**
+     * Cancel every queued or running upload for a course and delete its staged files, e.g.
+     * because the course is being deleted
+     * @param context Context used to reach WorkManager
+     * @param courseId Course whose uploads are cancelled
+     */
+    public static void cancel(Context context, long courseId) {
+        WorkManager.getInstance(context).cancelUniqueWork("CourseImageUpload_" + courseId);
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Set<String> uploadIds = prefs.getStringSet(uploadsKey(courseId), Collections.emptySet());
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String key : prefs.getAll().keySet()) {
+            for (String uploadId : uploadIds) {
+                if (key.startsWith(uploadId + "_")) {
+                    editor.remove(key);
+                }
+            }
+        }
+        editor.remove(latestUploadKey(courseId))
+                .remove(uploadsKey(courseId))
+                .commit();
+        File[] staged = getStagingDir(context).listFiles();
+        if (staged == null) {
+            return;
+        }
+        for (File file : staged) {
+            for (String uploadId : uploadIds) {
+                if (file.getName().startsWith(uploadId + "_")) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        long courseId = getInputData().getLong(KEY_COURSE_ID, -1);
+        String uploadId = getInputData().getString(KEY_UPLOAD_ID);
+        String[] paths = getInputData().getStringArray(KEY_FILE_PATHS);
+        String[] variantNames = getInputData().getStringArray(KEY_VARIANT_NAMES);
+        String[] contentHashes = getInputData().getStringArray(KEY_CONTENT_HASHES);
+        String contentType = getInputData().getString(KEY_CONTENT_TYPE);
+        String blurHash = getInputData().getString(KEY_BLUR_HASH);
+        if (courseId < 0 || uploadId == null || paths == null || variantNames == null || contentHashes == null
+                || paths.length != variantNames.length || paths.length != contentHashes.length) {
+            Log.e(TAG, "Invalid upload request");
+            return Result.failure();
+        }
+
+        SharedPreferences prefs = getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String latestUploadId = prefs.getString(latestUploadKey(courseId), uploadId);
+        if (!uploadId.equals(latestUploadId)) {
+            // A newer image was picked for this course; it is queued behind this upload
+            Log.d(TAG, "Upload " + uploadId + " for course " + courseId + " was superseded");
+            cleanUp(prefs, courseId, uploadId, paths, variantNames);
+            return Result.success();
+        }
+        String[] urls = new String[paths.length];
+        try {
+            for (int i = 0; i < paths.length; i++) {
+                if (isStopped()) {
+                    return Result.retry();
+                }
+                urls[i] = uploadVariant(prefs, uploadId, new File(paths[i]), variantNames[i], contentHashes[i],
+                        contentType, i, paths.length);
+            }
+            FirebaseService.getInstance().updateCoursePhotoUrls(courseId, urls[0],
+                    urls.length > 1 ? urls[1] : urls[0], urls.length > 2 ? urls[2] : urls[urls.length - 1],
+                    blurHash);
+            Log.d(TAG, "Course image uploaded for course " + courseId);
+            cleanUp(prefs, courseId, uploadId, paths, variantNames);
+            return Result.success();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (TimeoutException e) {
+            Log.w(TAG, "Course image upload timed out", e);
+            return retryOrFail(prefs, courseId, uploadId, paths, variantNames);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FirebaseFirestoreException
+                    && ((FirebaseFirestoreException) cause).getCode() == FirebaseFirestoreException.Code.NOT_FOUND) {
+                // The course was deleted while the image was uploading
+                Log.w(TAG, "Course " + courseId + " no longer exists, dropping image upload");
+                deleteUploaded(urls);
+                cleanUp(prefs, courseId, uploadId, paths, variantNames);
+                return Result.failure();
+            }
+            Log.e(TAG, "Course image upload failed", e);
+            return retryOrFail(prefs, courseId, uploadId, paths, variantNames);
+        } catch (MissingFileException e) {
+            Log.e(TAG, "Staged image is missing", e);
+            abandon(prefs, courseId, uploadId, paths, variantNames);
+            return Result.failure();
+        }
+    }
+
+    /**
+     * Upload one variant unless an identical object already exists, resuming a persisted
+     * session if there is one
+     * @return Download URL of the variant
+     */
+    private String uploadVariant(SharedPreferences prefs, String uploadId, File file, String variantName,
+                                 String contentHash, String contentType, int index, int total)
+            throws ExecutionException, InterruptedException, TimeoutException, MissingFileException {
+        String urlKey = uploadId + "_" + variantName + "_url";
+        String sessionKey = uploadId + "_" + variantName + "_session";
+        String doneUrl = prefs.getString(urlKey, null);
+        if (doneUrl != null) {
+            // Uploaded by an earlier run
+            return doneUrl;
+        }
+        if (!file.exists()) {
+            throw new MissingFileException(file.getAbsolutePath());
+        }
+
+        String extension = file.getName().substring(file.getName().lastIndexOf('.'));
+        StorageReference imageRef = FirebaseStorage.getInstance().getReference().child(
+                "course_images/" + contentHash + extension);
+        String session = prefs.getString(sessionKey, null);
+        if (session == null) {
+            String existingUrl = findExistingUrl(imageRef);
+            if (existingUrl != null) {
+                Log.d(TAG, "Reusing existing " + variantName + " image " + contentHash);
+                prefs.edit().putString(urlKey, existingUrl).apply();
+                return existingUrl;
+            }
+        }
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType(contentType)
+                .build();
+        UploadTask uploadTask = session != null
+                ? imageRef.putFile(Uri.fromFile(file), metadata, Uri.parse(session))
+                : imageRef.putFile(Uri.fromFile(file), metadata);
+
+        // Persist the session URI as soon as it exists, and report progress across all variants
+        uploadTask.addOnProgressListener(Runnable::run, snapshot -> {
+            Uri sessionUri = snapshot.getUploadSessionUri();
+            if (sessionUri != null && !sessionUri.toString().equals(prefs.getString(sessionKey, null))) {
+                prefs.edit().putString(sessionKey, sessionUri.toString()).apply();
+            }
+            long totalBytes = snapshot.getTotalByteCount();
+            int variantPercent = totalBytes > 0 ? (int) (snapshot.getBytesTransferred() * 100 / totalBytes) : 0;
+            setProgressAsync(new Data.Builder()
+                    .putInt(KEY_PROGRESS, (index * 100 + variantPercent) / total)
+                    .build());
+        });
+
+        try {
+            Tasks.await(uploadTask, UPLOAD_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } catch (TimeoutException | InterruptedException e) {
+            // Pause rather than cancel so the session stays valid for the next attempt
+            uploadTask.pause();
+            throw e;
+        } catch (ExecutionException e) {
+            if (session != null && !isRecoverable(e.getCause())) {
+                // The saved session was rejected (e.g. expired); start a fresh one next time
+                prefs.edit().remove(sessionKey).apply();
+            }
+            throw e;
+        }
+
+        String url = Tasks.await(imageRef.getDownloadUrl(), UPLOAD_TIMEOUT_MINUTES, TimeUnit.MINUTES).toString();
+        prefs.edit().putString(urlKey, url).remove(sessionKey).apply();
+        return url;
+    }
+
+    /**
+     * @return Download URL of the object, or null if it does not exist yet
+     */
+    private static String findExistingUrl(StorageReference imageRef)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        try {
+            return Tasks.await(imageRef.getDownloadUrl(), UPLOAD_TIMEOUT_MINUTES, TimeUnit.MINUTES).toString();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof StorageException
+                    && ((StorageException) e.getCause()).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private Result retryOrFail(SharedPreferences prefs, long courseId, String uploadId, String[] paths,
+                               String[] variantNames) {
+        if (getRunAttemptCount() < MAX_ATTEMPTS) {
+            return Result.retry();
+        }
+        abandon(prefs, courseId, uploadId, paths, variantNames);
+        return Result.failure();
+    }
+
+    // Give up on the upload; the course is left without an image and loses the pending marker
+    private static void abandon(SharedPreferences prefs, long courseId, String uploadId, String[] paths,
+                                String[] variantNames) {
+        cleanUp(prefs, courseId, uploadId, paths, variantNames);
+        try {
+            FirebaseService.getInstance().clearCourseImagePending(courseId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            Log.e(TAG, "Failed to clear pending image marker for course " + courseId, e);
+        }
+    }
+
+    // Delete uploaded variants that no course points at, so a dropped upload leaves no orphans
+    private static void deleteUploaded(String[] urls) {
+        FirebaseService firebaseService = FirebaseService.getInstance();
+        for (String url : urls) {
+            if (url == null) {
+                continue;
+            }
+            try {
+                CourseDeleteWorker.deleteImageIfUnused(firebaseService, url);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                Log.e(TAG, "Failed to delete uploaded image " + url, e);
+            }
+        }
+    }
+
+    private static boolean isRecoverable(Throwable cause) {
+        return cause instanceof StorageException && ((StorageException) cause).getIsRecoverableException();
+    }
+
+    // Remove staged files and persisted upload state once the upload is finished or abandoned
+    private static void cleanUp(SharedPreferences prefs, long courseId, String uploadId, String[] paths,
+                                String[] variantNames) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String variantName : variantNames) {
+            editor.remove(uploadId + "_" + variantName + "_url");
+            editor.remove(uploadId + "_" + variantName + "_session");
+        }
+        if (uploadId.equals(prefs.getString(latestUploadKey(courseId), null))) {
+            editor.remove(latestUploadKey(courseId));
+        }
+        Set<String> uploadIds = new HashSet<>(prefs.getStringSet(uploadsKey(courseId), Collections.emptySet()));
+        uploadIds.remove(uploadId);
+        if (uploadIds.isEmpty()) {
+            editor.remove(uploadsKey(courseId));
+        } else {
+            editor.putStringSet(uploadsKey(courseId), uploadIds);
+        }
+        editor.apply();
+        for (String path : paths) {
+            new File(path).delete();
+        }
+    }
+
+    private static String latestUploadKey(long courseId) {
+        return "course_" + courseId + "_latest";
+    }
+
+    // Upload IDs queued for a course that have not cleaned up yet
+    private static String uploadsKey(long courseId) {
+        return "course_" + courseId + "_uploads";
+    }
+
+    private static class MissingFileException extends Exception {
+        MissingFileException(String path) {
+            super("Staged file not found: " + path);
+        }
+    }
+}
@@ -3,12 +3,17 @@ package com.example.myapplication.firebase;
 import com.example.myapplication.model.User;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -17,6 +22,8 @@ import java.util.Map;
 public class FirebaseAuthService {
     private static final String TAG = "FirebaseAuthService";
     private static final String USERS_COLLECTION = "users";
+    // Tombstones of deleted users, read by the background user sync
+    private static final String DELETED_USERS_COLLECTION = "deleted_users";
     
     private static FirebaseAuthService instance;
     private final FirebaseAuth firebaseAuth;
@@ -70,9 +77,12 @@ public class FirebaseAuthService {
     private void storeUserData(String uid, User user, final AuthCallback callback) {
         Map<String, Object> userData = new HashMap<>();
         userData.put("email", user.getEmail());
+        // Lower-cased copy for case-insensitive prefix search
+        userData.put("emailLower", user.getEmail() != null ? user.getEmail().toLowerCase(Locale.ROOT) : null);
         userData.put("name", user.getName());
         userData.put("role", user.getRole());
         userData.put("status", user.getStatus());
+        userData.put("lastUpdated", FieldValue.serverTimestamp());
         
         // Store the local database ID if it exists
         if (user.getId() > 0) {
@@ -217,22 +227,7 @@ public class FirebaseAuthService {
                     if (task.isSuccessful() && task.getResult() != null) {
                         List<User> users = new ArrayList<>();
                         for (DocumentSnapshot document : task.getResult()) {
-                            String email = document.getString("email");
-                            String name = document.getString("name");
-                            String role = document.getString("role");
-                            String status = document.getString("status");
-                            User user = new User(email, null, name, role, status);
-                            user.setFirebaseUid(document.getId());
-                            
-                            // Try to get the local database ID if it exists
-                            if (document.contains("localId")) {
-                                Long localId = document.getLong("localId");
-                                if (localId != null) {
-                                    user.setId(localId);
-                                }
-                            }
-                            
-                            users.add(user);
+                            users.add(mapToUser(document));
                         }
                         callback.onSuccess(users);
                     } else {
@@ -242,6 +237,60 @@ public class FirebaseAuthService {
                 });
     }
     
+    /**
+     * Listen to the users collection and receive document-level changes.
+     * The first snapshot delivers every existing user as a change.
+     * 
+     * @param listener Listener to receive changed and removed users
+     * @return Registration to remove when the listener is no longer needed
+     */
+    public ListenerRegistration listenToUsers(final UserChangeListener listener) {
+        return firestore.collection(USERS_COLLECTION)
+                .addSnapshotListener((snapshots, e) -> {
+                    if (e != null) {
+                        listener.onFailure(e.getMessage());
+                        return;
+                    }
+                    if (snapshots == null) {
+                        return;
+                    }
+                    List<User> changedUsers = new ArrayList<>();
+                    List<String> removedUids = new ArrayList<>();
+                    for (DocumentChange change : snapshots.getDocumentChanges()) {
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            removedUids.add(change.getDocument().getId());
+                        } else {
+                            changedUsers.add(mapToUser(change.getDocument()));
+                        }
+                    }
+                    listener.onUsersChanged(changedUsers, removedUids);
+                });
+    }
+    
+    /**
+     * Convert a Firestore user document to a User object
+     * 
+     * @param document Firestore document from the users collection
+     * @return User object with its Firebase UID and local ID set
+     */
+    static User mapToUser(DocumentSnapshot document) {
+        String email = document.getString("email");
+        String name = document.getString("name");
+        String role = document.getString("role");
+        String status = document.getString("status");
+        User user = new User(email, null, name, role, status);
+        user.setFirebaseUid(document.getId());
+        
+        // Try to get the local database ID if it exists
+        if (document.contains("localId")) {
+            Long localId = document.getLong("localId");
+            if (localId != null) {
+                user.setId(localId);
+            }
+        }
+        return user;
+    }
+    
     /**
      * Get user by email from Firestore
      * 
@@ -273,6 +322,34 @@ public class FirebaseAuthService {
                 });
     }
     
+    /**
+     * Search users by email prefix on the server, ignoring case
+     * 
+     * @param prefix Lower-case email prefix
+     * @param limit Maximum number of users to return
+     * @param callback Callback to handle the result
+     */
+    public void searchUsersByEmailPrefix(String prefix, int limit, final UsersCallback callback) {
+        firestore.collection(USERS_COLLECTION)
+                .orderBy("emailLower")
+                .startAt(prefix)
+                .endAt(prefix + "\uf8ff")
+                .limit(limit)
+                .get()
+                .addOnCompleteListener(task -> {
+                    if (task.isSuccessful() && task.getResult() != null) {
+                        List<User> users = new ArrayList<>();
+                        for (DocumentSnapshot document : task.getResult()) {
+                            users.add(mapToUser(document));
+                        }
+                        callback.onSuccess(users);
+                    } else {
+                        callback.onFailure(task.getException() != null ? 
+                                task.getException().getMessage() : "Failed to search users");
+                    }
+                });
+    }
+    
     /**
      * Update user status in Firestore
      * 
@@ -282,20 +359,24 @@ public class FirebaseAuthService {
      */
     public void updateUserStatus(String uid, String status, final SimpleCallback callback) {
         firestore.collection(USERS_COLLECTION).document(uid)
-                .update("status", status)
+                .update("status", status, "lastUpdated", FieldValue.serverTimestamp())
                 .addOnSuccessListener(aVoid -> callback.onSuccess())
                 .addOnFailureListener(e -> callback.onFailure(e.getMessage()));
     }
     
     /**
-     * Delete user data from Firestore
+     * Delete user data from Firestore, leaving a tombstone so synced mirrors drop the user too
      * 
      * @param uid Firebase user ID
      * @param callback Callback to handle the result
      */
     public void deleteUserData(String uid, final SimpleCallback callback) {
-        firestore.collection(USERS_COLLECTION).document(uid)
-                .delete()
+        Map<String, Object> tombstone = new HashMap<>();
+        tombstone.put("deletedAt", FieldValue.serverTimestamp());
+        WriteBatch batch = firestore.batch();
+        batch.delete(firestore.collection(USERS_COLLECTION).document(uid));
+        batch.set(firestore.collection(DELETED_USERS_COLLECTION).document(uid), tombstone);
+        batch.commit()
                 .addOnSuccessListener(aVoid -> callback.onSuccess())
                 .addOnFailureListener(e -> callback.onFailure(e.getMessage()));
     }
@@ -341,6 +422,14 @@ public class FirebaseAuthService {
         void onFailure(String errorMessage);
     }
     
+    /**
+     * Listener interface for live user changes
+     */
+    public interface UserChangeListener {
+        void onUsersChanged(List<User> changedUsers, List<String> removedUids);
+        void onFailure(String errorMessage);
+    }
+    
     /**
      * Simple callback interface for operations without return data
      */
@@ -0,0 +1,35 @@
+package com.example.myapplication.firebase;
+
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.storage.StorageException;
+
+/**
+ * Classifies Firebase failures for the background workers, which retry transient ones
+ */
+final class FirebaseErrors {
+    private FirebaseErrors() {
+    }
+
+    /**
+     * @param cause Cause of a failed Firestore or Storage task
+     * @return true if the same request may succeed when retried later
+     */
+    static boolean isTransient(Throwable cause) {
+        if (cause instanceof StorageException) {
+            return ((StorageException) cause).getIsRecoverableException();
+        }
+        if (!(cause instanceof FirebaseFirestoreException)) {
+            return false;
+        }
+        switch (((FirebaseFirestoreException) cause).getCode()) {
+            case UNAVAILABLE:
+            case DEADLINE_EXCEEDED:
+            case ABORTED:
+            case RESOURCE_EXHAUSTED:
+            case INTERNAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -1,22 +1,57 @@
 package com.example.myapplication.firebase;
 
+import android.content.Context;
 import android.util.Log;
 import com.example.myapplication.model.Course;
 import com.example.myapplication.model.Instance;
+import com.example.myapplication.model.User;
+import com.example.myapplication.util.InstanceCatalog;
+import com.example.myapplication.util.StringPool;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.android.gms.tasks.OnCompleteListener;
 
 public class FirebaseService {
     private static final String TAG = "FirebaseService";
+    private static final String COLLECTION_COURSES = "yoga_courses";
     private static final String COLLECTION_INSTANCES = "instances";
+    private static final String COLLECTION_USERS = "users";
+    private static final String COLLECTION_DELETED_USERS = "deleted_users";
+    private static final String COLLECTION_SYNC_STATE = "sync_state";
+    // Written once the user backfill has completed on any device
+    private static final String USER_BACKFILL_MARKER = "user_backfill";
+    private static final int USER_SYNC_PAGE_SIZE = 200;
+    private static final long SYNC_TIMEOUT_SECONDS = 30;
+    // Firestore rejects batches with more than 500 writes
+    public static final int MAX_BATCH_WRITES = 500;
+    // Firestore limits "in" filters to 10 values
+    private static final int MAX_IDS_PER_QUERY = 10;
     private final FirebaseFirestore db;
+    // Decodes large query results off the main thread
+    private final Executor decodeExecutor = Executors.newSingleThreadExecutor();
 
     private static FirebaseService instance;
 
@@ -42,6 +77,86 @@ public class FirebaseService {
         }
     }
 
+    /**
+     * Create or overwrite a single course document
+     * @param course Course to save
+     * @param listener Callback for save result
+     */
+    public void saveCourse(Course course, OnSyncListener listener) {
+        db.collection(COLLECTION_COURSES)
+                .document(String.valueOf(course.getId()))
+                .set(courseToMap(course), SetOptions.merge())
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Course saved: " + course.getName());
+                    if (listener != null) listener.onSyncComplete("Course saved successfully");
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to save course: " + course.getName(), e);
+                    if (listener != null) listener.onSyncFailed("Failed to save course: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Point an existing course at newly uploaded image variants and clear its pending marker.
+     * Uses update() so a course deleted in the meantime is not recreated.
+     * Must be called from a background thread.
+     * @param courseId Course ID
+     * @param photoUrl Full-size image URL
+     * @param mediumUrl Medium image URL
+     * @param thumbnailUrl Thumbnail URL
+     * @param blurHash BlurHash preview of the image; may be null
+     */
+    public void updateCoursePhotoUrls(long courseId, String photoUrl, String mediumUrl, String thumbnailUrl,
+                                      String blurHash)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("photoPath", photoUrl);
+        updates.put("mediumUrl", mediumUrl);
+        updates.put("thumbnailUrl", thumbnailUrl);
+        updates.put("photoBlurHash", blurHash);
+        updates.put("imagePending", false);
+        updates.put("lastUpdated", System.currentTimeMillis());
+        updateCourse(courseId, updates);
+    }
+
+    /**
+     * Set the BlurHash preview of a course whose image is still uploading, so other screens
+     * can show it before the upload finishes. Uses update() so a deleted course is not recreated.
+     * @param courseId Course ID
+     * @param blurHash BlurHash preview of the pending image
+     */
+    public void updateCoursePreview(long courseId, String blurHash) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("photoBlurHash", blurHash);
+        updates.put("lastUpdated", System.currentTimeMillis());
+        db.collection(COLLECTION_COURSES)
+                .document(String.valueOf(courseId))
+                .update(updates)
+                .addOnSuccessListener(aVoid -> Log.d(TAG, "Preview saved for course " + courseId))
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to save preview for course " + courseId, e));
+    }
+
+    /**
+     * Clear a course's pending image marker after its upload was abandoned.
+     * Must be called from a background thread.
+     * @param courseId Course ID
+     */
+    public void clearCourseImagePending(long courseId)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("imagePending", false);
+        updates.put("lastUpdated", System.currentTimeMillis());
+        updateCourse(courseId, updates);
+    }
+
+    private void updateCourse(long courseId, Map<String, Object> updates)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Tasks.await(db.collection(COLLECTION_COURSES)
+                        .document(String.valueOf(courseId))
+                        .update(updates),
+                SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
     // Add this method to support syncing courses from Firebase
     public void syncCoursesFromFirebase(OnCourseSyncListener listener) {
         db.collection("yoga_courses")
@@ -59,12 +174,59 @@ public class FirebaseService {
             });
     }
 
+    /**
+     * Read one course by ID, e.g. when it is not cached after the process was restarted
+     * @param courseId Course ID
+     * @param listener Receives the course, or null if it does not exist
+     */
+    public void getCourse(long courseId, OnCourseLoadedListener listener) {
+        db.collection(COLLECTION_COURSES).document(String.valueOf(courseId))
+                .get()
+                .addOnSuccessListener(document ->
+                        listener.onCourseLoaded(document.exists() ? mapToCourse(document) : null))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error getting course " + courseId, e);
+                    listener.onSyncFailed("Failed to load course: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Read only the given courses, a few IDs per query, instead of the whole collection
+     * @param courseIds IDs of the courses to read; courses that do not exist are left out
+     * @param listener Callback for the result
+     */
+    public void getCoursesByIds(Collection<Long> courseIds, OnCourseSyncListener listener) {
+        List<Long> ids = new ArrayList<>(courseIds);
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+            List<String> chunk = new ArrayList<>(MAX_IDS_PER_QUERY);
+            for (Long id : ids.subList(start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()))) {
+                chunk.add(String.valueOf(id));
+            }
+            queries.add(db.collection(COLLECTION_COURSES).whereIn(FieldPath.documentId(), chunk).get());
+        }
+        Tasks.whenAllSuccess(queries)
+                .addOnSuccessListener(results -> {
+                    List<Course> courses = new ArrayList<>(ids.size());
+                    for (Object result : results) {
+                        for (QueryDocumentSnapshot document : (QuerySnapshot) result) {
+                            courses.add(mapToCourse(document));
+                        }
+                    }
+                    listener.onSyncComplete(courses, "Loaded " + courses.size() + " courses");
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error getting courses by ID", e);
+                    listener.onSyncFailed("Failed to load courses: " + e.getMessage());
+                });
+    }
+
     /**
      * Convert Firestore document to Course object
      * @param document Firestore document
      * @return Course object
      */
-    private Course mapToCourse(QueryDocumentSnapshot document) {
+    private Course mapToCourse(DocumentSnapshot document) {
         Course course = new Course();
 
         // Set ID
@@ -98,8 +260,13 @@ public class FirebaseService {
             }
         }
 
-        course.setLevel(document.getString("level"));
+        // Facet values repeat across courses, so decoded copies are shared
+        course.setLevel(StringPool.intern(document.getString("level")));
         course.setPhotoPath(document.getString("photoPath"));
+        course.setThumbnailUrl(document.getString("thumbnailUrl"));
+        course.setMediumUrl(document.getString("mediumUrl"));
+        course.setPhotoBlurHash(document.getString("photoBlurHash"));
+        course.setImagePending(Boolean.TRUE.equals(document.getBoolean("imagePending")));
 
         // Set capacity
         Object capacityObj = document.get("capacity");
@@ -111,8 +278,8 @@ public class FirebaseService {
             }
         }
 
-        course.setDayOfWeek(document.getString("dayOfWeek"));
-        course.setType(document.getString("type"));
+        course.setDayOfWeek(StringPool.intern(document.getString("dayOfWeek")));
+        course.setType(StringPool.intern(document.getString("type")));
 
         // Set price
         Object priceObj = document.get("price");
@@ -142,6 +309,169 @@ public class FirebaseService {
         return course;
     }
 
+    /**
+     * Load every course. Must be called from a background thread.
+     * @return All courses
+     */
+    public List<Course> getCoursesBlocking()
+            throws ExecutionException, InterruptedException, TimeoutException {
+        QuerySnapshot snapshot = Tasks.await(db.collection(COLLECTION_COURSES).get(),
+                SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        List<Course> courses = new ArrayList<>(snapshot.size());
+        for (QueryDocumentSnapshot document : snapshot) {
+            courses.add(mapToCourse(document));
+        }
+        return courses;
+    }
+
+    /**
+     * Read one page of courses in document ID order. Must be called from a background thread.
+     * @param afterDocumentId Last document ID of the previous page, or null for the first page
+     * @param limit Maximum number of courses
+     */
+    public Page<Course> getCoursePage(String afterDocumentId, int limit)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        List<Course> courses = new ArrayList<>(limit);
+        String last = null;
+        for (QueryDocumentSnapshot document : fetchPage(COLLECTION_COURSES, afterDocumentId, limit)) {
+            courses.add(mapToCourse(document));
+            last = document.getId();
+        }
+        return new Page<>(courses, last);
+    }
+
+    /**
+     * Read one page of instances of all courses in document ID order.
+     * Must be called from a background thread.
+     * @param afterDocumentId Last document ID of the previous page, or null for the first page
+     * @param limit Maximum number of instances
+     */
+    public Page<Instance> getInstancePage(String afterDocumentId, int limit)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        List<Instance> instances = new ArrayList<>(limit);
+        String last = null;
+        for (QueryDocumentSnapshot document : fetchPage(COLLECTION_INSTANCES, afterDocumentId, limit)) {
+            instances.add(mapToInstance(document));
+            last = document.getId();
+        }
+        return new Page<>(instances, last);
+    }
+
+    private QuerySnapshot fetchPage(String collection, String afterDocumentId, int limit)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Query query = db.collection(collection)
+                .orderBy(FieldPath.documentId())
+                .limit(limit);
+        if (afterDocumentId != null) {
+            query = query.startAfter(afterDocumentId);
+        }
+        return Tasks.await(query.get(), SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Write imported courses as a single batch, merging into existing documents so a course's
+     * image and enrolment survive a re-import. Must be called from a background thread.
+     * @param courses At most 500 courses
+     */
+    public void commitImportedCourses(List<Course> courses)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        WriteBatch batch = db.batch();
+        for (Course course : courses) {
+            Map<String, Object> map = courseToMap(course);
+            // Imports carry no image or enrolment data
+            map.remove("photoPath");
+            map.remove("thumbnailUrl");
+            map.remove("mediumUrl");
+            map.remove("photoBlurHash");
+            map.remove("imagePending");
+            map.remove("enrolled");
+            batch.set(db.collection(COLLECTION_COURSES).document(String.valueOf(course.getId())), map,
+                    SetOptions.merge());
+        }
+        Tasks.await(batch.commit(), SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Write imported instances as a single batch. Must be called from a background thread.
+     * @param instances At most 500 instances
+     */
+    public void commitImportedInstances(List<Instance> instances)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        WriteBatch batch = db.batch();
+        for (Instance instance : instances) {
+            batch.set(db.collection(COLLECTION_INSTANCES).document(String.valueOf(instance.getId())),
+                    instanceToMap(instance));
+        }
+        Tasks.await(batch.commit(), SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Read one course. Must be called from a background thread.
+     * @return The course, or null if it does not exist
+     */
+    public Course getCourseBlocking(long courseId)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        DocumentSnapshot document = Tasks.await(
+                db.collection(COLLECTION_COURSES).document(String.valueOf(courseId)).get(),
+                SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return document.exists() ? mapToCourse(document) : null;
+    }
+
+    /**
+     * Delete a course document; deleting a missing course succeeds.
+     * Must be called from a background thread.
+     */
+    public void deleteCourseBlocking(long courseId)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Tasks.await(db.collection(COLLECTION_COURSES).document(String.valueOf(courseId)).delete(),
+                SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Delete up to limit instances of a course in one batch. Deleted documents drop out of the
+     * query, so calling this until it returns less than limit removes every instance.
+     * Must be called from a background thread.
+     * @param limit At most 500
+     * @return Number of instances deleted
+     */
+    public int deleteInstancePage(long courseId, int limit)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        QuerySnapshot snapshot = Tasks.await(db.collection(COLLECTION_INSTANCES)
+                        .whereEqualTo("courseId", courseId)
+                        .limit(limit)
+                        .get(),
+                SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (snapshot.isEmpty()) {
+            return 0;
+        }
+        WriteBatch batch = db.batch();
+        for (QueryDocumentSnapshot document : snapshot) {
+            batch.delete(document.getReference());
+        }
+        Tasks.await(batch.commit(), SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return snapshot.size();
+    }
+
+    /**
+     * Check whether any course still uses an image. Images are stored by content hash, so
+     * courses given the same photo share one object. Must be called from a background thread.
+     * @param url Download URL of an image variant
+     */
+    public boolean isCourseImageReferenced(String url)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        for (String field : new String[]{"photoPath", "mediumUrl", "thumbnailUrl"}) {
+            QuerySnapshot snapshot = Tasks.await(db.collection(COLLECTION_COURSES)
+                            .whereEqualTo(field, url)
+                            .limit(1)
+                            .get(),
+                    SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (!snapshot.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // Helper to convert Course to Map (if not already present)
     private Map<String, Object> courseToMap(Course course) {
         Map<String, Object> map = new HashMap<>();
@@ -151,6 +481,10 @@ public class FirebaseService {
         map.put("duration", course.getDuration());
         map.put("level", course.getLevel());
         map.put("photoPath", course.getPhotoPath());
+        map.put("thumbnailUrl", course.getThumbnailUrl());
+        map.put("mediumUrl", course.getMediumUrl());
+        map.put("photoBlurHash", course.getPhotoBlurHash());
+        map.put("imagePending", course.isImagePending());
         map.put("capacity", course.getCapacity());
         map.put("dayOfWeek", course.getDayOfWeek());
         map.put("type", course.getType());
@@ -187,6 +521,103 @@ public class FirebaseService {
                 });
     }
 
+    /**
+     * Load the instances of every course that fall within a date range.
+     * Dates are stored as yyyy-MM-dd, so string order is date order.
+     * @param fromDate First date, inclusive
+     * @param toDate Last date, inclusive
+     * @param listener Callback for the result
+     */
+    public void getInstancesBetween(String fromDate, String toDate, OnSyncInstancesListener listener) {
+        db.collection(COLLECTION_INSTANCES)
+                .whereGreaterThanOrEqualTo("date", fromDate)
+                .whereLessThanOrEqualTo("date", toDate)
+                .get()
+                .addOnSuccessListener(queryDocumentSnapshots -> {
+                    List<Instance> instances = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                        instances.add(mapToInstance(document));
+                    }
+                    listener.onSyncComplete(instances);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error getting instances between " + fromDate + " and " + toDate, e);
+                    listener.onSyncFailed("Error getting instances: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Load the instances within a date range into a column store for statistics. Documents
+     * are decoded on a background thread and only the catalog's primitive columns are kept,
+     * so the listener is called on that background thread too.
+     * @param fromDate First date, yyyy-MM-dd, inclusive
+     * @param toDate Last date, yyyy-MM-dd, inclusive
+     * @param listener Callback for the result
+     */
+    public void loadInstanceCatalog(String fromDate, String toDate, OnInstanceCatalogListener listener) {
+        db.collection(COLLECTION_INSTANCES)
+                .whereGreaterThanOrEqualTo("date", fromDate)
+                .whereLessThanOrEqualTo("date", toDate)
+                .get()
+                .addOnSuccessListener(decodeExecutor, queryDocumentSnapshots -> {
+                    InstanceCatalog catalog = new InstanceCatalog();
+                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                        catalog.add(mapToInstance(document));
+                    }
+                    listener.onCatalogLoaded(catalog);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error loading instance catalog", e);
+                    listener.onSyncFailed("Error getting instances: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Write many instances using as few round trips as possible: the list is split into
+     * chunks of at most 500 writes, and each chunk is committed as one batch. Batches commit
+     * one after another, so a failure leaves a saved prefix and nothing after it; saving the
+     * same instances again overwrites that prefix and completes the rest.
+     * @param instances Instances to create or overwrite
+     * @param listener Callback invoked once every batch has committed, or on the first failure
+     */
+    public void saveInstancesBatched(List<Instance> instances, OnSyncListener listener) {
+        commitInstanceBatch(instances, 0, listener);
+    }
+
+    private void commitInstanceBatch(List<Instance> instances, int start, OnSyncListener listener) {
+        if (start >= instances.size()) {
+            Log.d(TAG, "Saved " + instances.size() + " instances");
+            if (listener != null) listener.onSyncComplete(instances.size() + " classes scheduled");
+            return;
+        }
+        WriteBatch batch = db.batch();
+        int end = Math.min(start + MAX_BATCH_WRITES, instances.size());
+        for (Instance instance : instances.subList(start, end)) {
+            batch.set(db.collection(COLLECTION_INSTANCES).document(String.valueOf(instance.getId())),
+                    instanceToMap(instance));
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> commitInstanceBatch(instances, end, listener))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to save instances after " + start + " of " + instances.size(), e);
+                    if (listener != null) listener.onSyncFailed("Failed to schedule classes: " + e.getMessage());
+                });
+    }
+
+    private Map<String, Object> instanceToMap(Instance instance) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", instance.getId());
+        map.put("courseId", instance.getCourseId());
+        map.put("date", instance.getDate());
+        map.put("time", instance.getTime());
+        map.put("location", instance.getLocation());
+        map.put("capacity", instance.getCapacity());
+        map.put("instructor", instance.getInstructor());
+        map.put("price", instance.getPrice());
+        map.put("lastUpdated", System.currentTimeMillis());
+        return map;
+    }
+
     /**
      * Convert Firestore document to Instance object
      * @param document Firestore document
@@ -220,7 +651,7 @@ public class FirebaseService {
         }
         instance.setDate(document.getString("date"));
         instance.setTime(document.getString("time"));
-        instance.setLocation(document.getString("location"));
+        instance.setLocation(StringPool.intern(document.getString("location")));
         Object capacityObj = document.get("capacity");
         if (capacityObj != null) {
             if (capacityObj instanceof Long) {
@@ -229,7 +660,7 @@ public class FirebaseService {
                 instance.setCapacity((Integer) capacityObj);
             }
         }
-        instance.setInstructor(document.getString("instructor"));
+        instance.setInstructor(StringPool.intern(document.getString("instructor")));
         Object priceObj = document.get("price");
         if (priceObj != null) {
             if (priceObj instanceof Double) {
@@ -244,8 +675,129 @@ public class FirebaseService {
     }
 
 
-    public void syncUsersToFirebase() {
+    /**
+     * Pull users changed since the last run into the on-device mirror, one page at a time,
+     * then drop users deleted since the last run. Each checkpoint is advanced after every
+     * page, so a retried run resumes where the previous one stopped. Must be called from a
+     * background thread.
+     * @param context Context used to open the sync store
+     * @return Number of changed and deleted users synced in this run
+     */
+    public int syncUsersFromFirebase(Context context)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        UserSyncStore store = UserSyncStore.getInstance(context);
+        if (!store.isBackfillDone()) {
+            DocumentReference marker = db.collection(COLLECTION_SYNC_STATE).document(USER_BACKFILL_MARKER);
+            DocumentSnapshot markerSnapshot = Tasks.await(marker.get(), SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (!markerSnapshot.exists()) {
+                backfillUserFields(store);
+                Map<String, Object> done = new HashMap<>();
+                done.put("completedAt", FieldValue.serverTimestamp());
+                Tasks.await(marker.set(done), SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            store.markBackfillDone();
+        }
+        int synced = 0;
+        while (true) {
+            Query query = db.collection(COLLECTION_USERS)
+                    .orderBy("lastUpdated")
+                    .orderBy(FieldPath.documentId())
+                    .limit(USER_SYNC_PAGE_SIZE);
+            if (store.getLastUpdated() != null) {
+                query = query.startAfter(store.getLastUpdated(), store.getLastDocumentId());
+            }
+            QuerySnapshot page = Tasks.await(query.get(), SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<User> users = new ArrayList<>();
+            for (DocumentSnapshot document : page.getDocuments()) {
+                users.add(FirebaseAuthService.mapToUser(document));
+            }
+            DocumentSnapshot last = page.getDocuments().get(page.size() - 1);
+            store.commitPage(users, last.getTimestamp("lastUpdated"), last.getId());
+            synced += users.size();
+
+            if (page.size() < USER_SYNC_PAGE_SIZE) {
+                break;
+            }
+        }
+
+        while (true) {
+            Query query = db.collection(COLLECTION_DELETED_USERS)
+                    .orderBy("deletedAt")
+                    .orderBy(FieldPath.documentId())
+                    .limit(USER_SYNC_PAGE_SIZE);
+            if (store.getLastDeleted() != null) {
+                query = query.startAfter(store.getLastDeleted(), store.getLastDeletedId());
+            }
+            QuerySnapshot page = Tasks.await(query.get(), SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<String> uids = new ArrayList<>();
+            for (DocumentSnapshot document : page.getDocuments()) {
+                uids.add(document.getId());
+            }
+            DocumentSnapshot last = page.getDocuments().get(page.size() - 1);
+            store.commitRemovals(uids, last.getTimestamp("deletedAt"), last.getId());
+            synced += uids.size();
+
+            if (page.size() < USER_SYNC_PAGE_SIZE) {
+                break;
+            }
+        }
+        Log.d(TAG, "User sync complete, changed or deleted users: " + synced);
+        return synced;
+    }
 
+    /**
+     * Give every user document written by an older client the fields newer queries rely on:
+     * a server lastUpdated timestamp, since the sync query skips documents missing the field
+     * and older clients wrote device-clock millis, and the lower-cased email used by the
+     * prefix search. Runs once per project, guarded by a marker document, and resumes by
+     * document ID if interrupted.
+     */
+    private void backfillUserFields(UserSyncStore store)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        int backfilled = 0;
+        while (true) {
+            Query query = db.collection(COLLECTION_USERS)
+                    .orderBy(FieldPath.documentId())
+                    .limit(USER_SYNC_PAGE_SIZE);
+            String after = store.getBackfillPosition();
+            if (after != null) {
+                query = query.startAfter(after);
+            }
+            QuerySnapshot page = Tasks.await(query.get(), SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            WriteBatch batch = db.batch();
+            int writes = 0;
+            for (DocumentSnapshot document : page.getDocuments()) {
+                String email = document.getString("email");
+                boolean missingEmailLower = email != null && document.getString("emailLower") == null;
+                if (missingEmailLower || !(document.get("lastUpdated") instanceof Timestamp)) {
+                    // Touching lastUpdated as well makes the sync pick up the change
+                    Map<String, Object> updates = new HashMap<>();
+                    updates.put("lastUpdated", FieldValue.serverTimestamp());
+                    if (missingEmailLower) {
+                        updates.put("emailLower", email.toLowerCase(Locale.ROOT));
+                    }
+                    batch.update(document.getReference(), updates);
+                    writes++;
+                }
+            }
+            if (writes > 0) {
+                Tasks.await(batch.commit(), SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                backfilled += writes;
+            }
+            if (page.size() < USER_SYNC_PAGE_SIZE) {
+                break;
+            }
+            store.setBackfillPosition(page.getDocuments().get(page.size() - 1).getId());
+        }
+        Log.d(TAG, "Backfilled " + backfilled + " users");
     }
 
     // Add this method to check if a user is signed in
@@ -265,25 +817,30 @@ public class FirebaseService {
         FirebaseAuth.getInstance().signOut();
     }
 
-    public void deleteCourseFromFirebase(long courseId, OnSyncListener listener) {
-        db.collection("yoga_courses")
-                .document(String.valueOf(courseId))
-                .delete()
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Course deleted from Firebase: " + courseId);
-                    if (listener != null) listener.onSyncComplete("Course deleted successfully");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to delete course from Firebase: " + courseId, e);
-                    if (listener != null) listener.onSyncFailed("Failed to delete course: " + e.getMessage());
-                });
-    }
-
     public interface OnSyncInstancesListener {
         void onSyncComplete(List<Instance> instances);
         void onSyncFailed(String errorMessage);
     }
 
+    /**
+     * One page of a collection read in document ID order
+     */
+    public static class Page<T> {
+        public final List<T> items;
+        // Pass to the next call to continue after this page; null if the page was empty
+        public final String lastDocumentId;
+
+        Page(List<T> items, String lastDocumentId) {
+            this.items = items;
+            this.lastDocumentId = lastDocumentId;
+        }
+    }
+
+    public interface OnInstanceCatalogListener {
+        void onCatalogLoaded(InstanceCatalog catalog);
+        void onSyncFailed(String errorMessage);
+    }
+
     // Add OnSyncListener interface for sync callbacks
     public interface OnSyncListener {
         void onSyncComplete(String message);
@@ -293,6 +850,11 @@ public class FirebaseService {
     /**
      * Callback interface for syncing courses
      */
+    public interface OnCourseLoadedListener {
+        void onCourseLoaded(Course course);
+        void onSyncFailed(String errorMessage);
+    }
+
     public interface OnCourseSyncListener {
         void onSyncComplete(List<Course> courses, String message);
         void onSyncFailed(String errorMessage);
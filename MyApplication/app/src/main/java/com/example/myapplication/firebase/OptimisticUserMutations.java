@@ -0,0 +1,145 @@
+package com.example.myapplication.firebase;
+
+import com.example.myapplication.model.User;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies user status changes and deletions locally first, sends the write in the
+ * background and rolls the local change back if the write fails.
+ * At most one mutation per user is in flight; repeated requests are ignored until it settles.
+ * A rollback restores the latest state the users listener reported while the write was in
+ * flight, falling back to the state from before the mutation.
+ * All methods and callbacks run on the main thread.
+ */
+public class OptimisticUserMutations {
+    private final FirebaseAuthService authService;
+    private final Map<String, Pending> inFlight = new HashMap<>();
+
+    public OptimisticUserMutations(FirebaseAuthService authService) {
+        this.authService = authService;
+    }
+
+    /**
+     * Change a user's status optimistically
+     * 
+     * @param user User as currently shown
+     * @param status New status
+     * @param listener Listener to patch the UI and report the outcome
+     * @return false if a mutation for this user is already in flight
+     */
+    public boolean updateStatus(User user, String status, final MutationListener listener) {
+        String uid = user.getFirebaseUid();
+        if (inFlight.containsKey(uid)) {
+            return false;
+        }
+        Pending pending = new Pending(status);
+        inFlight.put(uid, pending);
+        User original = new User(user);
+        User updated = new User(user);
+        updated.setStatus(status);
+        listener.onLocalUpdate(updated);
+
+        authService.updateUserStatus(uid, status, new FirebaseAuthService.SimpleCallback() {
+            @Override
+            public void onSuccess() {
+                inFlight.remove(uid);
+                listener.onCommitted(updated);
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                inFlight.remove(uid);
+                listener.onRolledBack(pending.latest != null ? pending.latest : original, errorMessage);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Delete a user's data optimistically
+     * 
+     * @param user User as currently shown
+     * @param listener Listener to patch the UI and report the outcome
+     * @return false if a mutation for this user is already in flight
+     */
+    public boolean delete(User user, final MutationListener listener) {
+        String uid = user.getFirebaseUid();
+        if (inFlight.containsKey(uid)) {
+            return false;
+        }
+        Pending pending = new Pending(null);
+        inFlight.put(uid, pending);
+        User original = new User(user);
+        listener.onLocalRemove(uid);
+
+        authService.deleteUserData(uid, new FirebaseAuthService.SimpleCallback() {
+            @Override
+            public void onSuccess() {
+                inFlight.remove(uid);
+                listener.onCommitted(original);
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                inFlight.remove(uid);
+                listener.onRolledBack(pending.latest != null ? pending.latest : original, errorMessage);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Record users reported by the users listener, so a rollback of a mutation still in
+     * flight restores the server's latest state. The local echo of a status change, which
+     * already carries the new status, is ignored.
+     * 
+     * @param changedUsers Added or modified users from a snapshot
+     */
+    public void onRemoteChanges(List<User> changedUsers) {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        for (User user : changedUsers) {
+            Pending pending = inFlight.get(user.getFirebaseUid());
+            if (pending != null && (pending.status == null || !pending.status.equals(user.getStatus()))) {
+                pending.latest = new User(user);
+            }
+        }
+    }
+
+    /**
+     * @param uid Firebase user ID
+     * @return true if a mutation for this user has not settled yet
+     */
+    public boolean isInFlight(String uid) {
+        return inFlight.containsKey(uid);
+    }
+
+    private static class Pending {
+        // Status being written, or null for a deletion
+        final String status;
+        // Latest state reported by the listener while the write is in flight
+        User latest;
+
+        Pending(String status) {
+            this.status = status;
+        }
+    }
+
+    /**
+     * Listener interface for optimistic mutations
+     */
+    public interface MutationListener {
+        void onLocalUpdate(User updatedUser);
+        void onLocalRemove(String uid);
+        void onCommitted(User user);
+        /**
+         * @param originalUser Latest state reported by the server, or the state before the mutation
+         * @param errorMessage Reason the write failed
+         */
+        void onRolledBack(User originalUser, String errorMessage);
+    }
+}
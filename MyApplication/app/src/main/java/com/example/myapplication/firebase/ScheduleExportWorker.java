@@ -0,0 +1,162 @@
+package com.example.myapplication.firebase;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.example.myapplication.model.Course;
+import com.example.myapplication.model.Instance;
+import com.example.myapplication.util.ScheduleRows;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Exports all courses or all instances to a CSV document. Documents are read one page at a
+ * time and written straight to the file, so memory use does not grow with the collection.
+ * A retried export rewrites the file from the start.
+ */
+public class ScheduleExportWorker extends Worker {
+    private static final String TAG = "ScheduleExportWorker";
+    private static final String UNIQUE_WORK_NAME = "ScheduleExport";
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int PAGE_SIZE = 500;
+
+    public static final String KEY_URI = "uri";
+    public static final String KEY_KIND = "kind";
+    public static final String KEY_ROWS_WRITTEN = "rows_written";
+    public static final String KEY_FAILURE = "failure";
+
+    public ScheduleExportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Queue an export; exports run one after another
+     * @param context Context used to reach WorkManager
+     * @param uri Writable document to export to
+     * @param kind ScheduleRows.KIND_COURSES or KIND_INSTANCES
+     * @return ID of the queued work, for observing its progress
+     */
+    public static UUID enqueue(Context context, Uri uri, String kind) {
+        Data input = new Data.Builder()
+                .putString(KEY_URI, uri.toString())
+                .putString(KEY_KIND, kind)
+                .build();
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ScheduleExportWorker.class)
+                .setInputData(input)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .addTag(TAG)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                UNIQUE_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+        return request.getId();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String uriString = getInputData().getString(KEY_URI);
+        String kind = getInputData().getString(KEY_KIND);
+        if (uriString == null
+                || !(ScheduleRows.KIND_COURSES.equals(kind) || ScheduleRows.KIND_INSTANCES.equals(kind))) {
+            Log.e(TAG, "Invalid export request");
+            return Result.failure();
+        }
+
+        try {
+            long written = export(Uri.parse(uriString), ScheduleRows.KIND_COURSES.equals(kind));
+            if (isStopped()) {
+                return Result.retry();
+            }
+            Log.d(TAG, "Exported " + written + " " + kind);
+            return Result.success(new Data.Builder().putLong(KEY_ROWS_WRITTEN, written).build());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (TimeoutException e) {
+            Log.w(TAG, "Export timed out", e);
+            return retryOrFail("Timed out reading from Firebase");
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Export failed", e);
+            if (FirebaseErrors.isTransient(e.getCause())) {
+                return retryOrFail(e.getCause().getMessage());
+            }
+            return fail("Firebase rejected the export: " + e.getCause().getMessage());
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "Cannot write export file", e);
+            return fail("Cannot write file: " + e.getMessage());
+        }
+    }
+
+    private long export(Uri uri, boolean courses)
+            throws IOException, ExecutionException, InterruptedException, TimeoutException {
+        FirebaseService firebaseService = FirebaseService.getInstance();
+        // "wt" truncates, so a retry does not leave rows of an earlier attempt behind
+        OutputStream out = getApplicationContext().getContentResolver().openOutputStream(uri, "wt");
+        if (out == null) {
+            throw new IOException("Cannot open " + uri);
+        }
+        long written = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            ScheduleRows.writeCsvHeader(writer, courses ? ScheduleRows.COURSE_COLUMNS : ScheduleRows.INSTANCE_COLUMNS);
+            String after = null;
+            while (!isStopped()) {
+                int pageSize;
+                if (courses) {
+                    FirebaseService.Page<Course> page = firebaseService.getCoursePage(after, PAGE_SIZE);
+                    for (Course course : page.items) {
+                        ScheduleRows.writeCsv(writer, course);
+                    }
+                    pageSize = page.items.size();
+                    after = page.lastDocumentId;
+                } else {
+                    FirebaseService.Page<Instance> page = firebaseService.getInstancePage(after, PAGE_SIZE);
+                    for (Instance instance : page.items) {
+                        ScheduleRows.writeCsv(writer, instance);
+                    }
+                    pageSize = page.items.size();
+                    after = page.lastDocumentId;
+                }
+                written += pageSize;
+                setProgressAsync(new Data.Builder().putLong(KEY_ROWS_WRITTEN, written).build());
+                if (pageSize < PAGE_SIZE) {
+                    break;
+                }
+            }
+        }
+        return written;
+    }
+
+    private Result retryOrFail(String message) {
+        if (getRunAttemptCount() < MAX_ATTEMPTS) {
+            return Result.retry();
+        }
+        return fail(message);
+    }
+
+    private static Result fail(String message) {
+        return Result.failure(new Data.Builder().putString(KEY_FAILURE, message).build());
+    }
+}
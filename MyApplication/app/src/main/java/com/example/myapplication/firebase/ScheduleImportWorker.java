@@ -0,0 +1,332 @@
+package com.example.myapplication.firebase;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.example.myapplication.model.Course;
+import com.example.myapplication.model.Instance;
+import com.example.myapplication.util.RowReader;
+import com.example.myapplication.util.ScheduleRows;
+import com.example.myapplication.util.ScheduleValidator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Imports courses or instances from a CSV or JSON document. The file is streamed one record
+ * at a time and handled in chunks of one Firestore batch: each chunk is validated, its valid
+ * rows are committed, and the number of rows consumed is checkpointed. A retried run skips
+ * the rows already committed, and rows without an ID get one derived from their position, so
+ * re-running a chunk overwrites the same documents instead of duplicating them.
+ */
+public class ScheduleImportWorker extends Worker {
+    private static final String TAG = "ScheduleImportWorker";
+    private static final String PREFS_NAME = "schedule_imports";
+    private static final String UNIQUE_WORK_NAME = "ScheduleImport";
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    public static final String KEY_URI = "uri";
+    public static final String KEY_KIND = "kind";
+    public static final String KEY_FORMAT = "format";
+    public static final String KEY_IMPORT_ID = "import_id";
+    public static final String KEY_ROWS_READ = "rows_read";
+    public static final String KEY_ROWS_IMPORTED = "rows_imported";
+    public static final String KEY_ROWS_REJECTED = "rows_rejected";
+    public static final String KEY_ERRORS = "errors";
+    public static final String KEY_FAILURE = "failure";
+
+    public ScheduleImportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Queue an import; imports run one after another
+     * @param context Context used to reach WorkManager
+     * @param uri Document to read; the caller should hold a persistable read grant for it
+     * @param kind ScheduleRows.KIND_COURSES or KIND_INSTANCES
+     * @param format RowReader.FORMAT_CSV or FORMAT_JSON
+     * @return ID of the queued work, for observing its progress
+     */
+    public static UUID enqueue(Context context, Uri uri, String kind, String format) {
+        Data input = new Data.Builder()
+                .putString(KEY_URI, uri.toString())
+                .putString(KEY_KIND, kind)
+                .putString(KEY_FORMAT, format)
+                .putString(KEY_IMPORT_ID, UUID.randomUUID().toString())
+                .build();
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ScheduleImportWorker.class)
+                .setInputData(input)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .addTag(TAG)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                UNIQUE_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+        return request.getId();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String uriString = getInputData().getString(KEY_URI);
+        String kind = getInputData().getString(KEY_KIND);
+        String format = getInputData().getString(KEY_FORMAT);
+        String importId = getInputData().getString(KEY_IMPORT_ID);
+        if (uriString == null || importId == null
+                || !(ScheduleRows.KIND_COURSES.equals(kind) || ScheduleRows.KIND_INSTANCES.equals(kind))) {
+            Log.e(TAG, "Invalid import request");
+            return Result.failure();
+        }
+        Uri uri = Uri.parse(uriString);
+        SharedPreferences prefs = getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Checkpoint checkpoint = Checkpoint.load(prefs, importId);
+
+        try {
+            importRows(uri, kind, format, checkpoint);
+            if (isStopped()) {
+                return Result.retry();
+            }
+            Log.d(TAG, "Imported " + checkpoint.imported + " " + kind + ", rejected " + checkpoint.rejected);
+            Data output = checkpoint.toData().build();
+            finish(prefs, importId, uri);
+            return Result.success(output);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (TimeoutException e) {
+            Log.w(TAG, "Import timed out", e);
+            return retryOrFail(prefs, importId, uri, checkpoint, "Timed out writing to Firebase");
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Import failed", e);
+            if (FirebaseErrors.isTransient(e.getCause())) {
+                return retryOrFail(prefs, importId, uri, checkpoint, e.getCause().getMessage());
+            }
+            return fail(prefs, importId, uri, checkpoint, "Firebase rejected the import: " + e.getCause().getMessage());
+        } catch (IOException | SecurityException | IllegalStateException e) {
+            // Unreadable or malformed file; retrying will not help
+            Log.e(TAG, "Cannot read import file", e);
+            return fail(prefs, importId, uri, checkpoint, "Cannot read file: " + e.getMessage());
+        }
+    }
+
+    private void importRows(Uri uri, String kind, String format, Checkpoint checkpoint)
+            throws IOException, ExecutionException, InterruptedException, TimeoutException {
+        FirebaseService firebaseService = FirebaseService.getInstance();
+        boolean courses = ScheduleRows.KIND_COURSES.equals(kind);
+        // Instances are checked against the courses they belong to
+        ScheduleValidator validator = courses
+                ? new ScheduleValidator()
+                : new ScheduleValidator(firebaseService.getCoursesBlocking());
+        ScheduleValidator.Errors errors = new ScheduleValidator.Errors();
+        int chunkSize = FirebaseService.MAX_BATCH_WRITES;
+        List<Course> courseChunk = new ArrayList<>(courses ? chunkSize : 0);
+        List<Instance> instanceChunk = new ArrayList<>(courses ? 0 : chunkSize);
+        List<Course> validCourses = new ArrayList<>(courses ? chunkSize : 0);
+        List<Instance> validInstances = new ArrayList<>(courses ? 0 : chunkSize);
+        Map<String, String> row = new HashMap<>();
+
+        InputStream in = getApplicationContext().getContentResolver().openInputStream(uri);
+        if (in == null) {
+            throw new IOException("No content at " + uri);
+        }
+        try (RowReader rows = RowReader.open(format,
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)))) {
+            long rowNumber = 0;
+            // Rows committed by an earlier attempt
+            while (rowNumber < checkpoint.rowsRead && rows.next(row)) {
+                rowNumber++;
+            }
+
+            boolean more = true;
+            while (more && !isStopped()) {
+                long chunkStart = rowNumber;
+                courseChunk.clear();
+                instanceChunk.clear();
+                while (rowNumber - chunkStart < chunkSize && (more = rows.next(row))) {
+                    if (courses) {
+                        courseChunk.add(ScheduleRows.toCourse(row, checkpoint.idBase + rowNumber));
+                    } else {
+                        instanceChunk.add(ScheduleRows.toInstance(row, checkpoint.idBase * 1000 + rowNumber));
+                    }
+                    rowNumber++;
+                }
+                if (rowNumber == chunkStart) {
+                    break;
+                }
+
+                int rejected;
+                if (courses) {
+                    validator.validateCourses(courseChunk, errors);
+                    rejected = keepValid(courseChunk, errors, validCourses, chunkStart, checkpoint);
+                    if (!validCourses.isEmpty()) {
+                        firebaseService.commitImportedCourses(validCourses);
+                    }
+                } else {
+                    validator.validateInstances(instanceChunk, errors);
+                    rejected = keepValid(instanceChunk, errors, validInstances, chunkStart, checkpoint);
+                    if (!validInstances.isEmpty()) {
+                        firebaseService.commitImportedInstances(validInstances);
+                    }
+                }
+                checkpoint.advance(rowNumber, (int) (rowNumber - chunkStart) - rejected, rejected);
+                setProgressAsync(checkpoint.toData().build());
+            }
+        }
+    }
+
+    /**
+     * Copy the rows without errors into valid and record the first few error messages
+     * @return Number of rejected rows
+     */
+    private static <T> int keepValid(List<T> chunk, ScheduleValidator.Errors errors, List<T> valid,
+                                     long chunkStart, Checkpoint checkpoint) {
+        valid.clear();
+        int rejected = 0;
+        int next = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            boolean bad = false;
+            // Errors are recorded in row order
+            while (next < errors.size() && errors.row(next) == i) {
+                checkpoint.reportError(errors.message(next, (int) chunkStart));
+                bad = true;
+                next++;
+            }
+            if (bad) {
+                rejected++;
+            } else {
+                valid.add(chunk.get(i));
+            }
+        }
+        return rejected;
+    }
+
+    private Result retryOrFail(SharedPreferences prefs, String importId, Uri uri, Checkpoint checkpoint,
+                               String message) {
+        if (getRunAttemptCount() < MAX_ATTEMPTS) {
+            return Result.retry();
+        }
+        return fail(prefs, importId, uri, checkpoint, message);
+    }
+
+    private Result fail(SharedPreferences prefs, String importId, Uri uri, Checkpoint checkpoint, String message) {
+        Data output = checkpoint.toData().putString(KEY_FAILURE, message).build();
+        finish(prefs, importId, uri);
+        return Result.failure(output);
+    }
+
+    // Drop the checkpoint and the read grant once the import is over
+    private void finish(SharedPreferences prefs, String importId, Uri uri) {
+        Checkpoint.clear(prefs, importId);
+        try {
+            getApplicationContext().getContentResolver().releasePersistableUriPermission(
+                    uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            // The grant was not persisted
+        }
+    }
+
+    // Progress of one import, persisted after every committed chunk
+    private static class Checkpoint {
+        private final SharedPreferences prefs;
+        private final String importId;
+        final long idBase;
+        long rowsRead;
+        long imported;
+        long rejected;
+        final StringBuilder errors = new StringBuilder();
+        int reportedErrors;
+
+        private Checkpoint(SharedPreferences prefs, String importId, long idBase) {
+            this.prefs = prefs;
+            this.importId = importId;
+            this.idBase = idBase;
+        }
+
+        static Checkpoint load(SharedPreferences prefs, String importId) {
+            long idBase = prefs.getLong(importId + "_id_base", 0);
+            if (idBase == 0) {
+                // Milliseconds, like IDs of courses created in the form, so classes scheduled for an
+                // imported course get IDs in range; instances use it times 1000. Stable across retries
+                idBase = System.currentTimeMillis();
+                prefs.edit().putLong(importId + "_id_base", idBase).commit();
+            }
+            Checkpoint checkpoint = new Checkpoint(prefs, importId, idBase);
+            checkpoint.rowsRead = prefs.getLong(importId + "_rows", 0);
+            checkpoint.imported = prefs.getLong(importId + "_imported", 0);
+            checkpoint.rejected = prefs.getLong(importId + "_rejected", 0);
+            checkpoint.errors.append(prefs.getString(importId + "_errors", ""));
+            checkpoint.reportedErrors = prefs.getInt(importId + "_reported", 0);
+            return checkpoint;
+        }
+
+        static void clear(SharedPreferences prefs, String importId) {
+            prefs.edit()
+                    .remove(importId + "_id_base")
+                    .remove(importId + "_rows")
+                    .remove(importId + "_imported")
+                    .remove(importId + "_rejected")
+                    .remove(importId + "_errors")
+                    .remove(importId + "_reported")
+                    .apply();
+        }
+
+        void reportError(String message) {
+            if (reportedErrors < MAX_REPORTED_ERRORS) {
+                if (errors.length() > 0) {
+                    errors.append('\n');
+                }
+                errors.append(message);
+                reportedErrors++;
+            }
+        }
+
+        // Committed synchronously: the chunk is in Firestore, so the checkpoint must not lag
+        void advance(long rowsRead, int imported, int rejected) {
+            this.rowsRead = rowsRead;
+            this.imported += imported;
+            this.rejected += rejected;
+            prefs.edit()
+                    .putLong(importId + "_rows", this.rowsRead)
+                    .putLong(importId + "_imported", this.imported)
+                    .putLong(importId + "_rejected", this.rejected)
+                    .putString(importId + "_errors", errors.toString())
+                    .putInt(importId + "_reported", reportedErrors)
+                    .commit();
+        }
+
+        Data.Builder toData() {
+            return new Data.Builder()
+                    .putLong(KEY_ROWS_READ, rowsRead)
+                    .putLong(KEY_ROWS_IMPORTED, imported)
+                    .putLong(KEY_ROWS_REJECTED, rejected)
+                    .putString(KEY_ERRORS, errors.toString());
+        }
+    }
+}
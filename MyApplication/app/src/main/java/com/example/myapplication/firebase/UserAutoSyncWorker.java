@@ -1,26 +1,46 @@
 package com.example.myapplication.firebase;
 
 import android.content.Context;
+import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
-import com.example.myapplication.firebase.FirebaseService;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 public class UserAutoSyncWorker extends Worker {
+    private static final String TAG = "UserAutoSyncWorker";
+    private static final int MAX_ATTEMPTS = 5;
+
     public UserAutoSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
         super(context, params);
     }
     @NonNull
     @Override
     public Result doWork() {
-        // Trigger user sync to Firebase
+        // Pull users changed since the last checkpoint
         FirebaseService firebaseService = FirebaseService.getInstance();
         try {
-            firebaseService.syncUsersToFirebase(); // Make sure this method takes no arguments
+            firebaseService.syncUsersFromFirebase(getApplicationContext());
             return Result.success();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (TimeoutException e) {
+            Log.w(TAG, "User sync timed out", e);
+            return retryOrFail();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "User sync failed", e);
+            return FirebaseErrors.isTransient(e.getCause()) ? retryOrFail() : Result.failure();
         } catch (Exception e) {
+            Log.e(TAG, "User sync failed", e);
             return Result.failure();
         }
     }
-}
 
+    // Progress is checkpointed per page, so a retry resumes from the last committed page
+    private Result retryOrFail() {
+        return getRunAttemptCount() < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.myapplication.firebase;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.myapplication.model.User;
+import com.google.firebase.Timestamp;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-device mirror of the Firestore users collection used by the background user sync.
+ * Keeps the last synced position (lastUpdated timestamp + document ID) so an interrupted
+ * sync resumes from the last committed page instead of starting over. Deletions are read
+ * from tombstones with their own checkpoint.
+ */
+public class UserSyncStore {
+    private static final String TAG = "UserSyncStore";
+    private static final String PREFS_CHECKPOINT = "user_sync_checkpoint";
+    private static final String PREFS_USERS = "user_sync_users";
+    // Server timestamps are stored as seconds + nanos; the older millisecond keys are ignored,
+    // so devices upgrading from them run one full sync
+    private static final String KEY_LAST_UPDATED_SECONDS = "last_updated_seconds";
+    private static final String KEY_LAST_UPDATED_NANOS = "last_updated_nanos";
+    private static final String KEY_LAST_DOC_ID = "last_doc_id";
+    private static final String KEY_LAST_DELETED_SECONDS = "last_deleted_seconds";
+    private static final String KEY_LAST_DELETED_NANOS = "last_deleted_nanos";
+    private static final String KEY_LAST_DELETED_ID = "last_deleted_id";
+    private static final String KEY_BACKFILL_AFTER = "backfill_after";
+    private static final String KEY_BACKFILL_DONE = "backfill_done";
+
+    private static UserSyncStore instance;
+    private final SharedPreferences checkpointPrefs;
+    private final SharedPreferences userPrefs;
+
+    private UserSyncStore(Context context) {
+        checkpointPrefs = context.getSharedPreferences(PREFS_CHECKPOINT, Context.MODE_PRIVATE);
+        userPrefs = context.getSharedPreferences(PREFS_USERS, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized UserSyncStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new UserSyncStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * @return lastUpdated value of the last synced document, or null if nothing has been synced
+     */
+    public Timestamp getLastUpdated() {
+        return readTimestamp(KEY_LAST_UPDATED_SECONDS, KEY_LAST_UPDATED_NANOS);
+    }
+
+    /**
+     * @return ID of the last synced document, or an empty string if nothing has been synced
+     */
+    public String getLastDocumentId() {
+        return checkpointPrefs.getString(KEY_LAST_DOC_ID, "");
+    }
+
+    /**
+     * Store a page of changed users and advance the checkpoint in a single commit, so the
+     * checkpoint never moves past users that were not written.
+     *
+     * @param users Changed users from one sync page
+     * @param lastUpdated lastUpdated value of the last document in the page
+     * @param lastDocumentId ID of the last document in the page
+     */
+    public synchronized void commitPage(List<User> users, Timestamp lastUpdated, String lastDocumentId) {
+        SharedPreferences.Editor editor = userPrefs.edit();
+        for (User user : users) {
+            try {
+                editor.putString(user.getFirebaseUid(), toJson(user).toString());
+            } catch (JSONException e) {
+                Log.e(TAG, "Failed to encode user: " + user.getFirebaseUid(), e);
+            }
+        }
+        editor.commit();
+        checkpointPrefs.edit()
+                .putLong(KEY_LAST_UPDATED_SECONDS, lastUpdated.getSeconds())
+                .putInt(KEY_LAST_UPDATED_NANOS, lastUpdated.getNanoseconds())
+                .putString(KEY_LAST_DOC_ID, lastDocumentId)
+                .commit();
+    }
+
+    /**
+     * @return deletedAt value of the last applied tombstone, or null if none has been applied
+     */
+    public Timestamp getLastDeleted() {
+        return readTimestamp(KEY_LAST_DELETED_SECONDS, KEY_LAST_DELETED_NANOS);
+    }
+
+    /**
+     * @return ID of the last applied tombstone, or an empty string if none has been applied
+     */
+    public String getLastDeletedId() {
+        return checkpointPrefs.getString(KEY_LAST_DELETED_ID, "");
+    }
+
+    /**
+     * Drop a page of deleted users and advance the tombstone checkpoint
+     *
+     * @param uids Firebase user IDs from one page of tombstones
+     * @param lastDeleted deletedAt value of the last tombstone in the page
+     * @param lastTombstoneId ID of the last tombstone in the page
+     */
+    public synchronized void commitRemovals(List<String> uids, Timestamp lastDeleted, String lastTombstoneId) {
+        SharedPreferences.Editor editor = userPrefs.edit();
+        for (String uid : uids) {
+            editor.remove(uid);
+        }
+        editor.commit();
+        checkpointPrefs.edit()
+                .putLong(KEY_LAST_DELETED_SECONDS, lastDeleted.getSeconds())
+                .putInt(KEY_LAST_DELETED_NANOS, lastDeleted.getNanoseconds())
+                .putString(KEY_LAST_DELETED_ID, lastTombstoneId)
+                .commit();
+    }
+
+    /**
+     * @return Whether every user document has been given the server timestamp and lower-cased email fields
+     */
+    public boolean isBackfillDone() {
+        return checkpointPrefs.getBoolean(KEY_BACKFILL_DONE, false);
+    }
+
+    /**
+     * @return ID of the last user document the backfill has checked, or null to start from the beginning
+     */
+    public String getBackfillPosition() {
+        return checkpointPrefs.getString(KEY_BACKFILL_AFTER, null);
+    }
+
+    /**
+     * @param lastDocumentId ID of the last user document checked by the backfill
+     */
+    public void setBackfillPosition(String lastDocumentId) {
+        checkpointPrefs.edit().putString(KEY_BACKFILL_AFTER, lastDocumentId).commit();
+    }
+
+    public void markBackfillDone() {
+        checkpointPrefs.edit()
+                .putBoolean(KEY_BACKFILL_DONE, true)
+                .remove(KEY_BACKFILL_AFTER)
+                .commit();
+    }
+
+    /**
+     * Drop a user from the mirror, e.g. after its Firestore document was deleted
+     *
+     * @param uid Firebase user ID
+     */
+    public void removeUser(String uid) {
+        userPrefs.edit().remove(uid).apply();
+    }
+
+    /**
+     * @return All users currently held in the mirror
+     */
+    public List<User> getCachedUsers() {
+        List<User> users = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : userPrefs.getAll().entrySet()) {
+            if (!(entry.getValue() instanceof String)) {
+                continue;
+            }
+            try {
+                users.add(fromJson(entry.getKey(), new JSONObject((String) entry.getValue())));
+            } catch (JSONException e) {
+                Log.e(TAG, "Failed to decode cached user: " + entry.getKey(), e);
+            }
+        }
+        return users;
+    }
+
+    private Timestamp readTimestamp(String secondsKey, String nanosKey) {
+        if (!checkpointPrefs.contains(secondsKey)) {
+            return null;
+        }
+        return new Timestamp(checkpointPrefs.getLong(secondsKey, 0L), checkpointPrefs.getInt(nanosKey, 0));
+    }
+
+    private JSONObject toJson(User user) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("email", user.getEmail());
+        json.put("name", user.getName());
+        json.put("role", user.getRole());
+        json.put("status", user.getStatus());
+        json.put("localId", user.getId());
+        return json;
+    }
+
+    private User fromJson(String uid, JSONObject json) {
+        User user = new User(json.optString("email", null), null, json.optString("name", null),
+                json.optString("role", null), json.optString("status", null));
+        user.setFirebaseUid(uid);
+        user.setId(json.optLong("localId", 0L));
+        return user;
+    }
+}
@@ -1,16 +1,40 @@
 package com.example.myapplication.model;
 
-import java.io.Serializable;
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.util.ArrayList;
 import java.util.List;
 
-public class Course implements Serializable {
+public class Course implements Parcelable {
+    public static final Creator<Course> CREATOR = new Creator<Course>() {
+        @Override
+        public Course createFromParcel(Parcel in) {
+            return new Course(in);
+        }
+
+        @Override
+        public Course[] newArray(int size) {
+            return new Course[size];
+        }
+    };
+
+
+    // Longer side, in pixels, of the stored image variants
+    public static final int PHOTO_THUMBNAIL_SIZE = 320;
+    public static final int PHOTO_MEDIUM_SIZE = 1080;
+    public static final int PHOTO_FULL_SIZE = 1600;
+
     private long id;
     private String name;
     private String description;
     private int duration; // in minutes
     private String level; // beginner, intermediate, advanced
-    private String photoPath;
+    private String photoPath; // Full-size image URL
+    private String thumbnailUrl;
+    private String mediumUrl;
+    private String photoBlurHash; // Blurred preview shown while the image loads
+    private boolean imagePending; // A new image is still uploading in the background
     private List<Instance> instances;
     
     // New fields based on the example
@@ -53,6 +77,71 @@ public class Course implements Serializable {
         this.instances = new ArrayList<>();
     }
     
+    protected Course(Parcel in) {
+        id = in.readLong();
+        name = in.readString();
+        description = in.readString();
+        duration = in.readInt();
+        level = in.readString();
+        photoPath = in.readString();
+        thumbnailUrl = in.readString();
+        mediumUrl = in.readString();
+        photoBlurHash = in.readString();
+        imagePending = in.readByte() != 0;
+        instances = in.createTypedArrayList(Instance.CREATOR);
+        if (instances == null) {
+            instances = new ArrayList<>();
+        }
+        capacity = in.readInt();
+        dayOfWeek = in.readString();
+        type = in.readString();
+        price = in.readFloat();
+        time = in.readString();
+        equipmentNeeded = in.readString();
+        enrolled = in.readInt();
+    }
+    
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeLong(id);
+        dest.writeString(name);
+        dest.writeString(description);
+        dest.writeInt(duration);
+        dest.writeString(level);
+        dest.writeString(photoPath);
+        dest.writeString(thumbnailUrl);
+        dest.writeString(mediumUrl);
+        dest.writeString(photoBlurHash);
+        dest.writeByte((byte) (imagePending ? 1 : 0));
+        dest.writeTypedList(instances);
+        dest.writeInt(capacity);
+        dest.writeString(dayOfWeek);
+        dest.writeString(type);
+        dest.writeFloat(price);
+        dest.writeString(time);
+        dest.writeString(equipmentNeeded);
+        dest.writeInt(enrolled);
+    }
+    
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+    
+    /**
+     * @return A deep copy, including the instances, for editing without touching this object
+     */
+    public Course copy() {
+        Parcel parcel = Parcel.obtain();
+        try {
+            writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return new Course(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+    
     public long getId() {
         return id;
     }
@@ -101,6 +190,59 @@ public class Course implements Serializable {
         this.photoPath = photoPath;
     }
     
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+    
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+    
+    public String getMediumUrl() {
+        return mediumUrl;
+    }
+    
+    public void setMediumUrl(String mediumUrl) {
+        this.mediumUrl = mediumUrl;
+    }
+    
+    public String getPhotoBlurHash() {
+        return photoBlurHash;
+    }
+    
+    public void setPhotoBlurHash(String photoBlurHash) {
+        this.photoBlurHash = photoBlurHash;
+    }
+    
+    public boolean isImagePending() {
+        return imagePending;
+    }
+    
+    public void setImagePending(boolean imagePending) {
+        this.imagePending = imagePending;
+    }
+    
+    /**
+     * Smallest stored image variant that covers the requested size.
+     * Falls back to a larger variant when a smaller one was never uploaded (older courses).
+     * 
+     * @param sizePx Longer side of the target view, in pixels
+     * @return Image URL, or null if the course has no image
+     */
+    public String getPhotoUrlForSize(int sizePx) {
+        if (sizePx <= PHOTO_THUMBNAIL_SIZE && !isEmpty(thumbnailUrl)) {
+            return thumbnailUrl;
+        }
+        if (sizePx <= PHOTO_MEDIUM_SIZE && !isEmpty(mediumUrl)) {
+            return mediumUrl;
+        }
+        return isEmpty(photoPath) ? null : photoPath;
+    }
+    
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+    
     public List<Instance> getInstances() {
         return instances;
     }
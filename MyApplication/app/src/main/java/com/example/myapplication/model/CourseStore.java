@@ -0,0 +1,77 @@
+package com.example.myapplication.model;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of the courses the app has loaded, keyed by course ID.
+ * Activities pass only a course ID in their intents and look the course up here, so large
+ * objects (a course with its instances) never go through a Binder transaction.
+ * The cache is lost with the process, so callers fall back to Firestore on a miss.
+ */
+public class CourseStore {
+    private static CourseStore instance;
+    private final ConcurrentHashMap<Long, Course> courses = new ConcurrentHashMap<>();
+    // Courses whose deletion is queued; a sync may still return them until it runs
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+
+    private CourseStore() {
+    }
+
+    public static synchronized CourseStore getInstance() {
+        if (instance == null) {
+            instance = new CourseStore();
+        }
+        return instance;
+    }
+
+    /**
+     * @param courseId Course ID
+     * @return The cached course, or null if it has not been loaded in this process
+     */
+    public Course get(long courseId) {
+        return courses.get(courseId);
+    }
+
+    public void put(Course course) {
+        if (course != null) {
+            courses.put(course.getId(), course);
+        }
+    }
+
+    /**
+     * Replace the cache with a freshly synced course list
+     */
+    public void replaceAll(List<Course> loaded) {
+        courses.clear();
+        for (Course course : loaded) {
+            if (!deleted.contains(course.getId())) {
+                put(course);
+            }
+        }
+    }
+
+    public void remove(long courseId) {
+        courses.remove(courseId);
+    }
+
+    /**
+     * Drop a course that is being deleted in the background, and keep it out of later syncs
+     */
+    public void markDeleted(long courseId) {
+        deleted.add(courseId);
+        courses.remove(courseId);
+    }
+
+    /**
+     * Let a course whose deletion failed show up in syncs again
+     */
+    public void clearDeleted(long courseId) {
+        deleted.remove(courseId);
+    }
+
+    public boolean isDeleted(long courseId) {
+        return deleted.contains(courseId);
+    }
+}
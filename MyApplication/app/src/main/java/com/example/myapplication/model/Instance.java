@@ -1,10 +1,31 @@
 package com.example.myapplication.model;
 
-import java.io.Serializable;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.example.myapplication.util.ScheduleTime;
+
+public class Instance implements Parcelable {
+    public static final Creator<Instance> CREATOR = new Creator<Instance>() {
+        @Override
+        public Instance createFromParcel(Parcel in) {
+            return new Instance(in);
+        }
+
+        @Override
+        public Instance[] newArray(int size) {
+            return new Instance[size];
+        }
+    };
+
 
-public class Instance implements Serializable {
     private long id;
     private long courseId;
+    // Date and time are held as days since 1970-01-01 and minutes since midnight, so instances
+    // can be compared and range-filtered without parsing. The String forms are derived lazily.
+    private int epochDay = ScheduleTime.INVALID_DAY;
+    private int minuteOfDay = ScheduleTime.INVALID_MINUTE;
+    // Cached String form, or the raw value if it could not be parsed
     private String date;
     private String time;
     private String location;
@@ -17,14 +38,47 @@ public class Instance implements Serializable {
     
     public Instance(long courseId, String date, String time, String location, int capacity, String instructor, float price) {
         this.courseId = courseId;
-        this.date = date;
-        this.time = time;
+        setDate(date);
+        setTime(time);
         this.location = location;
         this.capacity = capacity;
         this.instructor = instructor;
         this.price = price;
     }
     
+    protected Instance(Parcel in) {
+        id = in.readLong();
+        courseId = in.readLong();
+        epochDay = in.readInt();
+        minuteOfDay = in.readInt();
+        date = in.readString();
+        time = in.readString();
+        location = in.readString();
+        capacity = in.readInt();
+        instructor = in.readString();
+        price = in.readFloat();
+    }
+    
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeLong(id);
+        dest.writeLong(courseId);
+        dest.writeInt(epochDay);
+        dest.writeInt(minuteOfDay);
+        // Only raw, unparseable values need the String; otherwise it is rebuilt on demand
+        dest.writeString(epochDay == ScheduleTime.INVALID_DAY ? date : null);
+        dest.writeString(minuteOfDay == ScheduleTime.INVALID_MINUTE ? time : null);
+        dest.writeString(location);
+        dest.writeInt(capacity);
+        dest.writeString(instructor);
+        dest.writeFloat(price);
+    }
+    
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+    
     public long getId() {
         return id;
     }
@@ -41,20 +95,59 @@ public class Instance implements Serializable {
         this.courseId = courseId;
     }
     
+    /**
+     * @return Date in yyyy-MM-dd format
+     */
     public String getDate() {
+        if (date == null && epochDay != ScheduleTime.INVALID_DAY) {
+            date = ScheduleTime.formatEpochDay(epochDay);
+        }
         return date;
     }
     
     public void setDate(String date) {
-        this.date = date;
+        this.epochDay = ScheduleTime.parseEpochDay(date);
+        // Keep unparseable values as they are so nothing is lost
+        this.date = epochDay == ScheduleTime.INVALID_DAY ? date : null;
     }
     
+    /**
+     * @return Time in HH:mm format
+     */
     public String getTime() {
+        if (time == null && minuteOfDay != ScheduleTime.INVALID_MINUTE) {
+            time = ScheduleTime.formatMinuteOfDay(minuteOfDay);
+        }
         return time;
     }
     
     public void setTime(String time) {
-        this.time = time;
+        this.minuteOfDay = ScheduleTime.parseMinuteOfDay(time);
+        this.time = minuteOfDay == ScheduleTime.INVALID_MINUTE ? time : null;
+    }
+    
+    /**
+     * @return Days since 1970-01-01, or ScheduleTime.INVALID_DAY if the date is missing or malformed
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+    
+    public void setEpochDay(int epochDay) {
+        this.epochDay = epochDay;
+        this.date = null;
+    }
+    
+    /**
+     * @return Minutes since midnight, or ScheduleTime.INVALID_MINUTE if the time is missing or malformed
+     */
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+    
+    public void setMinuteOfDay(int minuteOfDay) {
+        this.minuteOfDay = minuteOfDay;
+        this.time = null;
     }
     
     public String getLocation() {
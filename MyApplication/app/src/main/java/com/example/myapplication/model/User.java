@@ -1,5 +1,7 @@
 package com.example.myapplication.model;
 
+import com.example.myapplication.util.StringPool;
+
 public class User {
     // Role constants
     public static final String ROLE_SUPER_ADMIN = "super_admin";
@@ -23,16 +25,16 @@ public class User {
         this.email = email;
         this.password = password;
         this.name = name;
-        this.role = role;
-        this.status = status != null ? status : STATUS_ACTIVE;
+        this.role = canonicalRole(role);
+        this.status = status != null ? canonicalStatus(status) : STATUS_ACTIVE;
     }
 
     // Constructor for user management (with status, for display/listing)
     public User(String email, String name, String role, String status) {
         this.email = email;
         this.name = name;
-        this.role = role;
-        this.status = status;
+        this.role = canonicalRole(role);
+        this.status = canonicalStatus(status);
         this.password = null; // Password is not set in this constructor
     }
 
@@ -41,10 +43,21 @@ public class User {
         this.email = email;
         this.password = password;
         this.name = name;
-        this.role = role;
+        this.role = canonicalRole(role);
         this.status = STATUS_ACTIVE; // Default status is active
     }
 
+    // Copy constructor (for local edits that may need to be rolled back)
+    public User(User other) {
+        this.id = other.id;
+        this.firebaseUid = other.firebaseUid;
+        this.email = other.email;
+        this.password = other.password;
+        this.name = other.name;
+        this.role = other.role;
+        this.status = other.status;
+    }
+
     // Remove unused/legacy constructor
 
 
@@ -85,7 +98,7 @@ public class User {
     }
     
     public void setRole(String role) {
-        this.role = role;
+        this.role = canonicalRole(role);
     }
     
     public String getStatus() {
@@ -93,7 +106,7 @@ public class User {
     }
     
     public void setStatus(String status) {
-        this.status = status;
+        this.status = canonicalStatus(status);
     }
     
 
@@ -106,6 +119,16 @@ public class User {
         this.firebaseUid = firebaseUid;
     }
     
+    // Roles and statuses are stored as the shared constants whatever their case in Firestore,
+    // so every user holds the same String instances and checks compare by identity
+    private static String canonicalRole(String role) {
+        return StringPool.canonical(role, ROLE_SUPER_ADMIN, ROLE_ADMIN, ROLE_CUSTOMER);
+    }
+
+    private static String canonicalStatus(String status) {
+        return StringPool.canonical(status, STATUS_ACTIVE, STATUS_BANNED);
+    }
+
     // Helper methods
     public boolean isSuperAdmin() {
         return ROLE_SUPER_ADMIN.equals(role);
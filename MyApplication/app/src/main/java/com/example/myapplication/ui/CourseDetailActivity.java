@@ -1,10 +1,12 @@
 package com.example.myapplication.ui;
 
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -17,29 +19,59 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import com.bumptech.glide.Glide;
 import com.example.myapplication.R;
 import com.example.myapplication.databinding.ActivityCourseDetailBinding;
+import com.example.myapplication.databinding.DialogRecurringScheduleBinding;
+import com.example.myapplication.firebase.CourseDeleteWorker;
 import com.example.myapplication.firebase.FirebaseService;
 import com.example.myapplication.model.Course;
+import com.example.myapplication.model.CourseStore;
 import com.example.myapplication.model.Instance;
 import com.example.myapplication.ui.adapter.InstanceAdapter;
+import com.example.myapplication.util.ImageUtil;
+import com.example.myapplication.util.InstanceTimeline;
+import com.example.myapplication.util.RecurrenceRule;
+import com.example.myapplication.util.ScheduleConflictDetector;
+import com.example.myapplication.util.ScheduleTime;
+import com.example.myapplication.util.StorageGlideUrl;
+import com.example.myapplication.util.ValidationUtil;
 
+import java.io.File;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public class CourseDetailActivity extends AppCompatActivity {
 
     public static final String EXTRA_COURSE_ID = "extra_course_id";
+    private static final int DEFAULT_SCHEDULE_WEEKS = 12;
+    private static final int MAX_SCHEDULE_WEEKS = 104;
+    private static final int MAX_CONFLICTS_SHOWN = 5;
+    // Positions in @array/instance_ranges
+    private static final int RANGE_ALL = 0;
+    private static final int RANGE_NEXT_7_DAYS = 1;
+    private static final int RANGE_THIS_MONTH = 2;
 
     private ActivityCourseDetailBinding binding;
     private Course course;
     private List<Instance> instanceList;
     private InstanceAdapter instanceAdapter;
+    private InstanceTimeline instanceTimeline = new InstanceTimeline(new ArrayList<>());
     private FirebaseService firebaseService;
+    // Decoded from the on-device copy of a pending image; returned to the bitmap pool once replaced
+    private Bitmap localImage;
 
     private final ActivityResultLauncher<Intent> editCourseLauncher = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 if (result.getResultCode() == RESULT_OK && result.getData() != null) {
-                    Course updatedCourse = (Course) result.getData().getSerializableExtra(CourseFormActivity.EXTRA_COURSE);
+                    long courseId = result.getData().getLongExtra(CourseFormActivity.EXTRA_COURSE_ID, -1);
+                    Course updatedCourse = CourseStore.getInstance().get(courseId);
                     if (updatedCourse != null) {
                         course = updatedCourse;
                         updateCourseDetails();
@@ -70,36 +102,63 @@ public class CourseDetailActivity extends AppCompatActivity {
             return;
         }
 
+        // The list screen has usually loaded the course already
+        course = CourseStore.getInstance().get(courseId);
+
+        // Initialize instance list
+        instanceList = new ArrayList<>();
+        instanceAdapter = new InstanceAdapter(this, instanceList);
+        binding.recyclerViewInstances.setLayoutManager(new LinearLayoutManager(this));
+        binding.recyclerViewInstances.setAdapter(instanceAdapter);
+        binding.spinnerInstanceRange.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                showInstanceRange();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        // Setup edit button
+        binding.buttonEditCourse.setOnClickListener(v -> editCourse());
+
+        // Setup delete button
+        binding.buttonDeleteCourse.setOnClickListener(v -> confirmDeleteCourse());
+
+        // Setup add instance button
+        binding.fabAddInstance.setOnClickListener(v -> showScheduleDialog());
+
+        // Update UI with course details
+        if (course != null) {
+            showCourse();
+        } else {
+            loadCourse(courseId);
+        }
+    }
+
+    /**
+     * Fetch the course from Firebase when it is not cached, e.g. after the process was restarted
+     */
+    private void loadCourse(long courseId) {
         // Show loading state
         binding.progressBar.setVisibility(View.VISIBLE);
         
         // Load course details from Firebase
-        firebaseService.syncCoursesFromFirebase(new FirebaseService.OnCourseSyncListener() {
+        firebaseService.getCourse(courseId, new FirebaseService.OnCourseLoadedListener() {
             @Override
-            public void onSyncComplete(List<Course> courses, String message) {
+            public void onCourseLoaded(Course loaded) {
                 runOnUiThread(() -> {
                     binding.progressBar.setVisibility(View.GONE);
-                    
-                    // Find the course with matching ID
-                    for (Course c : courses) {
-                        if (c.getId() == courseId) {
-                            course = c;
-                            break;
-                        }
-                    }
-                    
-                    if (course == null) {
+                    if (loaded == null || CourseStore.getInstance().isDeleted(courseId)) {
                         Toast.makeText(CourseDetailActivity.this, "Error: Course not found", Toast.LENGTH_SHORT).show();
                         finish();
                         return;
                     }
-                    
-                    // Set toolbar title and update UI
-                    if (getSupportActionBar() != null) {
-                        getSupportActionBar().setTitle(course.getName());
-                    }
-                    updateCourseDetails();
-                    loadInstances();
+                    CourseStore.getInstance().put(loaded);
+                    course = loaded;
+                    showCourse();
                 });
             }
 
@@ -112,26 +171,13 @@ public class CourseDetailActivity extends AppCompatActivity {
                 });
             }
         });
+    }
 
-        // Initialize instance list
-        instanceList = new ArrayList<>();
-        instanceAdapter = new InstanceAdapter(this, instanceList);
-        binding.recyclerViewInstances.setLayoutManager(new LinearLayoutManager(this));
-        binding.recyclerViewInstances.setAdapter(instanceAdapter);
-
-        // Setup edit button
-        binding.buttonEditCourse.setOnClickListener(v -> editCourse());
-
-        // Setup delete button
-        binding.buttonDeleteCourse.setOnClickListener(v -> confirmDeleteCourse());
-
-        // Setup add instance button
-        binding.fabAddInstance.setOnClickListener(v -> {
-            // TODO: Implement add instance functionality
-            Toast.makeText(this, "Add instance functionality coming soon", Toast.LENGTH_SHORT).show();
-        });
-
-        // Update UI with course details
+    private void showCourse() {
+        // Set toolbar title and update UI
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle(course.getName());
+        }
         updateCourseDetails();
         loadInstances();
     }
@@ -151,16 +197,100 @@ public class CourseDetailActivity extends AppCompatActivity {
         binding.textViewCourseEquipment.setText(course.getEquipmentNeeded() != null ? course.getEquipmentNeeded() : "None");
         
         // Load course image if available
-        if (!TextUtils.isEmpty(course.getPhotoPath())) {
+        // The image spans the screen width, so request the variant that covers it
+        int width = getResources().getDisplayMetrics().widthPixels;
+        File localCopy = course.isImagePending() ? ImageUtil.getLocalCourseImage(this, course.getId()) : null;
+        String photoUrl = course.getPhotoUrlForSize(width);
+        if (localCopy != null) {
+            // The upload has not finished; show the copy saved on this device
+            binding.imageViewCourse.setVisibility(View.VISIBLE);
+            Glide.with(this).clear(binding.imageViewCourse);
+            showLocalImage(localCopy, width);
+        } else if (!TextUtils.isEmpty(photoUrl)) {
             binding.imageViewCourse.setVisibility(View.VISIBLE);
             Glide.with(this)
-                .load(course.getPhotoPath())
+                .load(new StorageGlideUrl(photoUrl))
                 .placeholder(R.drawable.ic_launcher_background)
                 .error(android.R.drawable.ic_menu_gallery)
                 .centerCrop()
                 .into(binding.imageViewCourse);
+            releaseLocalImage();
         } else {
             binding.imageViewCourse.setVisibility(View.GONE);
+            binding.imageViewCourse.setImageDrawable(null);
+            releaseLocalImage();
+        }
+    }
+
+    private void showLocalImage(File file, int width) {
+        long courseId = course.getId();
+        int height = binding.imageViewCourse.getLayoutParams().height > 0
+                ? binding.imageViewCourse.getLayoutParams().height : width;
+        ImageUtil.loadImageFromStorageAsync(file.getAbsolutePath(), width, height, new ImageUtil.ImageCallback<Bitmap>() {
+            @Override
+            public void onSuccess(Bitmap bitmap) {
+                // Drop the result if the screen moved on while decoding
+                if (isDestroyed() || course.getId() != courseId || !course.isImagePending()) {
+                    ImageUtil.releaseBitmap(bitmap);
+                    return;
+                }
+                binding.imageViewCourse.setImageBitmap(bitmap);
+                releaseLocalImage();
+                localImage = bitmap;
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                if (!isDestroyed()) {
+                    binding.imageViewCourse.setImageResource(android.R.drawable.ic_menu_gallery);
+                    releaseLocalImage();
+                }
+            }
+        });
+    }
+
+    // Only call once the image view no longer draws the bitmap
+    private void releaseLocalImage() {
+        if (localImage != null) {
+            ImageUtil.releaseBitmap(localImage);
+            localImage = null;
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (localImage != null) {
+            binding.imageViewCourse.setImageDrawable(null);
+            releaseLocalImage();
+        }
+    }
+
+    /**
+     * Show the instances in the range picked in the spinner, in date order
+     */
+    private void showInstanceRange() {
+        List<Instance> shown;
+        switch (binding.spinnerInstanceRange.getSelectedItemPosition()) {
+            case RANGE_NEXT_7_DAYS:
+                shown = instanceTimeline.nextDays(InstanceTimeline.today(), 7);
+                break;
+            case RANGE_THIS_MONTH:
+                Calendar now = Calendar.getInstance();
+                shown = instanceTimeline.inMonth(now.get(Calendar.YEAR), now.get(Calendar.MONTH) + 1);
+                break;
+            case RANGE_ALL:
+            default:
+                shown = instanceTimeline.all();
+                break;
+        }
+        instanceAdapter.submitList(shown);
+
+        // Show empty view if no instances
+        if (shown.isEmpty()) {
+            binding.textViewNoInstances.setVisibility(View.VISIBLE);
+        } else {
+            binding.textViewNoInstances.setVisibility(View.GONE);
         }
     }
 
@@ -186,14 +316,9 @@ public class CourseDetailActivity extends AppCompatActivity {
                                 instances.size() + " instances loaded", Toast.LENGTH_SHORT).show();
                         }
                         
-                        instanceAdapter.notifyDataSetChanged();
-                        
-                        // Show empty view if no instances
-                        if (instanceList.isEmpty()) {
-                            binding.textViewNoInstances.setVisibility(View.VISIBLE);
-                        } else {
-                            binding.textViewNoInstances.setVisibility(View.GONE);
-                        }
+                        // Sort once; the range filters are then binary searches over the timeline
+                        instanceTimeline = new InstanceTimeline(instanceList);
+                        showInstanceRange();
                     });
                 }
                 
@@ -214,10 +339,234 @@ public class CourseDetailActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Ask for the details of a term and create one instance per week on the course's day and time
+     */
+    private void showScheduleDialog() {
+        if (course == null) {
+            Toast.makeText(this, "Error: Course not loaded", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (TextUtils.isEmpty(course.getDayOfWeek()) || !ValidationUtil.isValidTime(course.getTime())) {
+            Toast.makeText(this, "Set the course day and time before scheduling classes", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        DialogRecurringScheduleBinding dialogBinding = DialogRecurringScheduleBinding.inflate(getLayoutInflater());
+        dialogBinding.textViewScheduleSummary.setText("Every " + course.getDayOfWeek() + " at " + course.getTime());
+        dialogBinding.editTextStartDate.setText(
+                new SimpleDateFormat(RecurrenceRule.DATE_PATTERN, Locale.US).format(new Date()));
+        dialogBinding.editTextWeeks.setText(String.valueOf(DEFAULT_SCHEDULE_WEEKS));
+        dialogBinding.editTextIntervalWeeks.setText("1");
+        if (course.getCapacity() > 0) {
+            dialogBinding.editTextScheduleCapacity.setText(String.valueOf(course.getCapacity()));
+        }
+        if (course.getPrice() > 0) {
+            dialogBinding.editTextSchedulePrice.setText(String.valueOf(course.getPrice()));
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Schedule Classes")
+                .setView(dialogBinding.getRoot())
+                .setPositiveButton("Create", (dialog, which) -> createSchedule(dialogBinding))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void createSchedule(DialogRecurringScheduleBinding dialogBinding) {
+        String startDate = dialogBinding.editTextStartDate.getText().toString().trim();
+        String weeksStr = dialogBinding.editTextWeeks.getText().toString().trim();
+        String intervalStr = dialogBinding.editTextIntervalWeeks.getText().toString().trim();
+        String location = dialogBinding.editTextScheduleLocation.getText().toString().trim();
+        String instructor = dialogBinding.editTextScheduleInstructor.getText().toString().trim();
+        String capacityStr = dialogBinding.editTextScheduleCapacity.getText().toString().trim();
+        String priceStr = dialogBinding.editTextSchedulePrice.getText().toString().trim();
+
+        if (!ValidationUtil.isValidDate(startDate)) {
+            Toast.makeText(this, "Invalid start date", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (!ValidationUtil.isValidCapacity(weeksStr) || Integer.parseInt(weeksStr) > MAX_SCHEDULE_WEEKS) {
+            Toast.makeText(this, "Weeks must be between 1 and " + MAX_SCHEDULE_WEEKS, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (!ValidationUtil.isValidCapacity(intervalStr)) {
+            Toast.makeText(this, "Invalid week interval", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (!ValidationUtil.isValidName(instructor)) {
+            Toast.makeText(this, "Instructor is required", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (!ValidationUtil.isValidCapacity(capacityStr)) {
+            Toast.makeText(this, "Invalid capacity", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (!ValidationUtil.isValidPrice(priceStr)) {
+            Toast.makeText(this, "Invalid price", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        Set<String> exceptionDates = new HashSet<>();
+        for (String date : dialogBinding.editTextExceptionDates.getText().toString().split(",")) {
+            String trimmed = date.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!ValidationUtil.isValidDate(trimmed)) {
+                Toast.makeText(this, "Invalid skip date: " + trimmed, Toast.LENGTH_SHORT).show();
+                return;
+            }
+            exceptionDates.add(trimmed);
+        }
+
+        Instance template = new Instance(course.getId(), null, course.getTime(), location,
+                Integer.parseInt(capacityStr), instructor, Float.parseFloat(priceStr));
+        List<Instance> instances;
+        try {
+            RecurrenceRule rule = new RecurrenceRule(startDate, course.getDayOfWeek(), course.getTime(),
+                    Integer.parseInt(weeksStr), Integer.parseInt(intervalStr), exceptionDates);
+            // IDs come from the rule, so retrying after a failed save overwrites rather than duplicates
+            instances = rule.expand(template);
+        } catch (IllegalArgumentException e) {
+            Toast.makeText(this, "Cannot schedule classes: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (instances.isEmpty()) {
+            Toast.makeText(this, "No classes fall within that schedule", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        binding.progressBarInstances.setVisibility(View.VISIBLE);
+        binding.fabAddInstance.setEnabled(false);
+        checkConflictsThenSave(instances);
+    }
+
+    /**
+     * Check new classes against every class already booked over the same dates, across all
+     * courses, and ask for confirmation before saving if an instructor or location is double-booked
+     */
+    private void checkConflictsThenSave(List<Instance> instances) {
+        // A day earlier, so classes running past midnight into the first date are included
+        String fromDate = ScheduleTime.formatEpochDay(instances.get(0).getEpochDay() - 1);
+        String lastDate = instances.get(instances.size() - 1).getDate();
+        firebaseService.getInstancesBetween(fromDate, lastDate, new FirebaseService.OnSyncInstancesListener() {
+            @Override
+            public void onSyncComplete(List<Instance> booked) {
+                // Durations of the other courses decide how long their classes block a room or
+                // instructor; only the courses that are not cached are read
+                Map<Long, Integer> durations = new HashMap<>();
+                durations.put(course.getId(), course.getDuration());
+                Set<Long> missing = new HashSet<>();
+                for (Instance instance : booked) {
+                    long courseId = instance.getCourseId();
+                    if (durations.containsKey(courseId) || missing.contains(courseId)) {
+                        continue;
+                    }
+                    Course cached = CourseStore.getInstance().get(courseId);
+                    if (cached != null) {
+                        durations.put(courseId, cached.getDuration());
+                    } else {
+                        missing.add(courseId);
+                    }
+                }
+                if (missing.isEmpty()) {
+                    checkConflicts(instances, booked, durations);
+                    return;
+                }
+                firebaseService.getCoursesByIds(missing, new FirebaseService.OnCourseSyncListener() {
+                    @Override
+                    public void onSyncComplete(List<Course> courses, String message) {
+                        for (Course c : courses) {
+                            durations.put(c.getId(), c.getDuration());
+                        }
+                        checkConflicts(instances, booked, durations);
+                    }
+
+                    @Override
+                    public void onSyncFailed(String errorMessage) {
+                        onScheduleCheckFailed(errorMessage);
+                    }
+                });
+            }
+
+            @Override
+            public void onSyncFailed(String errorMessage) {
+                onScheduleCheckFailed(errorMessage);
+            }
+        });
+    }
+
+    private void checkConflicts(List<Instance> instances, List<Instance> booked, Map<Long, Integer> durations) {
+        ScheduleConflictDetector detector = new ScheduleConflictDetector(durations);
+        detector.addAll(booked);
+        List<ScheduleConflictDetector.Conflict> conflicts = new ArrayList<>();
+        for (Instance instance : instances) {
+            conflicts.addAll(detector.findConflicts(instance));
+        }
+        // The new classes may also clash among themselves
+        conflicts.addAll(ScheduleConflictDetector.scanAll(instances, durations));
+        if (conflicts.isEmpty()) {
+            saveSchedule(instances);
+        } else {
+            confirmScheduleConflicts(instances, conflicts);
+        }
+    }
+
+    private void onScheduleCheckFailed(String errorMessage) {
+        binding.progressBarInstances.setVisibility(View.GONE);
+        binding.fabAddInstance.setEnabled(true);
+        Toast.makeText(this, "Could not check for conflicts: " + errorMessage, Toast.LENGTH_SHORT).show();
+    }
+
+    private void confirmScheduleConflicts(List<Instance> instances, List<ScheduleConflictDetector.Conflict> conflicts) {
+        StringBuilder message = new StringBuilder();
+        int shown = Math.min(conflicts.size(), MAX_CONFLICTS_SHOWN);
+        for (int i = 0; i < shown; i++) {
+            ScheduleConflictDetector.Conflict conflict = conflicts.get(i);
+            String who = conflict.kind == ScheduleConflictDetector.Conflict.Kind.INSTRUCTOR
+                    ? conflict.instance.getInstructor() : conflict.instance.getLocation();
+            message.append(conflict.instance.getDate()).append(' ').append(conflict.instance.getTime())
+                    .append(": ").append(who).append(" is already booked at ")
+                    .append(conflict.other.getTime()).append('\n');
+        }
+        if (conflicts.size() > shown) {
+            message.append("...and ").append(conflicts.size() - shown).append(" more");
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(conflicts.size() + " scheduling conflicts")
+                .setMessage(message.toString().trim())
+                .setPositiveButton("Create anyway", (dialog, which) -> saveSchedule(instances))
+                .setNegativeButton("Cancel", (dialog, which) -> {
+                    binding.progressBarInstances.setVisibility(View.GONE);
+                    binding.fabAddInstance.setEnabled(true);
+                })
+                .setCancelable(false)
+                .show();
+    }
+
+    private void saveSchedule(List<Instance> instances) {
+        firebaseService.saveInstancesBatched(instances, new FirebaseService.OnSyncListener() {
+            @Override
+            public void onSyncComplete(String message) {
+                binding.fabAddInstance.setEnabled(true);
+                Toast.makeText(CourseDetailActivity.this, message, Toast.LENGTH_SHORT).show();
+                loadInstances();
+            }
+
+            @Override
+            public void onSyncFailed(String errorMessage) {
+                binding.progressBarInstances.setVisibility(View.GONE);
+                binding.fabAddInstance.setEnabled(true);
+                Toast.makeText(CourseDetailActivity.this, errorMessage, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
     private void editCourse() {
         Intent intent = new Intent(this, CourseFormActivity.class);
         intent.putExtra(CourseFormActivity.EXTRA_IS_EDIT_MODE, true);
-        intent.putExtra(CourseFormActivity.EXTRA_COURSE, course);
+        intent.putExtra(CourseFormActivity.EXTRA_COURSE_ID, course.getId());
         editCourseLauncher.launch(intent);
     }
 
@@ -232,30 +581,19 @@ public class CourseDetailActivity extends AppCompatActivity {
                 .show();
     }
 
+    /**
+     * Queue the deletion of the course with its classes and images, which continues in the
+     * background after this screen closes
+     */
     private void deleteCourse() {
         if (course == null) {
             Toast.makeText(this, "Error: Course not loaded", Toast.LENGTH_SHORT).show();
             return;
         }
-        binding.progressBar.setVisibility(View.VISIBLE);
-        firebaseService.deleteCourseFromFirebase(course.getId(), new FirebaseService.OnSyncListener() {
-            @Override
-            public void onSyncComplete(String message) {
-                runOnUiThread(() -> {
-                    binding.progressBar.setVisibility(View.GONE);
-                    Toast.makeText(CourseDetailActivity.this, "Course deleted successfully", Toast.LENGTH_SHORT).show();
-                    finish();
-                });
-            }
-
-            @Override
-            public void onSyncFailed(String errorMessage) {
-                runOnUiThread(() -> {
-                    binding.progressBar.setVisibility(View.GONE);
-                    Toast.makeText(CourseDetailActivity.this, "Error deleting course: " + errorMessage, Toast.LENGTH_SHORT).show();
-                });
-            }
-        });
+        CourseDeleteWorker.enqueue(getApplicationContext(), course);
+        CourseStore.getInstance().markDeleted(course.getId());
+        Toast.makeText(this, "Deleting course...", Toast.LENGTH_SHORT).show();
+        finish();
     }
 
     @Override
@@ -5,6 +5,7 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
+import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.TimePicker;
@@ -18,21 +19,34 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.bumptech.glide.Glide;
 import com.example.myapplication.R;
 import com.example.myapplication.databinding.ActivityCourseFormBinding;
+import com.example.myapplication.firebase.CourseImageUploadWorker;
 import com.example.myapplication.firebase.FirebaseService;
 import com.example.myapplication.model.Course;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
+import com.example.myapplication.model.CourseStore;
+import com.example.myapplication.util.ImageUtil;
+import com.example.myapplication.util.StorageGlideUrl;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CourseFormActivity extends AppCompatActivity {
 
-    public static final String EXTRA_COURSE = "extra_course";
+    private static final String TAG = "CourseFormActivity";
+    public static final String EXTRA_COURSE_ID = "extra_course_id";
     public static final String EXTRA_IS_EDIT_MODE = "extra_is_edit_mode";
+    // Uploaded image variants, largest first, with the longer side capped at each size
+    private static final int[] IMAGE_VARIANT_SIZES = {
+            Course.PHOTO_FULL_SIZE, Course.PHOTO_MEDIUM_SIZE, Course.PHOTO_THUMBNAIL_SIZE};
+    private static final String[] IMAGE_VARIANT_NAMES = {"full", "medium", "thumb"};
+    private static final int IMAGE_QUALITY = 80;
     
     private ActivityCourseFormBinding binding;
     private boolean isEditMode = false;
@@ -42,8 +56,11 @@ public class CourseFormActivity extends AppCompatActivity {
     
     private Uri selectedImageUri = null;
     private boolean imageChanged = false;
-    private FirebaseStorage storage;
-    private StorageReference storageRef;
+    private final ExecutorService imageExecutor = Executors.newSingleThreadExecutor();
+    // Pipelined image save: the course write and image staging run concurrently
+    private int pendingImageSaveSteps;
+    private boolean courseWriteFailed;
+    private StagedImage stagedImage;
     
     // Activity result launcher for image selection
     private final ActivityResultLauncher<Intent> imagePickerLauncher = registerForActivityResult(
@@ -74,10 +91,6 @@ public class CourseFormActivity extends AppCompatActivity {
         binding = ActivityCourseFormBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        // Initialize Firebase Storage
-        storage = FirebaseStorage.getInstance();
-        storageRef = storage.getReference();
-
         // Setup toolbar
         setSupportActionBar(binding.toolbar);
         if (getSupportActionBar() != null) {
@@ -88,97 +101,16 @@ public class CourseFormActivity extends AppCompatActivity {
         isEditMode = getIntent().getBooleanExtra(EXTRA_IS_EDIT_MODE, false);
         
         if (isEditMode) {
-            // Get course from intent
-            course = (Course) getIntent().getSerializableExtra(EXTRA_COURSE);
-            if (course != null) {
-                // Set toolbar title
-                getSupportActionBar().setTitle("Edit Course");
-                
-                // Populate form fields
-                binding.editTextCourseName.setText(course.getName());
-                binding.editTextCourseDescription.setText(course.getDescription());
-                binding.editTextCourseDuration.setText(String.valueOf(course.getDuration()));
-                
-                // Set level spinner selection
-                String level = course.getLevel();
-                if (level != null) {
-                    String[] levels = getResources().getStringArray(com.example.myapplication.R.array.course_levels);
-                    for (int i = 0; i < levels.length; i++) {
-                        if (levels[i].equals(level)) {
-                            binding.spinnerCourseLevel.setSelection(i);
-                            break;
-                        }
-                    }
-                }
-                
-                // Populate new fields
-                // Set course type spinner selection
-                String type = course.getType();
-                if (type != null) {
-                    String[] types = getResources().getStringArray(com.example.myapplication.R.array.course_types);
-                    for (int i = 0; i < types.length; i++) {
-                        if (types[i].equals(type)) {
-                            binding.spinnerCourseType.setSelection(i);
-                            break;
-                        }
-                    }
-                }
-                
-                if (course.getCapacity() > 0) {
-                    binding.editTextCourseCapacity.setText(String.valueOf(course.getCapacity()));
-                }
-                // Set day of week spinner selection
-                String dayOfWeek = course.getDayOfWeek();
-                if (dayOfWeek != null) {
-                    String[] daysOfWeek = getResources().getStringArray(com.example.myapplication.R.array.days_of_week);
-                    for (int i = 0; i < daysOfWeek.length; i++) {
-                        if (daysOfWeek[i].equals(dayOfWeek)) {
-                            binding.spinnerDayOfWeek.setSelection(i);
-                            break;
-                        }
-                    }
-                }
-                // Set the time
-                String timeStr = course.getTime();
-                if (timeStr != null && !timeStr.isEmpty()) {
-                    binding.textViewSelectedTime.setText(timeStr);
-                    
-                    // Try to parse the time to set the selectedTime calendar
-                    try {
-                        String[] timeParts = timeStr.split(":");
-                        if (timeParts.length == 2) {
-                            int hour = Integer.parseInt(timeParts[0]);
-                            int minute = Integer.parseInt(timeParts[1]);
-                            selectedTime.set(Calendar.HOUR_OF_DAY, hour);
-                            selectedTime.set(Calendar.MINUTE, minute);
-                        }
-                    } catch (Exception e) {
-                        // If parsing fails, keep the default time
-                    }
-                }
-                if (course.getPrice() > 0) {
-                    binding.editTextCoursePrice.setText(String.valueOf(course.getPrice()));
-                }
-                binding.editTextCourseEquipment.setText(course.getEquipmentNeeded());
-                
-                // Load course image if available
-                if (course.getPhotoPath() != null && !course.getPhotoPath().isEmpty()) {
-                    binding.imageContainer.setVisibility(View.VISIBLE);
-                    binding.buttonRemoveImage.setVisibility(View.VISIBLE);
-                    
-                    // Load image from Firebase Storage
-                    Glide.with(this)
-                            .load(course.getPhotoPath())
-                            .placeholder(R.drawable.ic_launcher_background)
-                            .error(android.R.drawable.ic_menu_gallery)
-                            .centerCrop()
-                            .into(binding.imageViewCourse);
-                }
+            // Set toolbar title
+            getSupportActionBar().setTitle("Edit Course");
+            long courseId = getIntent().getLongExtra(EXTRA_COURSE_ID, -1);
+            Course cached = CourseStore.getInstance().get(courseId);
+            if (cached != null) {
+                // Edit a copy so the cached course only changes once the save succeeds
+                course = cached.copy();
+                populateForm();
             } else {
-                // Something went wrong, finish activity
-                Toast.makeText(this, "Error: Course not found", Toast.LENGTH_SHORT).show();
-                finish();
-                return;
+                loadCourse(courseId);
             }
         } else {
             // Create new course
@@ -215,41 +147,126 @@ public class CourseFormActivity extends AppCompatActivity {
         imageChanged = true;
     }
     
+    /**
+     * Save the course and stage its new image at the same time. The document is written
+     * straight away with the image marked pending, while the variants are prepared off the
+     * main thread; the background upload then patches only the photo fields.
+     */
     private void uploadImageAndSaveCourse() {
         // Show progress
         binding.progressBar.setVisibility(View.VISIBLE);
         binding.buttonSave.setEnabled(false);
         
-        // Generate a unique filename for the image
-        String imageFileName = "course_" + UUID.randomUUID().toString() + ".jpg";
-        StorageReference imageRef = storageRef.child("course_images/" + imageFileName);
+        String uploadId = UUID.randomUUID().toString();
+        File stagingDir = CourseImageUploadWorker.getStagingDir(this);
+        pendingImageSaveSteps = 2;
+        stagedImage = null;
+        courseWriteFailed = false;
+        assignNewCourseId();
         
-        // Upload the image to Firebase Storage
-        UploadTask uploadTask = imageRef.putFile(selectedImageUri);
+        // Keep an on-device copy so the detail screen can show the image before the upload finishes
+        ImageUtil.saveImageToInternalStorageAsync(this, selectedImageUri,
+                ImageUtil.localCourseImageName(course.getId()), new ImageUtil.ImageCallback<String>() {
+                    @Override
+                    public void onSuccess(String path) {
+                        Log.d(TAG, "Saved local copy of the course image: " + path);
+                    }
+
+                    @Override
+                    public void onFailure(String errorMessage) {
+                        Log.w(TAG, "No local copy of the course image: " + errorMessage);
+                    }
+                });
         
-        // Register observers to listen for when the upload is done or if it fails
-        uploadTask.addOnSuccessListener(taskSnapshot -> {
-            // Get the download URL
-            imageRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                // Set the photo path in the course object
-                course.setPhotoPath(uri.toString());
-                
-                // Continue with saving the course
-                finalizeSaveCourse();
-            }).addOnFailureListener(e -> {
-                // Handle any errors getting download URL
-                binding.progressBar.setVisibility(View.GONE);
-                binding.buttonSave.setEnabled(true);
-                Toast.makeText(CourseFormActivity.this, "Failed to get image URL: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            });
-        }).addOnFailureListener(e -> {
-            // Handle unsuccessful uploads
-            binding.progressBar.setVisibility(View.GONE);
-            binding.buttonSave.setEnabled(true);
-            Toast.makeText(CourseFormActivity.this, "Failed to upload image: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        // Downscale, re-encode and stage every variant off the main thread
+        imageExecutor.execute(() -> {
+            File[] files = new File[IMAGE_VARIANT_NAMES.length];
+            String[] contentHashes = new String[IMAGE_VARIANT_NAMES.length];
+            try {
+                List<ImageUtil.PreparedImage> variants =
+                        ImageUtil.prepareVariantsForUpload(this, selectedImageUri, IMAGE_VARIANT_SIZES, IMAGE_QUALITY);
+                // Written to the course as soon as it is staged, so lists can show a blurred preview
+                String blurHash = ImageUtil.computeBlurHash(variants.get(variants.size() - 1));
+                for (int i = 0; i < variants.size(); i++) {
+                    ImageUtil.PreparedImage variant = variants.get(i);
+                    contentHashes[i] = variant.contentHash();
+                    files[i] = new File(stagingDir, uploadId + "_" + IMAGE_VARIANT_NAMES[i] + variant.extension);
+                    try (FileOutputStream out = new FileOutputStream(files[i])) {
+                        out.write(variant.data);
+                    }
+                }
+                StagedImage staged = new StagedImage(uploadId, files, contentHashes, variants.get(0).mimeType, blurHash);
+                runOnUiThread(() -> {
+                    stagedImage = staged;
+                    onImageSaveStepDone();
+                });
+            } catch (IOException e) {
+                deleteFiles(files);
+                runOnUiThread(() -> {
+                    Toast.makeText(CourseFormActivity.this, "Failed to prepare image: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    onImageSaveStepDone();
+                });
+            }
+        });
+        
+        // Meanwhile write the course fields, with the image marked pending. The old image is
+        // cleared, so the course never shows it again under the pending marker, even if the
+        // upload fails
+        course.setImagePending(true);
+        course.setPhotoPath("");
+        course.setMediumUrl("");
+        course.setThumbnailUrl("");
+        course.setPhotoBlurHash("");
+        writeCourse(new FirebaseService.OnSyncListener() {
+            @Override
+            public void onSyncComplete(String message) {
+                onImageSaveStepDone();
+            }
+
+            @Override
+            public void onSyncFailed(String errorMessage) {
+                courseWriteFailed = true;
+                onImageSaveStepDone();
+            }
         });
     }
     
+    // Called on the main thread when the course write or the image staging finishes
+    private void onImageSaveStepDone() {
+        if (--pendingImageSaveSteps > 0) {
+            return;
+        }
+        if (courseWriteFailed) {
+            if (stagedImage != null) {
+                deleteFiles(stagedImage.files);
+            }
+            course.setImagePending(false);
+            showSaveFailed();
+        } else if (stagedImage != null) {
+            if (stagedImage.blurHash != null) {
+                // The course document is written by now; add the preview while the upload is queued
+                course.setPhotoBlurHash(stagedImage.blurHash);
+                FirebaseService.getInstance().updateCoursePreview(course.getId(), stagedImage.blurHash);
+            }
+            CourseImageUploadWorker.enqueue(getApplicationContext(), course.getId(), stagedImage.uploadId,
+                    stagedImage.files, IMAGE_VARIANT_NAMES, stagedImage.contentHashes, stagedImage.mimeType,
+                    stagedImage.blurHash);
+            finishWithSavedCourse();
+        } else {
+            // The image could not be prepared; save the course without the pending marker
+            course.setImagePending(false);
+            finalizeSaveCourse();
+        }
+    }
+    
+    private static void deleteFiles(File[] files) {
+        for (File file : files) {
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+    
     private void saveCourse() {
         // Validate form
         String name = binding.editTextCourseName.getText().toString().trim();
@@ -352,7 +369,12 @@ public class CourseFormActivity extends AppCompatActivity {
                 uploadImageAndSaveCourse();
             } else {
                 // Image was removed
+                ImageUtil.deleteLocalCourseImage(this, course.getId());
                 course.setPhotoPath("");
+                course.setMediumUrl("");
+                course.setPhotoBlurHash("");
+                course.setImagePending(false);
+                course.setThumbnailUrl("");
                 finalizeSaveCourse();
             }
         } else {
@@ -361,39 +383,188 @@ public class CourseFormActivity extends AppCompatActivity {
         }
     }
     
+    /**
+     * Save the course to Firestore and return it to the calling activity
+     */
     private void finalizeSaveCourse() {
-        // Save to database
-        long result;
-        if (isEditMode) {
-            result = 1; // TODO: Replace with your own update logic
-            if (result > 0) {
-                Toast.makeText(this, "Course updated successfully", Toast.LENGTH_SHORT).show();
-                // Return updated course to calling activity
-                Intent resultIntent = new Intent();
-                resultIntent.putExtra(EXTRA_COURSE, course);
-                setResult(RESULT_OK, resultIntent);
-                finish();
-            } else {
-                Toast.makeText(this, "Failed to update course", Toast.LENGTH_SHORT).show();
+        binding.progressBar.setVisibility(View.VISIBLE);
+        binding.buttonSave.setEnabled(false);
+        writeCourse(new FirebaseService.OnSyncListener() {
+            @Override
+            public void onSyncComplete(String message) {
+                finishWithSavedCourse();
             }
-        } else {
-            result = 1; // TODO: Replace with your own add logic
-            if (result != -1) {
-                course.setId(result);
-                Toast.makeText(this, "Course added successfully", Toast.LENGTH_SHORT).show();
-                // Return new course to calling activity
-                Intent resultIntent = new Intent();
-                resultIntent.putExtra(EXTRA_COURSE, course);
-                setResult(RESULT_OK, resultIntent);
-                finish();
-            } else {
-                Toast.makeText(this, "Failed to add course", Toast.LENGTH_SHORT).show();
+
+            @Override
+            public void onSyncFailed(String errorMessage) {
+                showSaveFailed();
             }
+        });
+    }
+    
+    private void writeCourse(FirebaseService.OnSyncListener listener) {
+        assignNewCourseId();
+        FirebaseService.getInstance().saveCourse(course, listener);
+    }
+    
+    private void assignNewCourseId() {
+        if (!isEditMode && course.getId() == 0) {
+            course.setId(System.currentTimeMillis());
+        }
+    }
+    
+    private void finishWithSavedCourse() {
+        if (isDestroyed()) {
+            return;
+        }
+        Toast.makeText(this,
+                isEditMode ? "Course updated successfully" : "Course added successfully",
+                Toast.LENGTH_SHORT).show();
+        // Publish the saved course and return its ID to the calling activity
+        CourseStore.getInstance().put(course);
+        Intent resultIntent = new Intent();
+        resultIntent.putExtra(EXTRA_COURSE_ID, course.getId());
+        setResult(RESULT_OK, resultIntent);
+        finish();
+    }
+    
+    private void showSaveFailed() {
+        if (isDestroyed()) {
+            return;
         }
-        
         // Hide progress
         binding.progressBar.setVisibility(View.GONE);
         binding.buttonSave.setEnabled(true);
+        Toast.makeText(this,
+                isEditMode ? "Failed to update course" : "Failed to add course",
+                Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Fill the form with the course being edited
+     */
+    private void populateForm() {
+        // Populate form fields
+        binding.editTextCourseName.setText(course.getName());
+        binding.editTextCourseDescription.setText(course.getDescription());
+        binding.editTextCourseDuration.setText(String.valueOf(course.getDuration()));
+        
+        // Set level spinner selection
+        String level = course.getLevel();
+        if (level != null) {
+            String[] levels = getResources().getStringArray(com.example.myapplication.R.array.course_levels);
+            for (int i = 0; i < levels.length; i++) {
+                if (levels[i].equals(level)) {
+                    binding.spinnerCourseLevel.setSelection(i);
+                    break;
+                }
+            }
+        }
+        
+        // Populate new fields
+        // Set course type spinner selection
+        String type = course.getType();
+        if (type != null) {
+            String[] types = getResources().getStringArray(com.example.myapplication.R.array.course_types);
+            for (int i = 0; i < types.length; i++) {
+                if (types[i].equals(type)) {
+                    binding.spinnerCourseType.setSelection(i);
+                    break;
+                }
+            }
+        }
+        
+        if (course.getCapacity() > 0) {
+            binding.editTextCourseCapacity.setText(String.valueOf(course.getCapacity()));
+        }
+        // Set day of week spinner selection
+        String dayOfWeek = course.getDayOfWeek();
+        if (dayOfWeek != null) {
+            String[] daysOfWeek = getResources().getStringArray(com.example.myapplication.R.array.days_of_week);
+            for (int i = 0; i < daysOfWeek.length; i++) {
+                if (daysOfWeek[i].equals(dayOfWeek)) {
+                    binding.spinnerDayOfWeek.setSelection(i);
+                    break;
+                }
+            }
+        }
+        // Set the time
+        String timeStr = course.getTime();
+        if (timeStr != null && !timeStr.isEmpty()) {
+            binding.textViewSelectedTime.setText(timeStr);
+            
+            // Try to parse the time to set the selectedTime calendar
+            try {
+                String[] timeParts = timeStr.split(":");
+                if (timeParts.length == 2) {
+                    int hour = Integer.parseInt(timeParts[0]);
+                    int minute = Integer.parseInt(timeParts[1]);
+                    selectedTime.set(Calendar.HOUR_OF_DAY, hour);
+                    selectedTime.set(Calendar.MINUTE, minute);
+                }
+            } catch (Exception e) {
+                // If parsing fails, keep the default time
+            }
+        }
+        if (course.getPrice() > 0) {
+            binding.editTextCoursePrice.setText(String.valueOf(course.getPrice()));
+        }
+        binding.editTextCourseEquipment.setText(course.getEquipmentNeeded());
+        
+        // Load course image if available
+        if (course.getPhotoPath() != null && !course.getPhotoPath().isEmpty()) {
+            binding.imageContainer.setVisibility(View.VISIBLE);
+            binding.buttonRemoveImage.setVisibility(View.VISIBLE);
+            
+            // Load image from Firebase Storage
+            Glide.with(this)
+                    .load(new StorageGlideUrl(course.getPhotoUrlForSize(Course.PHOTO_MEDIUM_SIZE)))
+                    .placeholder(R.drawable.ic_launcher_background)
+                    .error(android.R.drawable.ic_menu_gallery)
+                    .centerCrop()
+                    .into(binding.imageViewCourse);
+        }
+    }
+
+    /**
+     * Fetch the course from Firebase when it is not cached, e.g. after the process was restarted
+     */
+    private void loadCourse(long courseId) {
+        binding.progressBar.setVisibility(View.VISIBLE);
+        binding.buttonSave.setEnabled(false);
+        FirebaseService.getInstance().getCourse(courseId, new FirebaseService.OnCourseLoadedListener() {
+            @Override
+            public void onCourseLoaded(Course loaded) {
+                runOnUiThread(() -> {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    binding.progressBar.setVisibility(View.GONE);
+                    if (loaded == null || CourseStore.getInstance().isDeleted(courseId)) {
+                        // Something went wrong, finish activity
+                        Toast.makeText(CourseFormActivity.this, "Error: Course not found", Toast.LENGTH_SHORT).show();
+                        finish();
+                        return;
+                    }
+                    CourseStore.getInstance().put(loaded);
+                    course = loaded.copy();
+                    populateForm();
+                    binding.buttonSave.setEnabled(true);
+                });
+            }
+
+            @Override
+            public void onSyncFailed(String errorMessage) {
+                runOnUiThread(() -> {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    binding.progressBar.setVisibility(View.GONE);
+                    Toast.makeText(CourseFormActivity.this, "Error loading course: " + errorMessage, Toast.LENGTH_SHORT).show();
+                    finish();
+                });
+            }
+        });
     }
 
     private void showTimePickerDialog() {
@@ -414,6 +585,12 @@ public class CourseFormActivity extends AppCompatActivity {
         timePickerDialog.show();
     }
     
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        imageExecutor.shutdown();
+    }
+
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
@@ -422,4 +599,21 @@ public class CourseFormActivity extends AppCompatActivity {
         }
         return super.onOptionsItemSelected(item);
     }
+
+    // Image variants written to the staging directory and waiting to be uploaded
+    private static class StagedImage {
+        final String uploadId;
+        final File[] files;
+        final String[] contentHashes;
+        final String mimeType;
+        final String blurHash;
+
+        StagedImage(String uploadId, File[] files, String[] contentHashes, String mimeType, String blurHash) {
+            this.uploadId = uploadId;
+            this.files = files;
+            this.contentHashes = contentHashes;
+            this.mimeType = mimeType;
+            this.blurHash = blurHash;
+        }
+    }
 }
@@ -2,9 +2,15 @@ package com.example.myapplication.ui;
 
 import android.app.AlertDialog;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.Spinner;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -12,37 +18,70 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 
 import com.example.myapplication.R;
 import com.example.myapplication.databinding.ActivityCourseListBinding;
+import com.example.myapplication.databinding.DialogCourseFilterBinding;
+import com.example.myapplication.firebase.CourseDeleteWorker;
 import com.example.myapplication.firebase.FirebaseService;
+import com.example.myapplication.firebase.ScheduleExportWorker;
+import com.example.myapplication.firebase.ScheduleImportWorker;
 import com.example.myapplication.model.Course;
+import com.example.myapplication.model.CourseStore;
 import com.example.myapplication.ui.adapter.CourseAdapter;
+import com.example.myapplication.util.CourseSearchIndex;
+import com.example.myapplication.util.InstanceCatalog;
+import com.example.myapplication.util.InstanceTimeline;
+import com.example.myapplication.util.RowReader;
 import com.example.myapplication.util.SampleDataUtil;
+import com.example.myapplication.util.ScheduleRows;
+import com.example.myapplication.util.ScheduleTime;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
 
 public class CourseListActivity extends AppCompatActivity implements CourseAdapter.OnCourseClickListener {
 
     private static final int REQUEST_CODE_ADD_COURSE = 100;
     private static final int REQUEST_CODE_EDIT_COURSE = 101;
+    private static final String FILTER_ANY = "Any";
+    private static final int THUMBNAIL_PRELOAD_ROWS = 10;
+    private static final String STATE_TRANSFER_KIND = "transfer_kind";
+    private static final String[] IMPORT_MIME_TYPES = {
+            "text/csv", "text/comma-separated-values", "application/json", "text/plain"};
 
     private ActivityCourseListBinding binding;
     private CourseAdapter courseAdapter;
     private List<Course> courseList;
     private FirebaseService firebaseService;
+    private final CourseSearchIndex searchIndex = new CourseSearchIndex();
+    private final CourseSearchIndex.Query courseQuery = new CourseSearchIndex.Query();
+    // Courses or instances, remembered while the document picker is open
+    private String transferKind;
+
+    private final ActivityResultLauncher<String[]> importLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::startImport);
+
+    private final ActivityResultLauncher<String> exportLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("text/csv"), this::startExport);
     
     private final ActivityResultLauncher<Intent> addCourseLauncher = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 if (result.getResultCode() == RESULT_OK && result.getData() != null) {
-                    Course newCourse = (Course) result.getData().getSerializableExtra(CourseFormActivity.EXTRA_COURSE);
+                    long courseId = result.getData().getLongExtra(CourseFormActivity.EXTRA_COURSE_ID, -1);
+                    Course newCourse = CourseStore.getInstance().get(courseId);
                     if (newCourse != null) {
                         // Add the new course to the list and refresh
                         courseList.add(newCourse);
-                        courseAdapter.notifyItemInserted(courseList.size() - 1);
-                        updateEmptyView();
+                        searchIndex.upsert(newCourse);
+                        applyCourseFilters();
                     }
                 }
             });
@@ -51,13 +90,15 @@ public class CourseListActivity extends AppCompatActivity implements CourseAdapt
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 if (result.getResultCode() == RESULT_OK && result.getData() != null) {
-                    Course updatedCourse = (Course) result.getData().getSerializableExtra(CourseFormActivity.EXTRA_COURSE);
+                    long courseId = result.getData().getLongExtra(CourseFormActivity.EXTRA_COURSE_ID, -1);
+                    Course updatedCourse = CourseStore.getInstance().get(courseId);
                     if (updatedCourse != null) {
                         // Find and update the course in the list
                         for (int i = 0; i < courseList.size(); i++) {
                             if (courseList.get(i).getId() == updatedCourse.getId()) {
                                 courseList.set(i, updatedCourse);
-                                courseAdapter.notifyItemChanged(i);
+                                searchIndex.upsert(updatedCourse);
+                                applyCourseFilters();
                                 break;
                             }
                         }
@@ -70,6 +111,9 @@ public class CourseListActivity extends AppCompatActivity implements CourseAdapt
         super.onCreate(savedInstanceState);
         binding = ActivityCourseListBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
+        if (savedInstanceState != null) {
+            transferKind = savedInstanceState.getString(STATE_TRANSFER_KIND);
+        }
 
         // Setup toolbar
         setSupportActionBar(binding.toolbar);
@@ -87,6 +131,24 @@ public class CourseListActivity extends AppCompatActivity implements CourseAdapt
         courseAdapter.setOnCourseClickListener(this);
         binding.recyclerViewCourses.setLayoutManager(new LinearLayoutManager(this));
         binding.recyclerViewCourses.setAdapter(courseAdapter);
+        // Load thumbnails a few rows ahead so flings show images immediately
+        binding.recyclerViewCourses.addOnScrollListener(courseAdapter.createPreloader(THUMBNAIL_PRELOAD_ROWS));
+
+        // Setup search and filters; the index answers each query without rescanning courses
+        binding.editTextSearchCourse.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                courseQuery.text = s.toString();
+                applyCourseFilters();
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {}
+        });
+        binding.buttonFilterCourses.setOnClickListener(v -> showFilterDialog());
 
         // Setup SwipeRefreshLayout
         binding.swipeRefreshLayout.setOnRefreshListener(this::loadCourses);
@@ -104,6 +166,12 @@ public class CourseListActivity extends AppCompatActivity implements CourseAdapt
         loadCourses();
     }
     
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_TRANSFER_KIND, transferKind);
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -124,7 +192,13 @@ public class CourseListActivity extends AppCompatActivity implements CourseAdapt
                         // Update course list
                         courseList.clear();
                         if (courses != null && !courses.isEmpty()) {
-                            courseList.addAll(courses);
+                            for (Course course : courses) {
+                                if (!CourseStore.getInstance().isDeleted(course.getId())) {
+                                    courseList.add(course);
+                                }
+                            }
+                            // Other screens look courses up by ID instead of receiving them in intents
+                            CourseStore.getInstance().replaceAll(courses);
                             Toast.makeText(CourseListActivity.this, 
                                 "Loaded " + courses.size() + " courses", Toast.LENGTH_SHORT).show();
                         } else {
@@ -133,8 +207,9 @@ public class CourseListActivity extends AppCompatActivity implements CourseAdapt
                         }
                         
                         // Update UI
-                        courseAdapter.notifyDataSetChanged();
-                        updateEmptyView();
+                        searchIndex.rebuild(courseList);
+                        applyCourseFilters();
+                        loadWeekSummary();
                     } finally {
                         binding.swipeRefreshLayout.setRefreshing(false);
                     }
@@ -155,14 +230,129 @@ public class CourseListActivity extends AppCompatActivity implements CourseAdapt
         });
     }
     
-    private void updateEmptyView() {
-        if (courseList.isEmpty()) {
+    /**
+     * Show the number of classes and places in the coming week under the title
+     */
+    private void loadWeekSummary() {
+        InstanceCatalog.Query week = new InstanceCatalog.Query();
+        week.fromDay = InstanceTimeline.today();
+        week.toDay = week.fromDay + 6;
+        // Only the week is read, not the whole instances collection
+        firebaseService.loadInstanceCatalog(ScheduleTime.formatEpochDay(week.fromDay),
+                ScheduleTime.formatEpochDay(week.toDay), new FirebaseService.OnInstanceCatalogListener() {
+            @Override
+            public void onCatalogLoaded(InstanceCatalog catalog) {
+                int classes = catalog.count(week);
+                long places = catalog.sumCapacity(week);
+                runOnUiThread(() -> {
+                    if (getSupportActionBar() != null) {
+                        getSupportActionBar().setSubtitle(classes + " classes, " + places + " places in the next 7 days");
+                    }
+                });
+            }
+
+            @Override
+            public void onSyncFailed(String errorMessage) {
+                // The summary is optional; the course list is still usable without it
+            }
+        });
+    }
+    
+    /**
+     * Show the courses matching the current search text and filters
+     */
+    private void applyCourseFilters() {
+        List<Course> displayed = courseQuery.isEmpty() ? courseList : searchIndex.search(courseQuery);
+        courseAdapter.submitList(displayed);
+        if (displayed.isEmpty()) {
+            binding.textViewEmpty.setText(courseList.isEmpty() ? "No courses available" : "No courses match your search");
             binding.textViewEmpty.setVisibility(View.VISIBLE);
         } else {
             binding.textViewEmpty.setVisibility(View.GONE);
         }
     }
 
+    private void showFilterDialog() {
+        DialogCourseFilterBinding dialogBinding = DialogCourseFilterBinding.inflate(getLayoutInflater());
+        setupFacetSpinner(dialogBinding.spinnerFilterLevel, R.array.course_levels, courseQuery.level);
+        setupFacetSpinner(dialogBinding.spinnerFilterType, R.array.course_types, courseQuery.type);
+        setupFacetSpinner(dialogBinding.spinnerFilterDay, R.array.days_of_week, courseQuery.dayOfWeek);
+        if (courseQuery.minPrice != null) {
+            dialogBinding.editTextMinPrice.setText(String.valueOf(courseQuery.minPrice));
+        }
+        if (courseQuery.maxPrice != null) {
+            dialogBinding.editTextMaxPrice.setText(String.valueOf(courseQuery.maxPrice));
+        }
+        if (courseQuery.fromMinute != null) {
+            dialogBinding.editTextFromTime.setText(formatMinuteOfDay(courseQuery.fromMinute));
+        }
+        if (courseQuery.toMinute != null) {
+            dialogBinding.editTextToTime.setText(formatMinuteOfDay(courseQuery.toMinute));
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Filter Courses")
+                .setView(dialogBinding.getRoot())
+                .setPositiveButton("Apply", (dialog, which) -> {
+                    courseQuery.level = selectedFacet(dialogBinding.spinnerFilterLevel);
+                    courseQuery.type = selectedFacet(dialogBinding.spinnerFilterType);
+                    courseQuery.dayOfWeek = selectedFacet(dialogBinding.spinnerFilterDay);
+                    courseQuery.minPrice = parsePrice(dialogBinding.editTextMinPrice.getText().toString());
+                    courseQuery.maxPrice = parsePrice(dialogBinding.editTextMaxPrice.getText().toString());
+                    courseQuery.fromMinute = parseTime(dialogBinding.editTextFromTime.getText().toString());
+                    courseQuery.toMinute = parseTime(dialogBinding.editTextToTime.getText().toString());
+                    applyCourseFilters();
+                })
+                .setNeutralButton("Clear", (dialog, which) -> {
+                    courseQuery.level = null;
+                    courseQuery.type = null;
+                    courseQuery.dayOfWeek = null;
+                    courseQuery.minPrice = null;
+                    courseQuery.maxPrice = null;
+                    courseQuery.fromMinute = null;
+                    courseQuery.toMinute = null;
+                    applyCourseFilters();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    // Spinner with an "Any" entry first, followed by the values of the given array
+    private void setupFacetSpinner(Spinner spinner, int arrayRes, String selected) {
+        List<String> options = new ArrayList<>();
+        options.add(FILTER_ANY);
+        options.addAll(Arrays.asList(getResources().getStringArray(arrayRes)));
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, options);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinner.setAdapter(adapter);
+        if (selected != null) {
+            int index = options.indexOf(selected);
+            spinner.setSelection(Math.max(index, 0));
+        }
+    }
+
+    private String selectedFacet(Spinner spinner) {
+        String value = spinner.getSelectedItem().toString();
+        return FILTER_ANY.equals(value) ? null : value;
+    }
+
+    private Float parsePrice(String text) {
+        try {
+            return text.trim().isEmpty() ? null : Float.parseFloat(text.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Integer parseTime(String text) {
+        int minute = CourseSearchIndex.parseMinuteOfDay(text);
+        return minute < 0 ? null : minute;
+    }
+
+    private String formatMinuteOfDay(int minute) {
+        return String.format(Locale.US, "%02d:%02d", minute / 60, minute % 60);
+    }
+
     @Override
     public void onCourseClick(Course course) {
         // Show options dialog
@@ -195,7 +385,7 @@ public class CourseListActivity extends AppCompatActivity implements CourseAdapt
     private void editCourse(Course course) {
         Intent intent = new Intent(this, CourseFormActivity.class);
         intent.putExtra(CourseFormActivity.EXTRA_IS_EDIT_MODE, true);
-        intent.putExtra(CourseFormActivity.EXTRA_COURSE, course);
+        intent.putExtra(CourseFormActivity.EXTRA_COURSE_ID, course.getId());
         editCourseLauncher.launch(intent);
     }
     
@@ -210,51 +400,154 @@ public class CourseListActivity extends AppCompatActivity implements CourseAdapt
                 .show();
     }
     
+    /**
+     * Delete the course, its classes and its images in the background. The course leaves
+     * the list right away; progress is shown under the title.
+     */
     private void deleteCourse(Course course) {
         if (course == null) {
             Toast.makeText(this, "Error: Course not loaded", Toast.LENGTH_SHORT).show();
             return;
         }
-        binding.swipeRefreshLayout.setRefreshing(true);
-        firebaseService.deleteCourseFromFirebase(course.getId(), new FirebaseService.OnSyncListener() {
-            @Override
-            public void onSyncComplete(String message) {
-                runOnUiThread(() -> {
-                    // Remove from UI list
-                    int position = -1;
-                    for (int i = 0; i < courseList.size(); i++) {
-                        if (courseList.get(i).getId() == course.getId()) {
-                            position = i;
-                            break;
-                        }
-                    }
-                    if (position != -1) {
-                        courseList.remove(position);
-                        courseAdapter.notifyItemRemoved(position);
-                        updateEmptyView();
-                    }
-                    binding.swipeRefreshLayout.setRefreshing(false);
-                    Toast.makeText(CourseListActivity.this, "Course deleted successfully", Toast.LENGTH_SHORT).show();
-                });
+        for (int i = 0; i < courseList.size(); i++) {
+            if (courseList.get(i).getId() == course.getId()) {
+                courseList.remove(i);
+                break;
             }
+        }
+        CourseStore.getInstance().markDeleted(course.getId());
+        searchIndex.remove(course.getId());
+        applyCourseFilters();
 
-            @Override
-            public void onSyncFailed(String errorMessage) {
-                runOnUiThread(() -> {
-                    binding.swipeRefreshLayout.setRefreshing(false);
-                    Toast.makeText(CourseListActivity.this, "Error deleting course: " + errorMessage, Toast.LENGTH_SHORT).show();
-                });
+        String label = "Deleting " + course.getName();
+        UUID workId = CourseDeleteWorker.enqueue(getApplicationContext(), course);
+        WorkManager.getInstance(this).getWorkInfoByIdLiveData(workId).observe(this, info -> {
+            if (info == null || getSupportActionBar() == null) {
+                return;
+            }
+            if (info.getState() == WorkInfo.State.RUNNING) {
+                long deleted = info.getProgress().getLong(CourseDeleteWorker.KEY_INSTANCES_DELETED, 0);
+                getSupportActionBar().setSubtitle(label + ": " + deleted + " classes removed");
+            } else if (info.getState() == WorkInfo.State.SUCCEEDED) {
+                getSupportActionBar().setSubtitle(null);
+                Toast.makeText(this, "Course deleted successfully", Toast.LENGTH_SHORT).show();
+            } else if (info.getState() == WorkInfo.State.FAILED) {
+                getSupportActionBar().setSubtitle(null);
+                String failure = info.getOutputData().getString(CourseDeleteWorker.KEY_FAILURE);
+                Toast.makeText(this, "Error deleting course: " + failure, Toast.LENGTH_SHORT).show();
+                // Show whatever is left of the course
+                CourseStore.getInstance().clearDeleted(course.getId());
+                loadCourses();
             }
         });
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_course_list, menu);
+        return true;
+    }
+
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
-        if (item.getItemId() == android.R.id.home) {
+        int id = item.getItemId();
+        if (id == android.R.id.home) {
             finish();
             return true;
+        } else if (id == R.id.action_import_courses || id == R.id.action_import_instances) {
+            transferKind = id == R.id.action_import_courses ? ScheduleRows.KIND_COURSES : ScheduleRows.KIND_INSTANCES;
+            importLauncher.launch(IMPORT_MIME_TYPES);
+            return true;
+        } else if (id == R.id.action_export_courses || id == R.id.action_export_instances) {
+            transferKind = id == R.id.action_export_courses ? ScheduleRows.KIND_COURSES : ScheduleRows.KIND_INSTANCES;
+            exportLauncher.launch(transferKind + ".csv");
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
+
+    /**
+     * Import the picked document in the background; the file is streamed, so any size works
+     * @param uri Picked document, or null if the picker was cancelled
+     */
+    private void startImport(Uri uri) {
+        if (uri == null || transferKind == null) {
+            return;
+        }
+        try {
+            // The import may outlive this activity or be retried after a restart
+            getContentResolver().takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            // Not persistable; the grant lasts while the process is alive
+        }
+        String type = getContentResolver().getType(uri);
+        boolean json = (type != null && type.contains("json")) || uri.toString().toLowerCase(Locale.ROOT).endsWith(".json");
+        UUID workId = ScheduleImportWorker.enqueue(getApplicationContext(), uri, transferKind,
+                json ? RowReader.FORMAT_JSON : RowReader.FORMAT_CSV);
+        observeTransfer(workId, "Importing " + transferKind);
+    }
+
+    /**
+     * Export to the created document in the background
+     * @param uri Created document, or null if the picker was cancelled
+     */
+    private void startExport(Uri uri) {
+        if (uri == null || transferKind == null) {
+            return;
+        }
+        UUID workId = ScheduleExportWorker.enqueue(getApplicationContext(), uri, transferKind);
+        observeTransfer(workId, "Exporting " + transferKind);
+    }
+
+    // Show progress under the title while the work runs, then its outcome
+    private void observeTransfer(UUID workId, String label) {
+        Toast.makeText(this, label + "...", Toast.LENGTH_SHORT).show();
+        WorkManager.getInstance(this).getWorkInfoByIdLiveData(workId).observe(this, info -> {
+            if (info == null || getSupportActionBar() == null) {
+                return;
+            }
+            if (info.getState() == WorkInfo.State.RUNNING) {
+                Data progress = info.getProgress();
+                long rows = Math.max(progress.getLong(ScheduleImportWorker.KEY_ROWS_READ, 0),
+                        progress.getLong(ScheduleExportWorker.KEY_ROWS_WRITTEN, 0));
+                getSupportActionBar().setSubtitle(label + ": " + rows + " rows");
+            } else if (info.getState().isFinished()) {
+                getSupportActionBar().setSubtitle(null);
+                showTransferResult(info);
+            }
+        });
+    }
+
+    private void showTransferResult(WorkInfo info) {
+        if (info.getState() == WorkInfo.State.CANCELLED) {
+            return;
+        }
+        Data output = info.getOutputData();
+        String failure = output.getString(ScheduleImportWorker.KEY_FAILURE);
+        if (output.hasKeyWithValueOfType(ScheduleImportWorker.KEY_ROWS_IMPORTED, Long.class)) {
+            long imported = output.getLong(ScheduleImportWorker.KEY_ROWS_IMPORTED, 0);
+            long rejected = output.getLong(ScheduleImportWorker.KEY_ROWS_REJECTED, 0);
+            String errors = output.getString(ScheduleImportWorker.KEY_ERRORS);
+            StringBuilder message = new StringBuilder()
+                    .append("Imported ").append(imported).append(" rows, rejected ").append(rejected).append('.');
+            if (failure != null) {
+                message.append("\n\n").append(failure);
+            }
+            if (errors != null && !errors.isEmpty()) {
+                message.append("\n\n").append(errors);
+            }
+            new AlertDialog.Builder(this)
+                    .setTitle(info.getState() == WorkInfo.State.SUCCEEDED ? "Import finished" : "Import failed")
+                    .setMessage(message)
+                    .setPositiveButton("OK", null)
+                    .show();
+            loadCourses();
+        } else if (info.getState() == WorkInfo.State.SUCCEEDED) {
+            Toast.makeText(this, "Exported " + output.getLong(ScheduleExportWorker.KEY_ROWS_WRITTEN, 0) + " rows",
+                    Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, "Export failed" + (failure != null ? ": " + failure : ""), Toast.LENGTH_LONG).show();
+        }
+    }
 }
 
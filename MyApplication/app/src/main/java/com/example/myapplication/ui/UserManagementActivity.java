@@ -16,11 +16,17 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.myapplication.R;
 import com.example.myapplication.databinding.ActivityUserManagementBinding;
+import com.example.myapplication.firebase.OptimisticUserMutations;
+import com.example.myapplication.firebase.UserSyncStore;
 import com.example.myapplication.model.User;
 import com.example.myapplication.ui.adapter.UserAdapter;
+import com.google.firebase.firestore.ListenerRegistration;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class UserManagementActivity extends AppCompatActivity {
     private static final String TAG = "UserManagementActivity";
@@ -28,6 +34,14 @@ public class UserManagementActivity extends AppCompatActivity {
     private ActivityUserManagementBinding binding;
     private UserAdapter userAdapter;
     private List<User> userList;
+    private ListenerRegistration usersRegistration;
+    private final OptimisticUserMutations mutations =
+            new OptimisticUserMutations(com.example.myapplication.firebase.FirebaseAuthService.getInstance());
+    private boolean awaitingInitialSnapshot;
+    private boolean receivedSnapshot;
+    // Reads the synced user mirror off the main thread
+    private final ExecutorService mirrorExecutor = Executors.newSingleThreadExecutor();
+    private UserSearchPipeline searchPipeline;
     private long currentUserId;
     private String currentUserRole;
     // Admin is the only role that can be added
@@ -61,16 +75,23 @@ public class UserManagementActivity extends AppCompatActivity {
         EditText editTextSearchUser = findViewById(R.id.editTextSearchUser);
         ImageButton buttonSearchUser = findViewById(R.id.buttonSearchUser);
 
-        // Text change listener for live search
+        // Text change listener for live search; the pipeline debounces keystrokes
+        searchPipeline = new UserSearchPipeline(userAdapter, users -> {
+            List<User> visibleUsers = new ArrayList<>();
+            for (User user : users) {
+                if (isVisibleToCurrentUser(user)) {
+                    visibleUsers.add(user);
+                }
+            }
+            userAdapter.setServerResults(visibleUsers);
+        });
         editTextSearchUser.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                if (userAdapter != null) {
-                    userAdapter.getFilter().filter(s);
-                }
+                searchPipeline.onQueryChanged(s);
             }
 
             @Override
@@ -78,14 +99,31 @@ public class UserManagementActivity extends AppCompatActivity {
         });
 
         // Optional: search button click triggers filter (useful for keyboard search action)
-        buttonSearchUser.setOnClickListener(v -> {
-            if (userAdapter != null) {
-                userAdapter.getFilter().filter(editTextSearchUser.getText());
-            }
-        });
+        buttonSearchUser.setOnClickListener(v -> searchPipeline.searchNow(editTextSearchUser.getText()));
+
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Users are kept up to date by a snapshot listener while visible
+        startListeningToUsers();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (usersRegistration != null) {
+            usersRegistration.remove();
+            usersRegistration = null;
+        }
+    }
 
-        // Load users
-        loadUsers();
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchPipeline.cancel();
+        mirrorExecutor.shutdown();
     }
 
     // Role spinner removed as we only allow adding admin users
@@ -162,8 +200,6 @@ public class UserManagementActivity extends AppCompatActivity {
                 binding.editTextEmail.setText("");
                 binding.editTextPassword.setText("");
                 binding.editTextName.setText("");
-                // Reload users
-                loadUsers();
             }
 
             @Override
@@ -175,28 +211,42 @@ public class UserManagementActivity extends AppCompatActivity {
         });
     }
 
-    private void loadUsers() {
+    /**
+     * Start listening for user changes; the first snapshot populates the list. Until it
+     * arrives, the users from the last background sync are shown.
+     */
+    private void startListeningToUsers() {
         showProgressOverlay();
-        com.example.myapplication.firebase.FirebaseAuthService.getInstance().getAllUsers(new com.example.myapplication.firebase.FirebaseAuthService.UsersCallback() {
+        awaitingInitialSnapshot = true;
+        if (!receivedSnapshot) {
+            showSyncedUsers();
+        }
+        UserSyncStore syncStore = UserSyncStore.getInstance(this);
+        usersRegistration = com.example.myapplication.firebase.FirebaseAuthService.getInstance().listenToUsers(new com.example.myapplication.firebase.FirebaseAuthService.UserChangeListener() {
             @Override
-            public void onSuccess(List<User> allUsers) {
-                Log.d(TAG, "Users fetched from Firebase: " + allUsers.size());
-                List<User> filteredUsers = new ArrayList<>();
-                if (User.ROLE_SUPER_ADMIN.equals(currentUserRole) || User.ROLE_ADMIN.equals(currentUserRole)) {
-                    for (User user : allUsers) {
-                        // Don't show the default super admin in the list if currentUserId != 1
-                        if (user.getId() == 1 && currentUserId != 1) {
-                            continue;
-                        }
-                        filteredUsers.add(user);
+            public void onUsersChanged(List<User> changedUsers, List<String> removedUids) {
+                Log.d(TAG, "User changes received: " + changedUsers.size() + " changed, " + removedUids.size() + " removed");
+                for (String uid : removedUids) {
+                    syncStore.removeUser(uid);
+                }
+                mutations.onRemoteChanges(changedUsers);
+                List<User> visibleUsers = new ArrayList<>();
+                List<String> hiddenUids = new ArrayList<>(removedUids);
+                for (User user : changedUsers) {
+                    if (isVisibleToCurrentUser(user)) {
+                        visibleUsers.add(user);
+                    } else {
+                        hiddenUids.add(user.getFirebaseUid());
                     }
                 }
-                userList.clear();
-                userList.addAll(filteredUsers);
-                if (userAdapter != null) {
-                    userAdapter.updateUserList(new ArrayList<>(filteredUsers));
+                if (awaitingInitialSnapshot) {
+                    // The first snapshot holds every user, so it replaces whatever was shown before
+                    awaitingInitialSnapshot = false;
+                    receivedSnapshot = true;
+                    searchPipeline.setLocalDataReady(true);
+                    userAdapter.updateUserList(visibleUsers);
                 } else {
-                    userAdapter.notifyDataSetChanged();
+                    userAdapter.applyChanges(visibleUsers, hiddenUids);
                 }
                 hideProgressOverlay();
             }
@@ -204,12 +254,44 @@ public class UserManagementActivity extends AppCompatActivity {
             @Override
             public void onFailure(String errorMessage) {
                 hideProgressOverlay();
-                Log.e(TAG, "Failed to fetch users from Firebase: " + errorMessage);
+                Log.e(TAG, "Failed to listen to users from Firebase: " + errorMessage);
                 Toast.makeText(UserManagementActivity.this, "Failed to load users: " + errorMessage, Toast.LENGTH_SHORT).show();
             }
         });
     }
 
+    /**
+     * Show the on-device user mirror while the first snapshot is loading
+     */
+    private void showSyncedUsers() {
+        UserSyncStore syncStore = UserSyncStore.getInstance(this);
+        mirrorExecutor.execute(() -> {
+            List<User> cachedUsers = syncStore.getCachedUsers();
+            runOnUiThread(() -> {
+                // The snapshot may have won the race; it is always more current than the mirror
+                if (isDestroyed() || !awaitingInitialSnapshot || cachedUsers.isEmpty()) {
+                    return;
+                }
+                List<User> visibleUsers = new ArrayList<>();
+                for (User user : cachedUsers) {
+                    if (isVisibleToCurrentUser(user)) {
+                        visibleUsers.add(user);
+                    }
+                }
+                userAdapter.updateUserList(visibleUsers);
+                hideProgressOverlay();
+            });
+        });
+    }
+
+    private boolean isVisibleToCurrentUser(User user) {
+        if (!User.ROLE_SUPER_ADMIN.equals(currentUserRole) && !User.ROLE_ADMIN.equals(currentUserRole)) {
+            return false;
+        }
+        // Don't show the default super admin in the list if currentUserId != 1
+        return !(user.getId() == 1 && currentUserId != 1);
+    }
+
     private void showBanUserDialog(User user) {
         // Check if current user is trying to ban themselves
         if (user.getId() == currentUserId) {
@@ -248,25 +330,7 @@ public class UserManagementActivity extends AppCompatActivity {
     }
 
     private void banUser(User user) {
-        showProgressOverlay();
-        com.example.myapplication.firebase.FirebaseAuthService.getInstance().updateUserStatus(user.getFirebaseUid(), User.STATUS_BANNED, new com.example.myapplication.firebase.FirebaseAuthService.SimpleCallback() {
-            @Override
-            public void onSuccess() {
-                hideProgressOverlay();
-                String userType = user.isAdmin() ? "Admin" : "User";
-                Toast.makeText(UserManagementActivity.this, userType + " banned successfully", Toast.LENGTH_SHORT).show();
-                if (user.isAdmin()) {
-                    Log.i(TAG, "Admin user banned: " + user.getName() + " (Email: " + user.getEmail() + ") by user ID: " + currentUserId);
-                }
-                loadUsers();
-            }
-
-            @Override
-            public void onFailure(String errorMessage) {
-                hideProgressOverlay();
-                Toast.makeText(UserManagementActivity.this, "Failed to ban user: " + errorMessage, Toast.LENGTH_SHORT).show();
-            }
-        });
+        mutations.updateStatus(user, User.STATUS_BANNED, new StatusMutationListener(user, "banned", "ban"));
     }
 
     private void activateUser(User user) {
@@ -275,25 +339,7 @@ public class UserManagementActivity extends AppCompatActivity {
             Toast.makeText(this, "Admins cannot activate other admins or super admins", Toast.LENGTH_SHORT).show();
             return;
         }
-        showProgressOverlay();
-        com.example.myapplication.firebase.FirebaseAuthService.getInstance().updateUserStatus(user.getFirebaseUid(), User.STATUS_ACTIVE, new com.example.myapplication.firebase.FirebaseAuthService.SimpleCallback() {
-            @Override
-            public void onSuccess() {
-                hideProgressOverlay();
-                String userType = user.isAdmin() ? "Admin" : "User";
-                Toast.makeText(UserManagementActivity.this, userType + " activated successfully", Toast.LENGTH_SHORT).show();
-                if (user.isAdmin()) {
-                    Log.i(TAG, "Admin user activated: " + user.getName() + " (Email: " + user.getEmail() + ") by user ID: " + currentUserId);
-                }
-                loadUsers();
-            }
-
-            @Override
-            public void onFailure(String errorMessage) {
-                hideProgressOverlay();
-                Toast.makeText(UserManagementActivity.this, "Failed to activate user: " + errorMessage, Toast.LENGTH_SHORT).show();
-            }
-        });
+        mutations.updateStatus(user, User.STATUS_ACTIVE, new StatusMutationListener(user, "activated", "activate"));
     }
 
     private void showDeleteUserDialog(User user) {
@@ -341,8 +387,6 @@ public class UserManagementActivity extends AppCompatActivity {
                 .setMessage(message)
                 .setIcon(android.R.drawable.ic_dialog_alert)
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    // Show progress and overlay before deletion
-                    showProgressOverlay();
                     deleteUser(user);
                 })
                 .setNegativeButton("Cancel", null)
@@ -350,12 +394,10 @@ public class UserManagementActivity extends AppCompatActivity {
     }
 
     private void deleteUser(User user) {
-        showProgressOverlay();
         Log.d(TAG, "Starting deletion process for user: Name=" + user.getName() + ", Email=" + user.getEmail() + ", Role=" + user.getRole());
-        com.example.myapplication.firebase.FirebaseAuthService.getInstance().deleteUserData(user.getFirebaseUid(), new com.example.myapplication.firebase.FirebaseAuthService.SimpleCallback() {
+        mutations.delete(user, new UserRowMutationListener() {
             @Override
-            public void onSuccess() {
-                hideProgressOverlay();
+            public void onCommitted(User deletedUser) {
                 String userType = user.isAdmin() ? "Admin" : "User";
                 String roleName = "";
                 if (user.isSuperAdmin()) {
@@ -367,18 +409,64 @@ public class UserManagementActivity extends AppCompatActivity {
                 }
                 Toast.makeText(UserManagementActivity.this, roleName + " " + user.getName() + " deleted successfully", Toast.LENGTH_SHORT).show();
                 Log.i(TAG, userType + " deleted: " + user.getName() + " (Email: " + user.getEmail() + ", Role: " + user.getRole() + ") by user ID: " + currentUserId + " with role: " + currentUserRole);
-                loadUsers();
             }
 
             @Override
-            public void onFailure(String errorMessage) {
-                hideProgressOverlay();
+            public void onRolledBack(User originalUser, String errorMessage) {
+                super.onRolledBack(originalUser, errorMessage);
                 Toast.makeText(UserManagementActivity.this, "Failed to delete user: " + errorMessage, Toast.LENGTH_SHORT).show();
                 Log.e(TAG, "Failed to delete user: " + user.getName() + " (ID: " + user.getId() + ")");
             }
         });
     }
 
+    /**
+     * Patches the affected row as soon as a mutation is applied locally and restores it on failure
+     */
+    private abstract class UserRowMutationListener implements OptimisticUserMutations.MutationListener {
+        @Override
+        public void onLocalUpdate(User updatedUser) {
+            userAdapter.applyChanges(Collections.singletonList(updatedUser), Collections.emptyList());
+        }
+
+        @Override
+        public void onLocalRemove(String uid) {
+            userAdapter.applyChanges(Collections.emptyList(), Collections.singletonList(uid));
+        }
+
+        @Override
+        public void onRolledBack(User originalUser, String errorMessage) {
+            userAdapter.applyChanges(Collections.singletonList(originalUser), Collections.emptyList());
+        }
+    }
+
+    private class StatusMutationListener extends UserRowMutationListener {
+        private final User user;
+        private final String pastTense;
+        private final String verb;
+
+        StatusMutationListener(User user, String pastTense, String verb) {
+            this.user = user;
+            this.pastTense = pastTense;
+            this.verb = verb;
+        }
+
+        @Override
+        public void onCommitted(User updatedUser) {
+            String userType = user.isAdmin() ? "Admin" : "User";
+            Toast.makeText(UserManagementActivity.this, userType + " " + pastTense + " successfully", Toast.LENGTH_SHORT).show();
+            if (user.isAdmin()) {
+                Log.i(TAG, "Admin user " + pastTense + ": " + user.getName() + " (Email: " + user.getEmail() + ") by user ID: " + currentUserId);
+            }
+        }
+
+        @Override
+        public void onRolledBack(User originalUser, String errorMessage) {
+            super.onRolledBack(originalUser, errorMessage);
+            Toast.makeText(UserManagementActivity.this, "Failed to " + verb + " user: " + errorMessage, Toast.LENGTH_SHORT).show();
+        }
+    }
+
     private void showErrorDialog(String title, String message, Runnable onRetry) {
         new AlertDialog.Builder(this)
                 .setTitle(title)
@@ -0,0 +1,135 @@
+package com.example.myapplication.ui;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.myapplication.firebase.FirebaseAuthService;
+import com.example.myapplication.model.User;
+import com.example.myapplication.ui.adapter.UserAdapter;
+
+import java.util.List;
+
+/**
+ * Debounced search over the user list. A burst of keystrokes results in a single filter
+ * pass once typing pauses; passes for older queries are discarded by the adapter.
+ * Until the local user list has loaded, queries also go to a server-side email prefix search,
+ * whose results the adapter shows as an overlay until the list is ready.
+ * All methods must be called on the main thread.
+ */
+class UserSearchPipeline {
+    private static final String TAG = "UserSearchPipeline";
+    private static final long DEBOUNCE_MS = 250;
+    private static final int SERVER_RESULT_LIMIT = 50;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final UserAdapter adapter;
+    private final ServerResultsListener serverResultsListener;
+    private final Runnable pendingSearch = this::runSearch;
+
+    private String pendingQuery = "";
+    private String lastExecutedQuery;
+    private boolean localDataReady;
+    private int serverGeneration;
+
+    /**
+     * Listener interface for users found by the server-side search
+     */
+    interface ServerResultsListener {
+        void onServerResults(List<User> users);
+    }
+
+    UserSearchPipeline(UserAdapter adapter, ServerResultsListener serverResultsListener) {
+        this.adapter = adapter;
+        this.serverResultsListener = serverResultsListener;
+    }
+
+    /**
+     * Schedule a search for the given text, replacing any search not yet started
+     */
+    void onQueryChanged(CharSequence query) {
+        pendingQuery = normalize(query);
+        handler.removeCallbacks(pendingSearch);
+        handler.postDelayed(pendingSearch, DEBOUNCE_MS);
+    }
+
+    /**
+     * Run a search immediately, e.g. from the search button
+     */
+    void searchNow(CharSequence query) {
+        pendingQuery = normalize(query);
+        handler.removeCallbacks(pendingSearch);
+        runSearch();
+    }
+
+    /**
+     * Mark the local user list as loaded so searches are filtered locally from now on
+     */
+    void setLocalDataReady(boolean ready) {
+        if (localDataReady == ready) {
+            return;
+        }
+        localDataReady = ready;
+        // Any server search in flight is now out of date
+        serverGeneration++;
+        lastExecutedQuery = null;
+        if (ready) {
+            adapter.setServerResults(null);
+        }
+    }
+
+    /**
+     * Drop any scheduled search and ignore results still in flight
+     */
+    void cancel() {
+        handler.removeCallbacks(pendingSearch);
+        serverGeneration++;
+    }
+
+    private void runSearch() {
+        String query = pendingQuery;
+        if (query.equals(lastExecutedQuery)) {
+            return;
+        }
+        lastExecutedQuery = query;
+        long start = SystemClock.elapsedRealtime();
+
+        if (localDataReady || query.isEmpty()) {
+            adapter.filter(query, count -> {
+                if (count >= 0) {
+                    Log.d(TAG, "Local search '" + query + "': " + count + " users in "
+                            + (SystemClock.elapsedRealtime() - start) + " ms");
+                }
+            });
+            return;
+        }
+
+        int generation = ++serverGeneration;
+        FirebaseAuthService.getInstance().searchUsersByEmailPrefix(query, SERVER_RESULT_LIMIT,
+                new FirebaseAuthService.UsersCallback() {
+                    @Override
+                    public void onSuccess(List<User> users) {
+                        if (generation != serverGeneration) {
+                            return;
+                        }
+                        Log.d(TAG, "Server search '" + query + "': " + users.size() + " users in "
+                                + (SystemClock.elapsedRealtime() - start) + " ms");
+                        serverResultsListener.onServerResults(users);
+                        adapter.filter(query, null);
+                    }
+
+                    @Override
+                    public void onFailure(String errorMessage) {
+                        if (generation == serverGeneration) {
+                            lastExecutedQuery = null;
+                        }
+                        Log.e(TAG, "Server search failed: " + errorMessage);
+                    }
+                });
+    }
+
+    private static String normalize(CharSequence query) {
+        return query == null ? "" : query.toString().toLowerCase().trim();
+    }
+}
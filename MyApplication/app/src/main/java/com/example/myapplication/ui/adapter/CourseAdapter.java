@@ -1,25 +1,92 @@
 package com.example.myapplication.ui.adapter;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
 import com.example.myapplication.R;
 import com.example.myapplication.databinding.ItemCourseBinding;
 import com.example.myapplication.model.Course;
+import com.example.myapplication.util.BlurHash;
+import com.example.myapplication.util.StorageGlideUrl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseViewHolder> {
+public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseViewHolder>
+        implements ListPreloader.PreloadModelProvider<Course> {
 
     private final Context context;
-    private final List<Course> courseList;
+    private final RequestManager glide;
+    private final AsyncListDiffer<Course> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private OnCourseClickListener listener;
+    private final int thumbnailSizePx;
+
+    // BlurHash previews are tiny; they are decoded once off the main thread and scaled by the view
+    private static final int PLACEHOLDER_DECODE_SIZE = 20;
+    private static final int PLACEHOLDER_CACHE_SIZE = 100;
+    private static final ExecutorService PLACEHOLDER_EXECUTOR = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Bitmap> placeholders = new LruCache<>(PLACEHOLDER_CACHE_SIZE);
+    private final Set<String> placeholdersDecoding = new HashSet<>();
+    private final List<CourseViewHolder> holders = new ArrayList<>();
+
+    // Rows are matched by course ID and rebound only when a course field changed
+    private static final DiffUtil.ItemCallback<Course> DIFF_CALLBACK = new DiffUtil.ItemCallback<Course>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Course oldCourse, @NonNull Course newCourse) {
+            return oldCourse.getId() == newCourse.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Course oldCourse, @NonNull Course newCourse) {
+            return oldCourse.getDuration() == newCourse.getDuration()
+                    && oldCourse.getCapacity() == newCourse.getCapacity()
+                    && oldCourse.getEnrolled() == newCourse.getEnrolled()
+                    && Float.compare(oldCourse.getPrice(), newCourse.getPrice()) == 0
+                    && Objects.equals(oldCourse.getName(), newCourse.getName())
+                    && Objects.equals(oldCourse.getDescription(), newCourse.getDescription())
+                    && Objects.equals(oldCourse.getLevel(), newCourse.getLevel())
+                    && Objects.equals(oldCourse.getPhotoPath(), newCourse.getPhotoPath())
+                    && Objects.equals(oldCourse.getThumbnailUrl(), newCourse.getThumbnailUrl())
+                    && Objects.equals(oldCourse.getMediumUrl(), newCourse.getMediumUrl())
+                    && Objects.equals(oldCourse.getPhotoBlurHash(), newCourse.getPhotoBlurHash())
+                    && oldCourse.isImagePending() == newCourse.isImagePending()
+                    && Objects.equals(oldCourse.getDayOfWeek(), newCourse.getDayOfWeek())
+                    && Objects.equals(oldCourse.getType(), newCourse.getType())
+                    && Objects.equals(oldCourse.getTime(), newCourse.getTime())
+                    && Objects.equals(oldCourse.getEquipmentNeeded(), newCourse.getEquipmentNeeded());
+        }
+    };
 
     public interface OnCourseClickListener {
         void onCourseClick(Course course);
@@ -27,7 +94,77 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
 
     public CourseAdapter(Context context, List<Course> courseList) {
         this.context = context;
-        this.courseList = courseList;
+        this.glide = Glide.with(context);
+        this.thumbnailSizePx = context.getResources().getDimensionPixelSize(R.dimen.course_thumbnail_size);
+        submitList(courseList);
+    }
+
+    /**
+     * Replace the displayed courses; the diff is computed on a background thread.
+     * A copy is submitted so later changes to the caller's list do not leak into the diff.
+     */
+    public void submitList(List<Course> courses) {
+        differ.submitList(new ArrayList<>(courses));
+    }
+
+    /**
+     * Create a scroll listener that starts loading thumbnails for the rows about to appear
+     * @param maxPreload Number of rows ahead of the visible ones to load
+     */
+    public RecyclerView.OnScrollListener createPreloader(int maxPreload) {
+        return new RecyclerViewPreloader<>(glide, this,
+                new FixedPreloadSizeProvider<>(thumbnailSizePx, thumbnailSizePx), maxPreload);
+    }
+
+    @NonNull
+    @Override
+    public List<Course> getPreloadItems(int position) {
+        List<Course> courses = differ.getCurrentList();
+        if (position < 0 || position >= courses.size()
+                || TextUtils.isEmpty(courses.get(position).getPhotoUrlForSize(thumbnailSizePx))) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(courses.get(position));
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Course course) {
+        // Have the preview ready too in case the thumbnail is still slower
+        decodePlaceholder(course.getPhotoBlurHash());
+        return thumbnailRequest(course);
+    }
+
+    // Preload and bind must build identical requests so preloaded thumbnails hit the memory cache
+    private RequestBuilder<Drawable> thumbnailRequest(Course course) {
+        return glide
+                .load(new StorageGlideUrl(course.getPhotoUrlForSize(thumbnailSizePx)))
+                .override(thumbnailSizePx, thumbnailSizePx)
+                .centerCrop();
+    }
+
+    /**
+     * Decode a BlurHash preview in the background, then show it in any row still waiting for
+     * its image. Must be called on the main thread.
+     */
+    private void decodePlaceholder(String blurHash) {
+        if (TextUtils.isEmpty(blurHash) || placeholders.get(blurHash) != null
+                || !placeholdersDecoding.add(blurHash)) {
+            return;
+        }
+        PLACEHOLDER_EXECUTOR.execute(() -> {
+            Bitmap bitmap = BlurHash.decode(blurHash, PLACEHOLDER_DECODE_SIZE, PLACEHOLDER_DECODE_SIZE);
+            mainHandler.post(() -> {
+                placeholdersDecoding.remove(blurHash);
+                if (bitmap == null) {
+                    return;
+                }
+                placeholders.put(blurHash, bitmap);
+                for (CourseViewHolder holder : holders) {
+                    holder.showPlaceholder(blurHash, bitmap);
+                }
+            });
+        });
     }
 
     public void setOnCourseClickListener(OnCourseClickListener listener) {
@@ -39,22 +176,26 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
     public CourseViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         ItemCourseBinding binding = ItemCourseBinding.inflate(
                 LayoutInflater.from(parent.getContext()), parent, false);
-        return new CourseViewHolder(binding);
+        CourseViewHolder holder = new CourseViewHolder(binding);
+        holders.add(holder);
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull CourseViewHolder holder, int position) {
-        Course course = courseList.get(position);
+        Course course = differ.getCurrentList().get(position);
         holder.bind(course);
     }
 
     @Override
     public int getItemCount() {
-        return courseList.size();
+        return differ.getCurrentList().size();
     }
 
     class CourseViewHolder extends RecyclerView.ViewHolder {
         private final ItemCourseBinding binding;
+        private String boundBlurHash;
+        private boolean imageShown;
 
         public CourseViewHolder(ItemCourseBinding binding) {
             super(binding.getRoot());
@@ -75,16 +216,55 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
             // You may want to set a placeholder or use a property from Course if available
             binding.textViewInstanceCount.setText(""); // Or set to "N/A" or similar
             
-            // Load course image if available
-            if (!TextUtils.isEmpty(course.getPhotoPath())) {
-                Glide.with(context)
-                    .load(course.getPhotoPath())
-                    .placeholder(R.drawable.ic_launcher_foreground)
+            // Show the BlurHash preview, if there is one, until the image arrives
+            boundBlurHash = course.getPhotoBlurHash();
+            imageShown = false;
+            Bitmap previewBitmap = TextUtils.isEmpty(boundBlurHash) ? null : placeholders.get(boundBlurHash);
+            Drawable preview = null;
+            if (previewBitmap != null) {
+                // Each row gets its own drawable; only the bitmap is shared
+                preview = new BitmapDrawable(context.getResources(), previewBitmap);
+            } else {
+                decodePlaceholder(boundBlurHash);
+            }
+            
+            // Load the smallest image variant that fits the row's image view
+            String photoUrl = course.getPhotoUrlForSize(thumbnailSizePx);
+            if (!TextUtils.isEmpty(photoUrl)) {
+                RequestBuilder<Drawable> request = thumbnailRequest(course)
                     .error(android.R.drawable.ic_menu_gallery)
-                    .centerCrop()
-                    .into(binding.imageViewCourse);
+                    .listener(new RequestListener<Drawable>() {
+                        @Override
+                        public boolean onLoadFailed(@Nullable GlideException e, Object model,
+                                                    @NonNull Target<Drawable> target, boolean isFirstResource) {
+                            imageShown = true;
+                            return false;
+                        }
+
+                        @Override
+                        public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model,
+                                                       Target<Drawable> target, @NonNull DataSource dataSource,
+                                                       boolean isFirstResource) {
+                            imageShown = true;
+                            return false;
+                        }
+                    });
+                if (preview != null) {
+                    request.placeholder(preview).into(binding.imageViewCourse);
+                } else {
+                    request.placeholder(R.drawable.ic_launcher_foreground).into(binding.imageViewCourse);
+                }
+            } else if (course.isImagePending() || !TextUtils.isEmpty(boundBlurHash)) {
+                // The image is still uploading; the preview is all there is for now
+                glide.clear(binding.imageViewCourse);
+                if (preview != null) {
+                    binding.imageViewCourse.setImageDrawable(preview);
+                } else {
+                    binding.imageViewCourse.setImageResource(R.drawable.ic_launcher_foreground);
+                }
             } else {
                 // Set default image
+                glide.clear(binding.imageViewCourse);
                 binding.imageViewCourse.setImageResource(android.R.drawable.ic_menu_gallery);
             }
             
@@ -95,5 +275,11 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
                 }
             });
         }
+
+        void showPlaceholder(String blurHash, Bitmap bitmap) {
+            if (!imageShown && blurHash.equals(boundBlurHash)) {
+                binding.imageViewCourse.setImageDrawable(new BitmapDrawable(context.getResources(), bitmap));
+            }
+        }
     }
 }
@@ -5,26 +5,59 @@ import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.myapplication.databinding.ItemInstanceBinding;
 import com.example.myapplication.model.Instance;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class InstanceAdapter extends RecyclerView.Adapter<InstanceAdapter.InstanceViewHolder> {
 
     private final Context context;
-    private final List<Instance> instanceList;
+    private final AsyncListDiffer<Instance> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private OnInstanceClickListener listener;
 
+    // Rows are matched by instance ID and rebound only when an instance field changed
+    private static final DiffUtil.ItemCallback<Instance> DIFF_CALLBACK = new DiffUtil.ItemCallback<Instance>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Instance oldInstance, @NonNull Instance newInstance) {
+            return oldInstance.getId() == newInstance.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Instance oldInstance, @NonNull Instance newInstance) {
+            return oldInstance.getCourseId() == newInstance.getCourseId()
+                    && oldInstance.getCapacity() == newInstance.getCapacity()
+                    && Float.compare(oldInstance.getPrice(), newInstance.getPrice()) == 0
+                    && oldInstance.getEpochDay() == newInstance.getEpochDay()
+                    && oldInstance.getMinuteOfDay() == newInstance.getMinuteOfDay()
+                    && Objects.equals(oldInstance.getDate(), newInstance.getDate())
+                    && Objects.equals(oldInstance.getTime(), newInstance.getTime())
+                    && Objects.equals(oldInstance.getLocation(), newInstance.getLocation())
+                    && Objects.equals(oldInstance.getInstructor(), newInstance.getInstructor());
+        }
+    };
+
     public interface OnInstanceClickListener {
         void onInstanceClick(Instance instance);
     }
 
     public InstanceAdapter(Context context, List<Instance> instanceList) {
         this.context = context;
-        this.instanceList = instanceList;
+        submitList(instanceList);
+    }
+
+    /**
+     * Replace the displayed instances; the diff is computed on a background thread.
+     * A copy is submitted so later changes to the caller's list do not leak into the diff.
+     */
+    public void submitList(List<Instance> instances) {
+        differ.submitList(new ArrayList<>(instances));
     }
 
     public void setOnInstanceClickListener(OnInstanceClickListener listener) {
@@ -41,13 +74,13 @@ public class InstanceAdapter extends RecyclerView.Adapter<InstanceAdapter.Instan
 
     @Override
     public void onBindViewHolder(@NonNull InstanceViewHolder holder, int position) {
-        Instance instance = instanceList.get(position);
+        Instance instance = differ.getCurrentList().get(position);
         holder.bind(instance);
     }
 
     @Override
     public int getItemCount() {
-        return instanceList.size();
+        return differ.getCurrentList().size();
     }
 
     class InstanceViewHolder extends RecyclerView.ViewHolder {
@@ -10,23 +10,36 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.myapplication.R;
 import com.example.myapplication.model.User;
+import com.example.myapplication.util.UserSearchIndex;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 
 import android.widget.Filter;
-import android.widget.Filterable;
 import java.util.ArrayList;
 
-public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder> implements Filterable {
+public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder> {
 
-    private List<User> userList;
-    private List<User> userListFull; // For filtering
+    private final AsyncListDiffer<User> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    // Full user list for filtering; only updated and searched on the filter thread
+    private final UserSearchIndex searchIndex = new UserSearchIndex();
+    // Index updates queued on the main thread, applied by the next filter pass
+    private final Queue<Runnable> pendingIndexUpdates = new ConcurrentLinkedQueue<>();
+    // Users found by the server-side search while the full list loads; shown on top of it, never merged in
+    private volatile List<User> serverResults;
     private UserActionListener actionListener;
+    private volatile String requestedPattern = ""; // Pattern of the most recent filter request
 
     public interface UserActionListener {
         void onUserClick(User user);
@@ -38,10 +51,27 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
         void onDeleteUser(User user);
     }
 
+    // Rows are matched by Firebase UID and rebound only when a displayed or acted-on field changed
+    private static final DiffUtil.ItemCallback<User> DIFF_CALLBACK = new DiffUtil.ItemCallback<User>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull User oldUser, @NonNull User newUser) {
+            return Objects.equals(oldUser.getFirebaseUid(), newUser.getFirebaseUid());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull User oldUser, @NonNull User newUser) {
+            return oldUser.getId() == newUser.getId()
+                    && Objects.equals(oldUser.getName(), newUser.getName())
+                    && Objects.equals(oldUser.getEmail(), newUser.getEmail())
+                    && Objects.equals(oldUser.getRole(), newUser.getRole())
+                    && Objects.equals(oldUser.getStatus(), newUser.getStatus());
+        }
+    };
+
     public UserAdapter(List<User> userList, UserActionListener actionListener) {
-        this.userList = userList;
-        this.userListFull = new ArrayList<>(userList);
+        searchIndex.replaceAll(userList);
         this.actionListener = actionListener;
+        differ.submitList(new ArrayList<>(userList));
     }
 
     @NonNull
@@ -54,7 +84,7 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull UserViewHolder holder, int position) {
-        User user = userList.get(position);
+        User user = differ.getCurrentList().get(position);
 
         holder.textViewName.setText(user.getName());
         holder.textViewEmail.setText(user.getEmail());
@@ -63,7 +93,7 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
 
         // Show/hide and set listeners for action buttons based on user status/role
         if (holder.buttonBan != null) {
-            if ("active".equalsIgnoreCase(user.getStatus())) {
+            if (user.isActive()) {
                 holder.buttonBan.setVisibility(View.VISIBLE);
             } else {
                 holder.buttonBan.setVisibility(View.GONE);
@@ -73,7 +103,7 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
             });
         }
         if (holder.buttonActivate != null) {
-            if ("banned".equalsIgnoreCase(user.getStatus())) {
+            if (user.isBanned()) {
                 holder.buttonActivate.setVisibility(View.VISIBLE);
             } else {
                 holder.buttonActivate.setVisibility(View.GONE);
@@ -84,7 +114,7 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
         }
         if (holder.buttonDelete != null) {
             // Hide delete for super admin, show for others (customize as needed)
-            if ("super_admin".equalsIgnoreCase(user.getRole())) {
+            if (user.isSuperAdmin()) {
                 holder.buttonDelete.setVisibility(View.GONE);
             } else {
                 holder.buttonDelete.setVisibility(View.VISIBLE);
@@ -104,51 +134,117 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
 
     @Override
     public int getItemCount() {
-        return userList.size();
+        return differ.getCurrentList().size();
     }
 
-    @Override
-    public Filter getFilter() {
-        return userFilter;
+    /**
+     * Filter the list by name, email or role. Passes for older queries that are still
+     * queued or running are discarded instead of being published.
+     *
+     * @param query Search text
+     * @param listener Receives the result count, or -1 if the pass was superseded
+     */
+    public void filter(CharSequence query, Filter.FilterListener listener) {
+        requestedPattern = normalize(query);
+        userFilter.filter(requestedPattern, listener);
     }
 
     private final Filter userFilter = new Filter() {
         @Override
         protected FilterResults performFiltering(CharSequence constraint) {
-            List<User> filteredList = new ArrayList<>();
-            if (constraint == null || constraint.length() == 0) {
-                filteredList.addAll(userListFull);
-            } else {
-                String filterPattern = constraint.toString().toLowerCase().trim();
-                for (User user : userListFull) {
-                    if ((user.getName() != null && user.getName().toLowerCase().contains(filterPattern)) ||
-                        (user.getEmail() != null && user.getEmail().toLowerCase().contains(filterPattern)) ||
-                        (user.getRole() != null && user.getRole().toLowerCase().contains(filterPattern))) {
-                        filteredList.add(user);
-                    }
-                }
+            Runnable update;
+            while ((update = pendingIndexUpdates.poll()) != null) {
+                update.run();
             }
+            String filterPattern = normalize(constraint);
             FilterResults results = new FilterResults();
+            if (!filterPattern.equals(requestedPattern)) {
+                // Superseded by a newer query before it started
+                results.count = -1;
+                return results;
+            }
+            List<User> filteredList = searchIndex.search(filterPattern);
+            List<User> overlay = serverResults;
+            if (overlay != null) {
+                filteredList = withServerResults(filteredList, overlay, filterPattern);
+            }
             results.values = filteredList;
+            results.count = filteredList.size();
             return results;
         }
 
         @Override
         protected void publishResults(CharSequence constraint, FilterResults results) {
-            userList.clear();
+            if (results.values == null || !normalize(constraint).equals(requestedPattern)) {
+                // Superseded while running; the newer pass will publish
+                results.count = -1;
+                return;
+            }
             //noinspection unchecked
-            userList.addAll((List<User>) results.values);
-            notifyDataSetChanged();
+            differ.submitList((List<User>) results.values);
         }
     };
 
     // Call this when the full user list changes (e.g., after loading from DB)
     public void updateUserList(List<User> newList) {
-        userList.clear();
-        userList.addAll(newList);
-        userListFull.clear();
-        userListFull.addAll(newList);
-        notifyDataSetChanged();
+        List<User> users = new ArrayList<>(newList);
+        pendingIndexUpdates.add(() -> searchIndex.replaceAll(users));
+        userFilter.filter(requestedPattern);
+    }
+
+    /**
+     * Show users found by a server-side search alongside the local matches, until cleared.
+     * The full list is left untouched, so a partial server result never replaces it.
+     *
+     * @param users Server results, or null to show only the full list
+     */
+    public void setServerResults(List<User> users) {
+        serverResults = users != null ? new ArrayList<>(users) : null;
+        userFilter.filter(requestedPattern);
+    }
+
+    /**
+     * Apply live changes to the full list and re-run the current filter. Only the changed
+     * users are re-indexed, and the diff is computed in the background so only the affected
+     * rows are rebound.
+     */
+    public void applyChanges(List<User> changedUsers, List<String> removedUids) {
+        List<User> changed = new ArrayList<>(changedUsers);
+        List<String> removed = new ArrayList<>(removedUids);
+        pendingIndexUpdates.add(() -> {
+            for (String uid : removed) {
+                searchIndex.remove(uid);
+            }
+            for (User user : changed) {
+                searchIndex.upsert(user);
+            }
+        });
+        userFilter.filter(requestedPattern);
+    }
+
+    // Local matches first, then server results matching the pattern that are not listed yet
+    private static List<User> withServerResults(List<User> localMatches, List<User> overlay, String pattern) {
+        Set<String> listed = new HashSet<>();
+        for (User user : localMatches) {
+            listed.add(user.getFirebaseUid());
+        }
+        List<User> merged = new ArrayList<>(localMatches);
+        for (User user : overlay) {
+            if (!listed.contains(user.getFirebaseUid()) && matches(user, pattern)) {
+                merged.add(user);
+            }
+        }
+        return merged;
+    }
+
+    private static boolean matches(User user, String pattern) {
+        return normalize(user.getName()).contains(pattern)
+                || normalize(user.getEmail()).contains(pattern)
+                || normalize(user.getRole()).contains(pattern);
+    }
+
+    private static String normalize(CharSequence constraint) {
+        return constraint == null ? "" : constraint.toString().toLowerCase().trim();
     }
 
     static class UserViewHolder extends RecyclerView.ViewHolder {
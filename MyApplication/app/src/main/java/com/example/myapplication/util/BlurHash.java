@@ -0,0 +1,243 @@
+package com.example.myapplication.util;
+
+import android.graphics.Bitmap;
+
+/**
+ * Encoder and decoder for BlurHash strings: a handful of DCT components of an image packed
+ * into ~20-30 base-83 characters. Stored next to an image URL, it can be decoded into a
+ * blurred preview without any network access.
+ */
+public final class BlurHash {
+    private static final String CHARACTERS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    /**
+     * Encode a bitmap; it should already be small (a few dozen pixels a side) since every
+     * pixel is visited once per component
+     * @param bitmap Source image
+     * @param componentsX Horizontal components, 1-9
+     * @param componentsY Vertical components, 1-9
+     * @return BlurHash string
+     */
+    public static String encode(Bitmap bitmap, int componentsX, int componentsY) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        return encode(pixels, width, height, componentsX, componentsY);
+    }
+
+    /**
+     * @param pixels ARGB pixels, row by row
+     * @param width Image width
+     * @param height Image height
+     * @param componentsX Horizontal components, 1-9
+     * @param componentsY Vertical components, 1-9
+     * @return BlurHash string
+     */
+    public static String encode(int[] pixels, int width, int height, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > 9 || componentsY < 1 || componentsY > 9) {
+            throw new IllegalArgumentException("Components must be between 1 and 9");
+        }
+        // Convert once to linear RGB rather than once per component
+        float[] linear = new float[pixels.length * 3];
+        for (int i = 0; i < pixels.length; i++) {
+            linear[i * 3] = srgbToLinear((pixels[i] >> 16) & 0xFF);
+            linear[i * 3 + 1] = srgbToLinear((pixels[i] >> 8) & 0xFF);
+            linear[i * 3 + 2] = srgbToLinear(pixels[i] & 0xFF);
+        }
+
+        float[][] factors = new float[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                factors[j * componentsX + i] = basisFactor(linear, width, height, i, j);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder(4 + 2 * factors.length + 2);
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+
+        float maximumValue;
+        if (factors.length > 1) {
+            float actualMaximum = 0;
+            for (int i = 1; i < factors.length; i++) {
+                for (float value : factors[i]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(value));
+                }
+            }
+            int quantisedMaximum = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximumValue = (quantisedMaximum + 1) / 166f;
+            encode83(hash, quantisedMaximum, 1);
+        } else {
+            maximumValue = 1;
+            encode83(hash, 0, 1);
+        }
+
+        float[] dc = factors[0];
+        encode83(hash, (linearToSrgb(dc[0]) << 16) | (linearToSrgb(dc[1]) << 8) | linearToSrgb(dc[2]), 4);
+        for (int i = 1; i < factors.length; i++) {
+            encode83(hash, encodeAc(factors[i], maximumValue), 2);
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Decode a BlurHash into ARGB pixels
+     * @param hash BlurHash string
+     * @param width Output width; a small size (e.g. 32) is enough since the result is scaled up
+     * @param height Output height
+     * @return Pixels row by row, or null if the hash is malformed
+     */
+    public static int[] decodePixels(String hash, int width, int height) {
+        if (hash == null || hash.length() < 6) {
+            return null;
+        }
+        int sizeFlag = decode83(hash, 0, 1);
+        if (sizeFlag < 0) {
+            return null;
+        }
+        int componentsX = sizeFlag % 9 + 1;
+        int componentsY = sizeFlag / 9 + 1;
+        if (hash.length() != 4 + 2 * componentsX * componentsY) {
+            return null;
+        }
+        int quantisedMaximum = decode83(hash, 1, 2);
+        int dcValue = decode83(hash, 2, 6);
+        if (quantisedMaximum < 0 || dcValue < 0) {
+            return null;
+        }
+        float maximumValue = (quantisedMaximum + 1) / 166f;
+
+        float[] colors = new float[componentsX * componentsY * 3];
+        colors[0] = srgbToLinear((dcValue >> 16) & 0xFF);
+        colors[1] = srgbToLinear((dcValue >> 8) & 0xFF);
+        colors[2] = srgbToLinear(dcValue & 0xFF);
+        for (int i = 1; i < componentsX * componentsY; i++) {
+            int value = decode83(hash, 4 + i * 2, 6 + i * 2);
+            if (value < 0) {
+                return null;
+            }
+            colors[i * 3] = signPow(((value / (19 * 19)) - 9) / 9f, 2) * maximumValue;
+            colors[i * 3 + 1] = signPow(((value / 19 % 19) - 9) / 9f, 2) * maximumValue;
+            colors[i * 3 + 2] = signPow(((value % 19) - 9) / 9f, 2) * maximumValue;
+        }
+
+        // Cosine tables shared by all rows and columns
+        float[] cosX = new float[width * componentsX];
+        for (int x = 0; x < width; x++) {
+            for (int i = 0; i < componentsX; i++) {
+                cosX[x * componentsX + i] = (float) Math.cos(Math.PI * x * i / width);
+            }
+        }
+        float[] cosY = new float[height * componentsY];
+        for (int y = 0; y < height; y++) {
+            for (int j = 0; j < componentsY; j++) {
+                cosY[y * componentsY + j] = (float) Math.cos(Math.PI * y * j / height);
+            }
+        }
+
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float r = 0;
+                float g = 0;
+                float b = 0;
+                for (int j = 0; j < componentsY; j++) {
+                    for (int i = 0; i < componentsX; i++) {
+                        float basis = cosX[x * componentsX + i] * cosY[y * componentsY + j];
+                        int index = (j * componentsX + i) * 3;
+                        r += colors[index] * basis;
+                        g += colors[index + 1] * basis;
+                        b += colors[index + 2] * basis;
+                    }
+                }
+                pixels[y * width + x] = 0xFF000000 | (linearToSrgb(r) << 16) | (linearToSrgb(g) << 8) | linearToSrgb(b);
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Decode a BlurHash into a bitmap
+     * @return Bitmap, or null if the hash is malformed
+     */
+    public static Bitmap decode(String hash, int width, int height) {
+        int[] pixels = decodePixels(hash, width, height);
+        if (pixels == null) {
+            return null;
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private static float[] basisFactor(float[] linear, int width, int height, int i, int j) {
+        float r = 0;
+        float g = 0;
+        float b = 0;
+        for (int y = 0; y < height; y++) {
+            float cosY = (float) Math.cos(Math.PI * j * y / height);
+            for (int x = 0; x < width; x++) {
+                float basis = (float) Math.cos(Math.PI * i * x / width) * cosY;
+                int index = (y * width + x) * 3;
+                r += basis * linear[index];
+                g += basis * linear[index + 1];
+                b += basis * linear[index + 2];
+            }
+        }
+        float scale = (i == 0 && j == 0 ? 1f : 2f) / (width * height);
+        return new float[] {r * scale, g * scale, b * scale};
+    }
+
+    private static int encodeAc(float[] value, float maximumValue) {
+        int quantR = quantiseAc(value[0], maximumValue);
+        int quantG = quantiseAc(value[1], maximumValue);
+        int quantB = quantiseAc(value[2], maximumValue);
+        return quantR * 19 * 19 + quantG * 19 + quantB;
+    }
+
+    private static int quantiseAc(float value, float maximumValue) {
+        return (int) Math.max(0, Math.min(18, Math.floor(signPow(value / maximumValue, 0.5f) * 9 + 9.5)));
+    }
+
+    private static float signPow(float value, float exponent) {
+        return Math.copySign((float) Math.pow(Math.abs(value), exponent), value);
+    }
+
+    private static float srgbToLinear(int value) {
+        float v = value / 255f;
+        return v <= 0.04045f ? v / 12.92f : (float) Math.pow((v + 0.055f) / 1.055f, 2.4f);
+    }
+
+    private static int linearToSrgb(float value) {
+        float v = Math.max(0, Math.min(1, value));
+        if (v <= 0.0031308f) {
+            return (int) (v * 12.92f * 255 + 0.5f);
+        }
+        return (int) ((1.055f * Math.pow(v, 1 / 2.4f) - 0.055f) * 255 + 0.5f);
+    }
+
+    private static void encode83(StringBuilder out, int value, int length) {
+        for (int i = 1; i <= length; i++) {
+            int divisor = 1;
+            for (int k = 0; k < length - i; k++) {
+                divisor *= 83;
+            }
+            out.append(CHARACTERS.charAt((value / divisor) % 83));
+        }
+    }
+
+    // Returns -1 on an invalid character
+    private static int decode83(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = CHARACTERS.indexOf(text.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * 83 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Course;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory course catalog index. Each course occupies a slot; name/description tokens and
+ * the level, type and day-of-week facets map to bitsets of slots, while price and start time
+ * are kept in primitive arrays. A query is answered by AND-ing bitsets, so combining filters
+ * never touches the Course objects. Courses can be added, updated and removed incrementally;
+ * slots freed by removed courses are reused, so the bitsets do not grow with churn.
+ * Not thread-safe; use from the main thread.
+ */
+public class CourseSearchIndex {
+    private static final int NO_TIME = ScheduleTime.INVALID_MINUTE;
+
+    private final List<Course> slots = new ArrayList<>();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final TreeMap<String, BitSet> tokens = new TreeMap<>();
+    private final Map<String, BitSet> levels = new HashMap<>();
+    private final Map<String, BitSet> types = new HashMap<>();
+    private final Map<String, BitSet> days = new HashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private float[] prices = new float[16];
+    private int[] startMinutes = new int[16];
+    // Insertion sequence of each slot, so results stay in insertion order when slots are reused
+    private int[] order = new int[16];
+    private int nextOrder;
+
+    /**
+     * Replace the indexed catalog
+     * @param courses Courses to index
+     */
+    public void rebuild(List<Course> courses) {
+        slots.clear();
+        slotById.clear();
+        live.clear();
+        tokens.clear();
+        levels.clear();
+        types.clear();
+        days.clear();
+        freeSlots.clear();
+        nextOrder = 0;
+        for (Course course : courses) {
+            upsert(course);
+        }
+    }
+
+    /**
+     * Add a course, or update it if a course with the same ID is already indexed
+     * @param course Course to index
+     */
+    public void upsert(Course course) {
+        Integer existing = slotById.get(course.getId());
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            unindex(slot);
+        } else if (!freeSlots.isEmpty()) {
+            slot = freeSlots.pop();
+            order[slot] = nextOrder++;
+            slotById.put(course.getId(), slot);
+        } else {
+            slot = slots.size();
+            slots.add(null);
+            ensureCapacity(slot + 1);
+            order[slot] = nextOrder++;
+            slotById.put(course.getId(), slot);
+        }
+        slots.set(slot, course);
+        live.set(slot);
+
+        for (String token : tokenize(course.getName())) {
+            bitsFor(tokens, token).set(slot);
+        }
+        for (String token : tokenize(course.getDescription())) {
+            bitsFor(tokens, token).set(slot);
+        }
+        bitsFor(levels, facetKey(course.getLevel())).set(slot);
+        bitsFor(types, facetKey(course.getType())).set(slot);
+        bitsFor(days, facetKey(course.getDayOfWeek())).set(slot);
+        prices[slot] = course.getPrice();
+        startMinutes[slot] = parseMinuteOfDay(course.getTime());
+    }
+
+    /**
+     * Remove a course from the index
+     * @param courseId ID of the course to remove
+     */
+    public void remove(long courseId) {
+        Integer slot = slotById.remove(courseId);
+        if (slot != null) {
+            unindex(slot);
+            slots.set(slot, null);
+            freeSlots.push(slot);
+        }
+    }
+
+    /**
+     * @return Number of slots allocated, including free ones
+     */
+    int capacityUsed() {
+        return slots.size();
+    }
+
+    /**
+     * Find courses matching every criterion of the query, in insertion order
+     * @param query Search criteria
+     * @return Matching courses
+     */
+    public List<Course> search(Query query) {
+        BitSet result = (BitSet) live.clone();
+
+        for (String token : tokenize(query.text)) {
+            // Prefix match, so partially typed words still find courses
+            BitSet matches = new BitSet();
+            for (BitSet bits : tokens.subMap(token, token + Character.MAX_VALUE).values()) {
+                matches.or(bits);
+            }
+            result.and(matches);
+        }
+        andFacet(result, levels, query.level);
+        andFacet(result, types, query.type);
+        andFacet(result, days, query.dayOfWeek);
+
+        boolean priceFilter = query.minPrice != null || query.maxPrice != null;
+        boolean timeFilter = query.fromMinute != null || query.toMinute != null;
+        if (priceFilter || timeFilter) {
+            float minPrice = query.minPrice != null ? query.minPrice : Float.NEGATIVE_INFINITY;
+            float maxPrice = query.maxPrice != null ? query.maxPrice : Float.POSITIVE_INFINITY;
+            int fromMinute = query.fromMinute != null ? query.fromMinute : 0;
+            int toMinute = query.toMinute != null ? query.toMinute : 24 * 60;
+            for (int slot = result.nextSetBit(0); slot >= 0; slot = result.nextSetBit(slot + 1)) {
+                boolean priceOk = !priceFilter || (prices[slot] >= minPrice && prices[slot] <= maxPrice);
+                int minute = startMinutes[slot];
+                boolean timeOk = !timeFilter || (minute != NO_TIME && minute >= fromMinute && minute <= toMinute);
+                if (!priceOk || !timeOk) {
+                    result.clear(slot);
+                }
+            }
+        }
+
+        // Sort by insertion sequence without boxing: sequence in the high bits, slot in the low bits
+        long[] packed = new long[result.cardinality()];
+        int count = 0;
+        for (int slot = result.nextSetBit(0); slot >= 0; slot = result.nextSetBit(slot + 1)) {
+            packed[count++] = ((long) order[slot] << 32) | slot;
+        }
+        Arrays.sort(packed);
+        List<Course> courses = new ArrayList<>(packed.length);
+        for (long value : packed) {
+            courses.add(slots.get((int) value));
+        }
+        return courses;
+    }
+
+    private void unindex(int slot) {
+        live.clear(slot);
+        Course course = slots.get(slot);
+        if (course == null) {
+            return;
+        }
+        for (String token : tokenize(course.getName())) {
+            clearBit(tokens, token, slot);
+        }
+        for (String token : tokenize(course.getDescription())) {
+            clearBit(tokens, token, slot);
+        }
+        clearBit(levels, facetKey(course.getLevel()), slot);
+        clearBit(types, facetKey(course.getType()), slot);
+        clearBit(days, facetKey(course.getDayOfWeek()), slot);
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > prices.length) {
+            int newLength = Math.max(size, prices.length * 2);
+            prices = Arrays.copyOf(prices, newLength);
+            startMinutes = Arrays.copyOf(startMinutes, newLength);
+            order = Arrays.copyOf(order, newLength);
+        }
+    }
+
+    private static void andFacet(BitSet result, Map<String, BitSet> facet, String value) {
+        if (value == null) {
+            return;
+        }
+        BitSet bits = facet.get(facetKey(value));
+        if (bits == null) {
+            result.clear();
+        } else {
+            result.and(bits);
+        }
+    }
+
+    private static BitSet bitsFor(Map<String, BitSet> map, String key) {
+        BitSet bits = map.get(key);
+        if (bits == null) {
+            bits = new BitSet();
+            map.put(key, bits);
+        }
+        return bits;
+    }
+
+    private static void clearBit(Map<String, BitSet> map, String key, int slot) {
+        BitSet bits = map.get(key);
+        if (bits != null) {
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    private static String facetKey(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param time Time in HH:mm format
+     * @return Minutes since midnight, or -1 if the time is missing or malformed
+     */
+    public static int parseMinuteOfDay(String time) {
+        return ScheduleTime.parseMinuteOfDay(time);
+    }
+
+    /**
+     * Search criteria; null fields are not filtered on
+     */
+    public static class Query {
+        public String text;
+        public String level;
+        public String type;
+        public String dayOfWeek;
+        public Float minPrice;
+        public Float maxPrice;
+        public Integer fromMinute;
+        public Integer toMinute;
+
+        /**
+         * @return true if no criterion is set
+         */
+        public boolean isEmpty() {
+            return (text == null || text.trim().isEmpty()) && level == null && type == null
+                    && dayOfWeek == null && minPrice == null && maxPrice == null
+                    && fromMinute == null && toMinute == null;
+        }
+    }
+}
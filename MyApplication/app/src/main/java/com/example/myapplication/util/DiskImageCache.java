@@ -0,0 +1,321 @@
+package com.example.myapplication.util;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Size-bounded LRU cache over the course_photos directory.
+ * An access-ordered index of file name, size and last access time is kept in memory and
+ * persisted to an index file, so lookups and evictions never list the directory. When the
+ * total size exceeds the budget, the least recently used files are deleted.
+ * The index is loaded and reconciled with the files on disk by a compaction pass on a
+ * background thread, so creating the cache never touches the disk on the caller's thread.
+ */
+public class DiskImageCache {
+    private static final String TAG = "DiskImageCache";
+    private static final String DIRECTORY = "course_photos";
+    private static final String INDEX_FILE = ".index";
+    private static final int INDEX_VERSION = 1;
+    private static final long STALE_TEMP_FILE_MS = 60 * 60 * 1000;
+    public static final long DEFAULT_MAX_BYTES = 50L * 1024 * 1024;
+
+    private static DiskImageCache instance;
+
+    private final File directory;
+    private final File indexFile;
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long totalBytes;
+    private boolean indexWriteScheduled;
+    private boolean indexLoaded;
+
+    public static synchronized DiskImageCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new DiskImageCache(new File(context.getApplicationContext().getFilesDir(), DIRECTORY));
+        }
+        return instance;
+    }
+
+    /**
+     * Record an access to a file in the cache directory, if the cache has been created
+     * @param file File that was read
+     */
+    static void noteAccess(File file) {
+        DiskImageCache cache;
+        synchronized (DiskImageCache.class) {
+            cache = instance;
+        }
+        if (cache != null && cache.directory.equals(file.getParentFile())) {
+            cache.get(file.getName());
+        }
+    }
+
+    private DiskImageCache(File directory) {
+        this.directory = directory;
+        this.indexFile = new File(directory, INDEX_FILE);
+        // Everything touching the disk runs on the executor, in order: create, load, then compact
+        executor.execute(() -> {
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+            synchronized (this) {
+                readIndex();
+                indexLoaded = true;
+            }
+            compact();
+        });
+    }
+
+    /**
+     * @return Directory the cached files live in
+     */
+    public File getDirectory() {
+        // May be called before the executor has created it
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        return directory;
+    }
+
+    /**
+     * Change the byte budget, evicting immediately if the cache is now over it
+     * @param maxBytes New budget in bytes
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trimToSize();
+    }
+
+    /**
+     * @return Total size of the cached files in bytes
+     */
+    public synchronized long size() {
+        return totalBytes;
+    }
+
+    /**
+     * Look up a cached file and mark it as recently used
+     * @param name File name within the cache directory
+     * @return The file, or null if it is not cached
+     */
+    public synchronized File get(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            if (!indexLoaded) {
+                // Still loading; the index picks the file up once compaction runs
+                File file = new File(directory, name);
+                return file.exists() ? file : null;
+            }
+            return null;
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        scheduleIndexWrite();
+        return new File(directory, name);
+    }
+
+    /**
+     * Register a file that has just been written to the cache directory, then evict
+     * older files if the budget is exceeded
+     * @param name File name within the cache directory
+     */
+    public synchronized void put(String name) {
+        File file = new File(directory, name);
+        Entry previous = entries.remove(name);
+        if (previous != null) {
+            totalBytes -= previous.size;
+        }
+        if (!file.exists()) {
+            scheduleIndexWrite();
+            return;
+        }
+        Entry entry = new Entry(file.length(), System.currentTimeMillis());
+        entries.put(name, entry);
+        totalBytes += entry.size;
+        trimToSize();
+        scheduleIndexWrite();
+    }
+
+    /**
+     * Delete a file from the cache
+     * @param name File name within the cache directory
+     */
+    public synchronized void remove(String name) {
+        Entry entry = entries.remove(name);
+        if (entry != null) {
+            totalBytes -= entry.size;
+            new File(directory, name).delete();
+            scheduleIndexWrite();
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            new File(directory, eldest.getKey()).delete();
+            totalBytes -= eldest.getValue().size;
+            iterator.remove();
+            Log.d(TAG, "Evicted " + eldest.getKey());
+        }
+    }
+
+    // Coalesce index writes so a burst of accesses results in a single write
+    private void scheduleIndexWrite() {
+        if (indexWriteScheduled) {
+            return;
+        }
+        indexWriteScheduled = true;
+        executor.execute(this::writeIndex);
+    }
+
+    /**
+     * Reconcile the index with the directory: drop entries whose file is gone or has changed
+     * size, register files the index does not know about, delete stale temporary files and
+     * evict down to the budget
+     */
+    private void compact() {
+        synchronized (this) {
+            // Listed under the lock, so a put() cannot land between the listing and the reconcile
+            File[] files = directory.listFiles();
+            if (files == null) {
+                return;
+            }
+            Map<String, File> onDisk = new LinkedHashMap<>();
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith(INDEX_FILE)) {
+                    continue;
+                }
+                if (name.endsWith(".tmp")) {
+                    // Left behind by an interrupted write; recent ones may still be in progress
+                    if (System.currentTimeMillis() - file.lastModified() > STALE_TEMP_FILE_MS) {
+                        file.delete();
+                    }
+                    continue;
+                }
+                onDisk.put(name, file);
+            }
+
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> indexed = iterator.next();
+                File file = onDisk.remove(indexed.getKey());
+                if (file == null) {
+                    totalBytes -= indexed.getValue().size;
+                    iterator.remove();
+                } else if (file.length() != indexed.getValue().size) {
+                    totalBytes += file.length() - indexed.getValue().size;
+                    indexed.getValue().size = file.length();
+                }
+            }
+
+            // Untracked files are the oldest candidates, ordered by modification time
+            List<File> untracked = new ArrayList<>(onDisk.values());
+            untracked.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            LinkedHashMap<String, Entry> reordered = new LinkedHashMap<>();
+            for (File file : untracked) {
+                reordered.put(file.getName(), new Entry(file.length(), file.lastModified()));
+                totalBytes += file.length();
+            }
+            reordered.putAll(entries);
+            entries.clear();
+            entries.putAll(reordered);
+
+            trimToSize();
+            scheduleIndexWrite();
+        }
+        Log.d(TAG, "Compaction done, " + entries.size() + " files, " + totalBytes + " bytes");
+    }
+
+    private void readIndex() {
+        if (!indexFile.exists()) {
+            return;
+        }
+        LinkedHashMap<String, Entry> loaded = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                loaded.put(name, new Entry(in.readLong(), in.readLong()));
+            }
+        } catch (EOFException e) {
+            // Truncated index; compaction rebuilds whatever is missing
+            Log.w(TAG, "Index file truncated");
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading index", e);
+        }
+        // Files put before the index finished loading are the most recent, so they go last
+        for (String name : entries.keySet()) {
+            loaded.remove(name);
+        }
+        for (Entry entry : loaded.values()) {
+            totalBytes += entry.size;
+        }
+        loaded.putAll(entries);
+        entries.clear();
+        entries.putAll(loaded);
+    }
+
+    private void writeIndex() {
+        List<String> names;
+        List<Entry> snapshot;
+        synchronized (this) {
+            indexWriteScheduled = false;
+            names = new ArrayList<>(entries.keySet());
+            snapshot = new ArrayList<>(entries.size());
+            for (Entry entry : entries.values()) {
+                snapshot.add(new Entry(entry.size, entry.lastAccess));
+            }
+        }
+        File tempFile = new File(directory, INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                out.writeUTF(names.get(i));
+                out.writeLong(snapshot.get(i).size);
+                out.writeLong(snapshot.get(i).lastAccess);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing index", e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(indexFile)) {
+            Log.e(TAG, "Error replacing index file");
+            tempFile.delete();
+        }
+    }
+
+    private static class Entry {
+        long size;
+        long lastAccess;
+
+        Entry(long size, long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
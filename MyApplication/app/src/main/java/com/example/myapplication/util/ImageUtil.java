@@ -3,20 +3,51 @@ package com.example.myapplication.util;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class ImageUtil {
     private static final String TAG = "ImageUtil";
+    // Longest side of images saved to and loaded from internal storage by default
+    private static final int MAX_STORED_DIMENSION = 1600;
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+    // Source size and detail of BlurHash previews
+    private static final int BLUR_HASH_SOURCE_SIZE = 32;
+    private static final int BLUR_HASH_COMPONENTS_X = 4;
+    private static final int BLUR_HASH_COMPONENTS_Y = 3;
+    
+    // Dedicated, bounded pool for decoding and encoding so image work never runs on the caller's thread
+    private static final ExecutorService IMAGE_EXECUTOR = new ThreadPoolExecutor(
+            2, 2, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(64));
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final BitmapPool BITMAP_POOL = new BitmapPool();
     
     public static File createImageFile(Context context) throws IOException {
         // Create an image file name
@@ -31,45 +62,441 @@ public class ImageUtil {
         );
     }
     
+    /**
+     * Save a subsampled, upright copy of an image into the course_photos cache directory.
+     * The decode is capped at {@link #MAX_STORED_DIMENSION}, and the encoder streams straight
+     * into a temporary file that is renamed into place once complete.
+     * Must be called from a background thread; see {@link #saveImageToInternalStorageAsync}.
+     *
+     * @return Absolute path of the saved file, or null on failure
+     */
     public static String saveImageToInternalStorage(Context context, Uri imageUri, String fileName) {
         try {
-            InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
-            if (inputStream == null) {
-                return null;
+            // First pass: read the dimensions only
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            try (InputStream boundsStream = context.getContentResolver().openInputStream(imageUri)) {
+                if (boundsStream == null) {
+                    return null;
+                }
+                BitmapFactory.decodeStream(boundsStream, null, options);
             }
-            
-            Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-            inputStream.close();
-            
-            // Create directory if it doesn't exist
-            File directory = new File(context.getFilesDir(), "course_photos");
-            if (!directory.exists()) {
-                directory.mkdirs();
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
             }
             
-            // Create file
+            // The directory is managed by the disk cache, which evicts old photos over budget
+            DiskImageCache cache = DiskImageCache.getInstance(context);
+            File directory = cache.getDirectory();
             File file = new File(directory, fileName + ".jpg");
-            FileOutputStream fos = new FileOutputStream(file);
+            File tempFile = new File(directory, fileName + ".jpg.tmp");
             
-            // Compress bitmap to jpeg with 85% quality
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 85, fos);
-            fos.flush();
-            fos.close();
+            int sampleSize = calculateInSampleSize(options.outWidth, options.outHeight, MAX_STORED_DIMENSION);
+            // BitmapFactory ignores EXIF, so rotated photos are decoded and turned upright
+            int orientation = readOrientation(context, imageUri);
+            // inSampleSize stays 1 up to twice the cap, so compare the dimensions themselves
+            if (Math.max(options.outWidth, options.outHeight) <= MAX_STORED_DIMENSION
+                    && "image/jpeg".equals(options.outMimeType)
+                    && orientation == ExifInterface.ORIENTATION_NORMAL) {
+                // Already small enough: copy the original bytes without decoding
+                try (InputStream in = context.getContentResolver().openInputStream(imageUri);
+                     OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                    if (in == null) {
+                        return null;
+                    }
+                    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+            } else {
+                // Second pass: subsampled decode, compressed straight to disk
+                options.inJustDecodeBounds = false;
+                options.inSampleSize = sampleSize;
+                Bitmap bitmap;
+                try (InputStream in = context.getContentResolver().openInputStream(imageUri)) {
+                    bitmap = BitmapFactory.decodeStream(in, null, options);
+                }
+                if (bitmap == null) {
+                    return null;
+                }
+                bitmap = scaleAndRotate(bitmap, MAX_STORED_DIMENSION, orientation);
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                    // Compress bitmap to jpeg with 85% quality
+                    bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+                } finally {
+                    bitmap.recycle();
+                }
+            }
             
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                return null;
+            }
+            cache.put(file.getName());
             return file.getAbsolutePath();
-        } catch (IOException e) {
+        } catch (IOException | SecurityException e) {
             Log.e(TAG, "Error saving image", e);
             return null;
         }
     }
     
+    /**
+     * Run {@link #saveImageToInternalStorage} on the image executor
+     *
+     * @param callback Receives the saved file path on the main thread
+     */
+    public static void saveImageToInternalStorageAsync(Context context, Uri imageUri, String fileName,
+            ImageCallback<String> callback) {
+        Context appContext = context.getApplicationContext();
+        submit(() -> saveImageToInternalStorage(appContext, imageUri, fileName), "Error saving image", callback);
+    }
+    
+    /**
+     * @param courseId Course ID
+     * @return Name, without extension, of the on-device copy of a course's image
+     */
+    public static String localCourseImageName(long courseId) {
+        return "course_" + courseId;
+    }
+    
+    /**
+     * Look up the on-device copy of a course's image, saved while its upload is pending
+     *
+     * @return The file, or null if there is no copy
+     */
+    public static File getLocalCourseImage(Context context, long courseId) {
+        return DiskImageCache.getInstance(context).get(localCourseImageName(courseId) + ".jpg");
+    }
+    
+    /**
+     * Delete the on-device copy of a course's image, e.g. once the image is removed
+     */
+    public static void deleteLocalCourseImage(Context context, long courseId) {
+        DiskImageCache.getInstance(context).remove(localCourseImageName(courseId) + ".jpg");
+    }
+    
     public static Bitmap loadImageFromStorage(String path) {
+        return loadImageFromStorage(path, MAX_STORED_DIMENSION, MAX_STORED_DIMENSION);
+    }
+    
+    /**
+     * Load a stored image subsampled to roughly the requested size. A previously released
+     * bitmap is reused as the decode target when one is large enough.
+     * Must be called from a background thread; see {@link #loadImageFromStorageAsync}.
+     *
+     * @param path Absolute path of the image
+     * @param reqWidth Width of the target view, in pixels
+     * @param reqHeight Height of the target view, in pixels
+     * @return Decoded bitmap, or null on failure
+     */
+    public static Bitmap loadImageFromStorage(String path, int reqWidth, int reqHeight) {
         try {
-            File file = new File(path);
-            return BitmapFactory.decodeFile(file.getAbsolutePath());
+            // First pass: read the dimensions only
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(path, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+            DiskImageCache.noteAccess(new File(path));
+            
+            // Second pass: subsampled decode into a reusable bitmap when possible
+            options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                    Math.max(reqWidth, reqHeight));
+            options.inJustDecodeBounds = false;
+            options.inMutable = true;
+            options.inBitmap = BITMAP_POOL.take(options);
+            try {
+                return BitmapFactory.decodeFile(path, options);
+            } catch (IllegalArgumentException e) {
+                // The pooled bitmap could not be reused for this image; decode into a new one
+                options.inBitmap = null;
+                return BitmapFactory.decodeFile(path, options);
+            }
         } catch (Exception e) {
             Log.e(TAG, "Error loading image", e);
             return null;
         }
     }
+    
+    /**
+     * Run {@link #loadImageFromStorage(String, int, int)} on the image executor
+     *
+     * @param callback Receives the bitmap on the main thread
+     */
+    public static void loadImageFromStorageAsync(String path, int reqWidth, int reqHeight,
+            ImageCallback<Bitmap> callback) {
+        submit(() -> loadImageFromStorage(path, reqWidth, reqHeight), "Error loading image", callback);
+    }
+    
+    /**
+     * Hand a bitmap that is no longer displayed back for reuse by later decodes
+     */
+    public static void releaseBitmap(Bitmap bitmap) {
+        if (bitmap != null && bitmap.isMutable() && !bitmap.isRecycled()) {
+            BITMAP_POOL.put(bitmap);
+        }
+    }
+    
+    private static <T> void submit(Callable<T> work, String errorMessage, ImageCallback<T> callback) {
+        try {
+            IMAGE_EXECUTOR.execute(() -> {
+                T result = null;
+                try {
+                    result = work.call();
+                } catch (Exception e) {
+                    Log.e(TAG, errorMessage, e);
+                }
+                T finalResult = result;
+                MAIN_HANDLER.post(() -> {
+                    if (finalResult != null) {
+                        callback.onSuccess(finalResult);
+                    } else {
+                        callback.onFailure(errorMessage);
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Image executor is full", e);
+            MAIN_HANDLER.post(() -> callback.onFailure("Too many pending image operations"));
+        }
+    }
+
+    /**
+     * Callback interface for asynchronous image operations
+     */
+    public interface ImageCallback<T> {
+        void onSuccess(T result);
+        void onFailure(String errorMessage);
+    }
+
+    // Small set of released mutable bitmaps that decodes can draw into instead of allocating
+    private static class BitmapPool {
+        private static final int MAX_SIZE = 4;
+        private final List<Bitmap> bitmaps = new ArrayList<>();
+
+        synchronized Bitmap take(BitmapFactory.Options options) {
+            int width = options.outWidth / options.inSampleSize;
+            int height = options.outHeight / options.inSampleSize;
+            long needed = (long) width * height * 4;
+            for (int i = 0; i < bitmaps.size(); i++) {
+                Bitmap candidate = bitmaps.get(i);
+                if (candidate.getAllocationByteCount() >= needed) {
+                    return bitmaps.remove(i);
+                }
+            }
+            return null;
+        }
+
+        synchronized void put(Bitmap bitmap) {
+            if (bitmaps.size() >= MAX_SIZE) {
+                bitmaps.remove(0).recycle();
+            }
+            bitmaps.add(bitmap);
+        }
+    }
+
+    /**
+     * Compute a BlurHash preview of a prepared image. The image is decoded at a few dozen
+     * pixels a side, which is all the hash can represent anyway.
+     * Must be called from a background thread.
+     *
+     * @param image Prepared image, ideally the smallest variant
+     * @return BlurHash string, or null if the image could not be decoded
+     */
+    public static String computeBlurHash(PreparedImage image) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(image.width, image.height, BLUR_HASH_SOURCE_SIZE);
+        Bitmap bitmap = BitmapFactory.decodeByteArray(image.data, 0, image.data.length, options);
+        if (bitmap == null) {
+            return null;
+        }
+        try {
+            return BlurHash.encode(bitmap, BLUR_HASH_COMPONENTS_X, BLUR_HASH_COMPONENTS_Y);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Decode an image at reduced size, apply its EXIF orientation and re-encode it for upload.
+     * The image is subsampled while decoding, so the full-resolution original is never held in memory.
+     * Must be called from a background thread.
+     *
+     * @param context Context used to open the image
+     * @param imageUri Image picked by the user
+     * @param maxDimension Maximum width or height of the result, in pixels
+     * @param quality Encoder quality, 0-100
+     * @return Encoded image ready to upload
+     * @throws IOException if the image cannot be read or decoded
+     */
+    public static PreparedImage prepareForUpload(Context context, Uri imageUri, int maxDimension, int quality)
+            throws IOException {
+        return prepareVariantsForUpload(context, imageUri, new int[]{maxDimension}, quality).get(0);
+    }
+
+    /**
+     * Like {@link #prepareForUpload}, but produces one encoded image per requested size from a
+     * single decode. Each smaller variant is scaled from the previous one.
+     *
+     * @param maxDimensions Maximum width or height of each variant, in pixels, largest first
+     * @return Encoded images in the same order as maxDimensions
+     */
+    public static List<PreparedImage> prepareVariantsForUpload(Context context, Uri imageUri,
+            int[] maxDimensions, int quality) throws IOException {
+        // First pass: read the dimensions only
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream boundsStream = context.getContentResolver().openInputStream(imageUri)) {
+            if (boundsStream == null) {
+                throw new IOException("Cannot open image: " + imageUri);
+            }
+            BitmapFactory.decodeStream(boundsStream, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Unsupported image: " + imageUri);
+        }
+
+        // Second pass: decode at the smallest power-of-two size still covering the largest variant
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, maxDimensions[0]);
+        options.inJustDecodeBounds = false;
+        Bitmap decoded;
+        try (InputStream decodeStream = context.getContentResolver().openInputStream(imageUri)) {
+            decoded = BitmapFactory.decodeStream(decodeStream, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Failed to decode image: " + imageUri);
+        }
+
+        List<PreparedImage> variants = new ArrayList<>(maxDimensions.length);
+        Bitmap current = scaleAndRotate(decoded, maxDimensions[0], readOrientation(context, imageUri));
+        try {
+            variants.add(encode(current, quality));
+            for (int i = 1; i < maxDimensions.length; i++) {
+                current = scaleAndRotate(current, maxDimensions[i], ExifInterface.ORIENTATION_NORMAL);
+                variants.add(encode(current, quality));
+            }
+        } finally {
+            current.recycle();
+        }
+        return variants;
+    }
+
+    private static PreparedImage encode(Bitmap bitmap, int quality) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean webp = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+        bitmap.compress(webp ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.JPEG, quality, out);
+        return new PreparedImage(out.toByteArray(), webp ? "image/webp" : "image/jpeg",
+                webp ? ".webp" : ".jpg", bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    /**
+     * @return Largest power-of-two sample size that keeps the longer side at least maxDimension
+     */
+    public static int calculateInSampleSize(int width, int height, int maxDimension) {
+        int longest = Math.max(width, height);
+        int sampleSize = 1;
+        while (longest / (sampleSize * 2) >= maxDimension) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static int readOrientation(Context context, Uri imageUri) {
+        try (InputStream exifStream = context.getContentResolver().openInputStream(imageUri)) {
+            if (exifStream == null) {
+                return ExifInterface.ORIENTATION_NORMAL;
+            }
+            return new ExifInterface(exifStream).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read EXIF orientation", e);
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    // Scale the longer side down to maxDimension and apply the EXIF rotation in a single pass
+    private static Bitmap scaleAndRotate(Bitmap source, int maxDimension, int orientation) {
+        Matrix matrix = new Matrix();
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        if (longest > maxDimension) {
+            float scale = (float) maxDimension / longest;
+            matrix.postScale(scale, scale);
+        }
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            default:
+                break;
+        }
+        if (matrix.isIdentity()) {
+            return source;
+        }
+        Bitmap result = Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
+        if (result != source) {
+            source.recycle();
+        }
+        return result;
+    }
+
+    /**
+     * Encoded image produced by {@link #prepareForUpload}
+     */
+    public static class PreparedImage {
+        public final byte[] data;
+        public final String mimeType;
+        public final String extension;
+        public final int width;
+        public final int height;
+
+        PreparedImage(byte[] data, String mimeType, String extension, int width, int height) {
+            this.data = data;
+            this.mimeType = mimeType;
+            this.extension = extension;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * SHA-256 of the encoded bytes as lowercase hex. Identical images prepared with the
+         * same settings produce the same hash, so it can serve as a storage key.
+         */
+        public String contentHash() {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+                StringBuilder hex = new StringBuilder(digest.length * 2);
+                for (byte b : digest) {
+                    hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+                    hex.append(Character.forDigit(b & 0xF, 16));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                // SHA-256 is guaranteed to be available on Android
+                throw new IllegalStateException(e);
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,241 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Instance;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Column store for large numbers of class instances. Every field lives in its own primitive
+ * array (ids, dates, prices, ...) and the repeated strings, location and instructor, are
+ * dictionary-encoded into int columns. A row costs about 40 bytes instead of an Instance
+ * object plus its Strings, and filters, counts and sums are plain loops over arrays.
+ * Rows are append-only. Not thread-safe; build it on one thread, then only read it.
+ */
+public class InstanceCatalog {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] courseIds = new long[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private int[] minutes = new int[INITIAL_CAPACITY];
+    private int[] capacities = new int[INITIAL_CAPACITY];
+    private float[] prices = new float[INITIAL_CAPACITY];
+    private int[] locations = new int[INITIAL_CAPACITY];
+    private int[] instructors = new int[INITIAL_CAPACITY];
+    private final StringDictionary locationDictionary = new StringDictionary();
+    private final StringDictionary instructorDictionary = new StringDictionary();
+
+    public InstanceCatalog() {
+    }
+
+    public InstanceCatalog(List<Instance> instances) {
+        ensureCapacity(instances.size());
+        for (Instance instance : instances) {
+            add(instance);
+        }
+    }
+
+    /**
+     * Append an instance; the Instance object itself is not retained
+     * @return Row of the new entry
+     */
+    public int add(Instance instance) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        ids[row] = instance.getId();
+        courseIds[row] = instance.getCourseId();
+        epochDays[row] = instance.getEpochDay();
+        minutes[row] = instance.getMinuteOfDay();
+        capacities[row] = instance.getCapacity();
+        prices[row] = instance.getPrice();
+        locations[row] = locationDictionary.encode(instance.getLocation());
+        instructors[row] = instructorDictionary.encode(instance.getInstructor());
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Rebuild the Instance stored in a row, e.g. to show a selected result
+     */
+    public Instance get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        Instance instance = new Instance();
+        instance.setId(ids[row]);
+        instance.setCourseId(courseIds[row]);
+        instance.setEpochDay(epochDays[row]);
+        instance.setMinuteOfDay(minutes[row]);
+        instance.setCapacity(capacities[row]);
+        instance.setPrice(prices[row]);
+        instance.setLocation(locationDictionary.decode(locations[row]));
+        instance.setInstructor(instructorDictionary.decode(instructors[row]));
+        return instance;
+    }
+
+    /**
+     * @return Rows matching the query, in insertion order
+     */
+    public int[] select(Query query) {
+        Scan scan = new Scan(query);
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (scan.matches(row)) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * @return Number of classes matching the query
+     */
+    public int count(Query query) {
+        Scan scan = new Scan(query);
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (scan.matches(row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Total places offered by the classes matching the query
+     */
+    public long sumCapacity(Query query) {
+        Scan scan = new Scan(query);
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            if (scan.matches(row)) {
+                total += capacities[row];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return Revenue if every matching class sold out: the sum of price x capacity
+     */
+    public double sumRevenuePotential(Query query) {
+        Scan scan = new Scan(query);
+        double total = 0;
+        for (int row = 0; row < size; row++) {
+            if (scan.matches(row)) {
+                total += (double) prices[row] * capacities[row];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Count matching classes per instructor
+     * @return Counts indexed by instructor code; see {@link #instructorName(int)}
+     */
+    public int[] countByInstructor(Query query) {
+        Scan scan = new Scan(query);
+        int[] counts = new int[instructorDictionary.size()];
+        for (int row = 0; row < size; row++) {
+            int code = instructors[row];
+            if (code != StringDictionary.NULL_CODE && scan.matches(row)) {
+                counts[code]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @param code Index into the array returned by {@link #countByInstructor}
+     * @return Instructor name
+     */
+    public String instructorName(int code) {
+        return instructorDictionary.decode(code);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int newLength = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, newLength);
+        courseIds = Arrays.copyOf(courseIds, newLength);
+        epochDays = Arrays.copyOf(epochDays, newLength);
+        minutes = Arrays.copyOf(minutes, newLength);
+        capacities = Arrays.copyOf(capacities, newLength);
+        prices = Arrays.copyOf(prices, newLength);
+        locations = Arrays.copyOf(locations, newLength);
+        instructors = Arrays.copyOf(instructors, newLength);
+    }
+
+    // Marks which dictionary codes a text criterion accepts, matching case-insensitively
+    private static boolean[] acceptedCodes(StringDictionary dictionary, String value) {
+        if (value == null) {
+            return null;
+        }
+        String key = value.trim().toLowerCase(Locale.ROOT);
+        boolean[] accepted = new boolean[dictionary.size()];
+        for (int code = 0; code < accepted.length; code++) {
+            accepted[code] = dictionary.decode(code).trim().toLowerCase(Locale.ROOT).equals(key);
+        }
+        return accepted;
+    }
+
+    // A query resolved against the columns: string criteria become code lookups
+    private class Scan {
+        private final boolean anyCourse;
+        private final long courseId;
+        private final boolean anyDay;
+        private final int fromDay;
+        private final int toDay;
+        private final boolean[] acceptedLocations;
+        private final boolean[] acceptedInstructors;
+
+        Scan(Query query) {
+            anyCourse = query.courseId == null;
+            courseId = anyCourse ? 0 : query.courseId;
+            anyDay = query.fromDay == null && query.toDay == null;
+            fromDay = query.fromDay != null ? query.fromDay : Integer.MIN_VALUE;
+            toDay = query.toDay != null ? query.toDay : Integer.MAX_VALUE;
+            acceptedLocations = acceptedCodes(locationDictionary, query.location);
+            acceptedInstructors = acceptedCodes(instructorDictionary, query.instructor);
+        }
+
+        boolean matches(int row) {
+            if (!anyCourse && courseIds[row] != courseId) {
+                return false;
+            }
+            if (!anyDay) {
+                // Classes without a valid date never fall within a range
+                int day = epochDays[row];
+                if (day == ScheduleTime.INVALID_DAY || day < fromDay || day > toDay) {
+                    return false;
+                }
+            }
+            return accepts(acceptedLocations, locations[row]) && accepts(acceptedInstructors, instructors[row]);
+        }
+
+        private boolean accepts(boolean[] accepted, int code) {
+            return accepted == null || (code != StringDictionary.NULL_CODE && accepted[code]);
+        }
+    }
+
+    /**
+     * Criteria for the aggregate methods; null fields are not filtered on
+     */
+    public static class Query {
+        public Long courseId;
+        // Days since 1970-01-01, inclusive
+        public Integer fromDay;
+        public Integer toDay;
+        public String location;
+        public String instructor;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Instance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Instances sorted by date and start time, with the sort keys in a parallel primitive array
+ * so date-range queries are two binary searches. Instances without a valid date sort last
+ * and never match a range.
+ */
+public class InstanceTimeline {
+    private final Instance[] sorted;
+    // epochDay * MINUTES_PER_DAY + minuteOfDay, matching the order of sorted
+    private final long[] keys;
+
+    public InstanceTimeline(List<Instance> instances) {
+        sorted = instances.toArray(new Instance[0]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(sortKey(a), sortKey(b)));
+        keys = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            keys[i] = sortKey(sorted[i]);
+        }
+    }
+
+    /**
+     * @return All instances in date and time order
+     */
+    public List<Instance> all() {
+        return Collections.unmodifiableList(Arrays.asList(sorted));
+    }
+
+    /**
+     * @param fromDay First day, inclusive, as days since 1970-01-01
+     * @param toDay Last day, inclusive
+     * @return Instances on those days, in date and time order
+     */
+    public List<Instance> between(int fromDay, int toDay) {
+        if (toDay < fromDay) {
+            return Collections.emptyList();
+        }
+        int start = lowerBound((long) fromDay * ScheduleTime.MINUTES_PER_DAY);
+        int end = lowerBound((long) (toDay + 1) * ScheduleTime.MINUTES_PER_DAY);
+        return new ArrayList<>(Arrays.asList(sorted).subList(start, end));
+    }
+
+    /**
+     * @param today Today, as days since 1970-01-01
+     * @param days Number of days including today
+     * @return Instances from today through the following days
+     */
+    public List<Instance> nextDays(int today, int days) {
+        return between(today, today + days - 1);
+    }
+
+    /**
+     * @param year Year, e.g. 2025
+     * @param month Month, 1-12
+     * @return Instances in that calendar month
+     */
+    public List<Instance> inMonth(int year, int month) {
+        int first = ScheduleTime.toEpochDay(year, month, 1);
+        int next = month == 12 ? ScheduleTime.toEpochDay(year + 1, 1, 1) : ScheduleTime.toEpochDay(year, month + 1, 1);
+        return between(first, next - 1);
+    }
+
+    /**
+     * @return Today in the device's time zone, as days since 1970-01-01
+     */
+    public static int today() {
+        Calendar calendar = Calendar.getInstance();
+        return ScheduleTime.toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    // First position whose key is >= the given key
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long sortKey(Instance instance) {
+        if (instance.getEpochDay() == ScheduleTime.INVALID_DAY) {
+            return Long.MAX_VALUE;
+        }
+        // Classes without a valid time sort first within their day
+        return (long) instance.getEpochDay() * ScheduleTime.MINUTES_PER_DAY + Math.max(instance.getMinuteOfDay(), 0);
+    }
+}
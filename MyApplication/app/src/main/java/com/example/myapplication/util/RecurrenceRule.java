@@ -0,0 +1,144 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Instance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Weekly recurrence of a class, e.g. every Monday at 09:00 for 12 weeks.
+ * Expanding the rule produces one Instance per occurrence, skipping exception dates.
+ */
+public class RecurrenceRule {
+    public static final String DATE_PATTERN = "yyyy-MM-dd";
+    private static final String[] DAY_NAMES = {
+            "Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"};
+    // Instance IDs are courseId * DAYS_PER_COURSE + epochDay, so both must stay within these bounds
+    private static final long DAYS_PER_COURSE = 100_000L;
+    /** Last day a class may fall on, 2243-10-16 */
+    static final int MAX_EPOCH_DAY = (int) DAYS_PER_COURSE - 1;
+    /** Largest course ID whose instance IDs fit in a long; millisecond course IDs are far below it */
+    public static final long MAX_COURSE_ID = (Long.MAX_VALUE - MAX_EPOCH_DAY) / DAYS_PER_COURSE;
+
+    private final String startDate;
+    private final int dayOfWeek;
+    private final String time;
+    private final int weeks;
+    private final int intervalWeeks;
+    private final Set<Integer> exceptionDays;
+
+    /**
+     * @param startDate First date the schedule may start on, yyyy-MM-dd
+     * @param dayOfWeek Day name as used by courses, e.g. "Monday"
+     * @param time Start time, HH:mm
+     * @param weeks Number of weeks the schedule spans
+     * @param intervalWeeks 1 for weekly, 2 for fortnightly, ...
+     * @param exceptionDates Dates to skip, yyyy-MM-dd
+     */
+    public RecurrenceRule(String startDate, String dayOfWeek, String time, int weeks, int intervalWeeks,
+                          Set<String> exceptionDates) {
+        int day = -1;
+        for (int i = 0; i < DAY_NAMES.length; i++) {
+            if (DAY_NAMES[i].equalsIgnoreCase(dayOfWeek)) {
+                day = i + Calendar.SUNDAY;
+                break;
+            }
+        }
+        if (day < 0) {
+            throw new IllegalArgumentException("Unknown day of week: " + dayOfWeek);
+        }
+        if (!ValidationUtil.isValidDate(startDate)) {
+            throw new IllegalArgumentException("Invalid start date: " + startDate);
+        }
+        if (!ValidationUtil.isValidTime(time)) {
+            throw new IllegalArgumentException("Invalid time: " + time);
+        }
+        if (weeks <= 0 || intervalWeeks <= 0) {
+            throw new IllegalArgumentException("Weeks and interval must be positive");
+        }
+        int start = ScheduleTime.parseEpochDay(startDate);
+        if (start < 0 || start + 6 + 7L * (weeks - 1) > MAX_EPOCH_DAY) {
+            throw new IllegalArgumentException("Schedule must fall between 1970 and 2243");
+        }
+        this.startDate = startDate;
+        this.dayOfWeek = day;
+        this.time = time;
+        this.weeks = weeks;
+        this.intervalWeeks = intervalWeeks;
+        this.exceptionDays = new HashSet<>();
+        if (exceptionDates != null) {
+            for (String date : exceptionDates) {
+                this.exceptionDays.add(ScheduleTime.parseEpochDay(date));
+            }
+        }
+    }
+
+    /**
+     * @return Dates of every occurrence, in order, excluding exception dates
+     */
+    public List<String> occurrenceDates() {
+        int[] days = occurrenceDays();
+        List<String> dates = new ArrayList<>(days.length);
+        for (int day : days) {
+            dates.add(ScheduleTime.formatEpochDay(day));
+        }
+        return dates;
+    }
+
+    /**
+     * Expand the rule into instances copying the template's details. Instance IDs are derived
+     * from the course ID and the date, so expanding the same rule again yields the same IDs and
+     * saving it twice overwrites the classes instead of duplicating them. A rule produces at
+     * most one class per day, and any rule for the same course replaces that course's class on
+     * a date they share.
+     * @param template Course ID, location, capacity, instructor and price shared by every occurrence
+     * @return One instance per occurrence
+     * @throws IllegalArgumentException if the course ID is negative or above {@link #MAX_COURSE_ID}
+     */
+    public List<Instance> expand(Instance template) {
+        if (template.getCourseId() < 0 || template.getCourseId() > MAX_COURSE_ID) {
+            throw new IllegalArgumentException("Course ID out of range: " + template.getCourseId());
+        }
+        int[] days = occurrenceDays();
+        List<Instance> instances = new ArrayList<>(days.length);
+        for (int day : days) {
+            Instance instance = new Instance(template.getCourseId(), ScheduleTime.formatEpochDay(day), time,
+                    template.getLocation(), template.getCapacity(), template.getInstructor(), template.getPrice());
+            instance.setId(instanceId(template.getCourseId(), day));
+            instances.add(instance);
+        }
+        return instances;
+    }
+
+    /**
+     * ID of a course's class on a given day; distinct (course, day) pairs never share an ID.
+     * Course IDs are creation times in milliseconds, which keeps these IDs well above the ones
+     * generated from the current time elsewhere.
+     * @param courseId Course the class belongs to, 0 to {@link #MAX_COURSE_ID}
+     * @param epochDay Days since 1970-01-01, 0 to {@link #MAX_EPOCH_DAY}
+     */
+    static long instanceId(long courseId, int epochDay) {
+        return courseId * DAYS_PER_COURSE + epochDay;
+    }
+
+    // Days since 1970-01-01 of every occurrence, in order, excluding exception dates
+    private int[] occurrenceDays() {
+        int start = ScheduleTime.parseEpochDay(startDate);
+        // Move forward to the first matching weekday
+        int first = start + Math.floorMod(dayOfWeek - ScheduleTime.dayOfWeek(start), 7);
+
+        int[] days = new int[(weeks + intervalWeeks - 1) / intervalWeeks];
+        int count = 0;
+        for (int week = 0; week < weeks; week += intervalWeeks) {
+            int day = first + week * 7;
+            if (!exceptionDays.contains(day)) {
+                days[count++] = day;
+            }
+        }
+        return Arrays.copyOf(days, count);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.myapplication.util;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads records one at a time from a CSV or JSON document, so a file of any size is imported
+ * with constant memory. Each record is delivered as field name to value, using the CSV header
+ * or the JSON object keys; names are lower-cased so either source maps the same way.
+ */
+public abstract class RowReader implements Closeable {
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_JSON = "json";
+
+    /**
+     * @param format {@link #FORMAT_CSV}, or {@link #FORMAT_JSON} for an array of objects
+     * @param reader Source, ideally buffered
+     */
+    public static RowReader open(String format, Reader reader) {
+        return FORMAT_JSON.equals(format) ? new JsonRows(reader) : new CsvRows(reader);
+    }
+
+    /**
+     * Read the next record into a map, replacing its previous contents
+     * @return false at the end of the document
+     */
+    public abstract boolean next(Map<String, String> row) throws IOException;
+
+    static String fieldName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // RFC 4180 CSV: a header line, quoted fields may contain commas, quotes ("") and line breaks
+    private static class CsvRows extends RowReader {
+        private final Reader reader;
+        private final StringBuilder field = new StringBuilder();
+        private final List<String> values = new ArrayList<>();
+        private List<String> header;
+        private int pending = -2; // Lookahead character; -2 when none
+
+        CsvRows(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean next(Map<String, String> row) throws IOException {
+            if (header == null) {
+                if (!readRecord()) {
+                    return false;
+                }
+                header = new ArrayList<>(values.size());
+                for (String name : values) {
+                    header.add(fieldName(name));
+                }
+            }
+            // Skip blank lines
+            do {
+                if (!readRecord()) {
+                    return false;
+                }
+            } while (values.size() == 1 && values.get(0).isEmpty());
+
+            row.clear();
+            for (int i = 0; i < header.size() && i < values.size(); i++) {
+                row.put(header.get(i), values.get(i));
+            }
+            return true;
+        }
+
+        private boolean readRecord() throws IOException {
+            values.clear();
+            field.setLength(0);
+            int c = read();
+            if (c == -1) {
+                return false;
+            }
+            if (c == '\uFEFF') {
+                // Byte order mark written by spreadsheet exports
+                c = read();
+            }
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        int following = read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            unread(following);
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        int following = read();
+                        if (following != '\n') {
+                            unread(following);
+                        }
+                    }
+                    values.add(field.toString());
+                    return true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        private void unread(int c) {
+            pending = c;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    // A top-level JSON array of flat objects; nested values are skipped
+    private static class JsonRows extends RowReader {
+        private final JsonReader reader;
+        private boolean started;
+
+        JsonRows(Reader reader) {
+            this.reader = new JsonReader(reader);
+        }
+
+        @Override
+        public boolean next(Map<String, String> row) throws IOException {
+            if (!started) {
+                reader.beginArray();
+                started = true;
+            }
+            if (!reader.hasNext()) {
+                return false;
+            }
+            row.clear();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = fieldName(reader.nextName());
+                JsonToken token = reader.peek();
+                if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                    // nextString() returns numbers as written, without a double round trip
+                    row.put(name, reader.nextString());
+                } else if (token == JsonToken.BOOLEAN) {
+                    row.put(name, String.valueOf(reader.nextBoolean()));
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
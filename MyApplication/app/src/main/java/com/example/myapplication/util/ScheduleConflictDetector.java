@@ -0,0 +1,254 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Instance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Detects instructors or locations booked for two classes at once.
+ * Each class occupies [start, start + course duration) in minutes since the epoch.
+ * Per instructor and per location, booked intervals are kept in a TreeMap by start time
+ * together with the longest interval seen, so only intervals starting within that distance
+ * before a candidate can overlap it and a clash check is a single range lookup.
+ */
+public class ScheduleConflictDetector {
+    // Used when a class's course, and therefore its duration, is unknown
+    public static final int DEFAULT_DURATION_MINUTES = 60;
+
+    private final Map<Long, Integer> courseDurations;
+    private final Map<String, IntervalIndex> instructors = new HashMap<>();
+    private final Map<String, IntervalIndex> locations = new HashMap<>();
+
+    /**
+     * @param courseDurations Duration in minutes by course ID
+     */
+    public ScheduleConflictDetector(Map<Long, Integer> courseDurations) {
+        this.courseDurations = courseDurations;
+    }
+
+    /**
+     * Add a booked class to the index; classes with an invalid date or time are ignored
+     */
+    public void add(Instance instance) {
+        Interval interval = toInterval(instance, courseDurations);
+        if (interval == null) {
+            return;
+        }
+        if (interval.instructorKey != null) {
+            indexFor(instructors, interval.instructorKey).add(interval);
+        }
+        if (interval.locationKey != null) {
+            indexFor(locations, interval.locationKey).add(interval);
+        }
+    }
+
+    public void addAll(List<Instance> instances) {
+        for (Instance instance : instances) {
+            add(instance);
+        }
+    }
+
+    /**
+     * Remove a class from the index, e.g. before checking an edited version of it
+     */
+    public void remove(Instance instance) {
+        Interval interval = toInterval(instance, courseDurations);
+        if (interval == null) {
+            return;
+        }
+        if (interval.instructorKey != null && instructors.containsKey(interval.instructorKey)) {
+            instructors.get(interval.instructorKey).remove(interval);
+        }
+        if (interval.locationKey != null && locations.containsKey(interval.locationKey)) {
+            locations.get(interval.locationKey).remove(interval);
+        }
+    }
+
+    /**
+     * Find indexed classes that clash with a candidate; the candidate itself (same ID) is skipped
+     * @param candidate Class to check
+     * @return Clashes, empty if the candidate can be booked
+     */
+    public List<Conflict> findConflicts(Instance candidate) {
+        List<Conflict> conflicts = new ArrayList<>();
+        Interval interval = toInterval(candidate, courseDurations);
+        if (interval == null) {
+            return conflicts;
+        }
+        if (interval.instructorKey != null && instructors.containsKey(interval.instructorKey)) {
+            instructors.get(interval.instructorKey).collectOverlaps(interval, Conflict.Kind.INSTRUCTOR, conflicts);
+        }
+        if (interval.locationKey != null && locations.containsKey(interval.locationKey)) {
+            locations.get(interval.locationKey).collectOverlaps(interval, Conflict.Kind.LOCATION, conflicts);
+        }
+        return conflicts;
+    }
+
+    /**
+     * Check a whole schedule at once. Classes are sorted by start time per instructor and per
+     * location and swept once, so the cost is O(n log n) regardless of how many clash.
+     * @param instances Classes to check
+     * @param courseDurations Duration in minutes by course ID
+     * @return One conflict for every class that overlaps an earlier class sharing its
+     *         instructor or location
+     */
+    public static List<Conflict> scanAll(List<Instance> instances, Map<Long, Integer> courseDurations) {
+        Map<String, List<Interval>> byInstructor = new HashMap<>();
+        Map<String, List<Interval>> byLocation = new HashMap<>();
+        for (Instance instance : instances) {
+            Interval interval = toInterval(instance, courseDurations);
+            if (interval == null) {
+                continue;
+            }
+            if (interval.instructorKey != null) {
+                listFor(byInstructor, interval.instructorKey).add(interval);
+            }
+            if (interval.locationKey != null) {
+                listFor(byLocation, interval.locationKey).add(interval);
+            }
+        }
+        List<Conflict> conflicts = new ArrayList<>();
+        for (List<Interval> intervals : byInstructor.values()) {
+            sweep(intervals, Conflict.Kind.INSTRUCTOR, conflicts);
+        }
+        for (List<Interval> intervals : byLocation.values()) {
+            sweep(intervals, Conflict.Kind.LOCATION, conflicts);
+        }
+        return conflicts;
+    }
+
+    private static void sweep(List<Interval> intervals, Conflict.Kind kind, List<Conflict> conflicts) {
+        Interval[] sorted = intervals.toArray(new Interval[0]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(a.start, b.start));
+        // The interval reaching furthest so far; anything starting before its end overlaps it
+        Interval furthest = null;
+        for (Interval interval : sorted) {
+            if (furthest != null && interval.start < furthest.end) {
+                conflicts.add(new Conflict(interval.instance, furthest.instance, kind));
+            }
+            if (furthest == null || interval.end > furthest.end) {
+                furthest = interval;
+            }
+        }
+    }
+
+    private static Interval toInterval(Instance instance, Map<Long, Integer> courseDurations) {
+        int day = instance.getEpochDay();
+        int minute = instance.getMinuteOfDay();
+        if (day == ScheduleTime.INVALID_DAY || minute == ScheduleTime.INVALID_MINUTE) {
+            return null;
+        }
+        Integer duration = courseDurations.get(instance.getCourseId());
+        long start = (long) day * ScheduleTime.MINUTES_PER_DAY + minute;
+        long end = start + (duration != null && duration > 0 ? duration : DEFAULT_DURATION_MINUTES);
+        return new Interval(instance, start, end, key(instance.getInstructor()), key(instance.getLocation()));
+    }
+
+    private static String key(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static IntervalIndex indexFor(Map<String, IntervalIndex> map, String key) {
+        IntervalIndex index = map.get(key);
+        if (index == null) {
+            index = new IntervalIndex();
+            map.put(key, index);
+        }
+        return index;
+    }
+
+    private static List<Interval> listFor(Map<String, List<Interval>> map, String key) {
+        List<Interval> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            map.put(key, list);
+        }
+        return list;
+    }
+
+    /**
+     * A clash between two classes over the same instructor or location
+     */
+    public static class Conflict {
+        public enum Kind { INSTRUCTOR, LOCATION }
+
+        public final Instance instance;
+        public final Instance other;
+        public final Kind kind;
+
+        Conflict(Instance instance, Instance other, Kind kind) {
+            this.instance = instance;
+            this.other = other;
+            this.kind = kind;
+        }
+    }
+
+    private static class Interval {
+        final Instance instance;
+        final long start;
+        final long end;
+        final String instructorKey;
+        final String locationKey;
+
+        Interval(Instance instance, long start, long end, String instructorKey, String locationKey) {
+            this.instance = instance;
+            this.start = start;
+            this.end = end;
+            this.instructorKey = instructorKey;
+            this.locationKey = locationKey;
+        }
+    }
+
+    // Intervals of one instructor or location, by start time
+    private static class IntervalIndex {
+        private final TreeMap<Long, List<Interval>> byStart = new TreeMap<>();
+        private long maxLength;
+
+        void add(Interval interval) {
+            List<Interval> atStart = byStart.get(interval.start);
+            if (atStart == null) {
+                atStart = new ArrayList<>(1);
+                byStart.put(interval.start, atStart);
+            }
+            atStart.add(interval);
+            maxLength = Math.max(maxLength, interval.end - interval.start);
+        }
+
+        void remove(Interval interval) {
+            List<Interval> atStart = byStart.get(interval.start);
+            if (atStart == null) {
+                return;
+            }
+            for (int i = 0; i < atStart.size(); i++) {
+                if (atStart.get(i).instance.getId() == interval.instance.getId()) {
+                    atStart.remove(i);
+                    break;
+                }
+            }
+            if (atStart.isEmpty()) {
+                byStart.remove(interval.start);
+            }
+        }
+
+        void collectOverlaps(Interval candidate, Conflict.Kind kind, List<Conflict> out) {
+            // Nothing starting maxLength or more before the candidate can still be running
+            long from = candidate.start - maxLength + 1;
+            for (List<Interval> atStart : byStart.subMap(from, true, candidate.end, false).values()) {
+                for (Interval booked : atStart) {
+                    if (booked.end > candidate.start && booked.instance.getId() != candidate.instance.getId()) {
+                        out.add(new Conflict(candidate.instance, booked.instance, kind));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Course;
+import com.example.myapplication.model.Instance;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Column layout of imported and exported courses and instances, and the conversion between
+ * a record (field name to value, as read by {@link RowReader}) and the model objects.
+ * Values that do not parse become out-of-range numbers, so {@link ScheduleValidator}
+ * reports them together with every other problem in the row.
+ */
+public final class ScheduleRows {
+    public static final String KIND_COURSES = "courses";
+    public static final String KIND_INSTANCES = "instances";
+
+    public static final String[] COURSE_COLUMNS = {
+            "id", "name", "description", "duration", "level", "type", "dayOfWeek", "time",
+            "capacity", "price", "equipmentNeeded"};
+    public static final String[] INSTANCE_COLUMNS = {
+            "id", "courseId", "date", "time", "location", "capacity", "instructor", "price"};
+
+    private static final long NO_ID = -1;
+
+    private ScheduleRows() {
+    }
+
+    /**
+     * @param row Record with lower-cased field names
+     * @param fallbackId ID to use when the record has none
+     */
+    public static Course toCourse(Map<String, String> row, long fallbackId) {
+        Course course = new Course();
+        long id = parseLong(value(row, "id"), NO_ID);
+        course.setId(id != NO_ID ? id : fallbackId);
+        course.setName(value(row, "name"));
+        course.setDescription(value(row, "description"));
+        course.setDuration(parseInt(value(row, "duration"), -1));
+        course.setLevel(StringPool.intern(value(row, "level")));
+        course.setType(StringPool.intern(value(row, "type")));
+        course.setDayOfWeek(StringPool.intern(value(row, "dayofweek")));
+        course.setTime(value(row, "time"));
+        // Capacity and price are optional for courses
+        course.setCapacity(parseInt(value(row, "capacity"), 0));
+        course.setPrice(parseFloat(value(row, "price"), 0));
+        course.setEquipmentNeeded(value(row, "equipmentneeded"));
+        return course;
+    }
+
+    /**
+     * @param row Record with lower-cased field names
+     * @param fallbackId ID to use when the record has none
+     */
+    public static Instance toInstance(Map<String, String> row, long fallbackId) {
+        Instance instance = new Instance();
+        long id = parseLong(value(row, "id"), NO_ID);
+        instance.setId(id != NO_ID ? id : fallbackId);
+        instance.setCourseId(parseLong(value(row, "courseid"), NO_ID));
+        instance.setDate(value(row, "date"));
+        instance.setTime(value(row, "time"));
+        instance.setLocation(StringPool.intern(value(row, "location")));
+        instance.setCapacity(parseInt(value(row, "capacity"), -1));
+        instance.setInstructor(StringPool.intern(value(row, "instructor")));
+        instance.setPrice(parseFloat(value(row, "price"), Float.NaN));
+        return instance;
+    }
+
+    public static void writeCsvHeader(Writer out, String[] columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(columns[i]);
+        }
+        out.write("\r\n");
+    }
+
+    public static void writeCsv(Writer out, Course course) throws IOException {
+        writeCsvRow(out, String.valueOf(course.getId()), course.getName(), course.getDescription(),
+                String.valueOf(course.getDuration()), course.getLevel(), course.getType(), course.getDayOfWeek(),
+                course.getTime(), String.valueOf(course.getCapacity()), String.valueOf(course.getPrice()),
+                course.getEquipmentNeeded());
+    }
+
+    public static void writeCsv(Writer out, Instance instance) throws IOException {
+        writeCsvRow(out, String.valueOf(instance.getId()), String.valueOf(instance.getCourseId()),
+                instance.getDate(), instance.getTime(), instance.getLocation(),
+                String.valueOf(instance.getCapacity()), instance.getInstructor(), String.valueOf(instance.getPrice()));
+    }
+
+    private static void writeCsvRow(Writer out, String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeCsvField(out, values[i]);
+        }
+        out.write("\r\n");
+    }
+
+    // Quote only fields that need it, doubling embedded quotes
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    // Trimmed value, or null when missing or blank
+    private static String value(Map<String, String> row, String name) {
+        String value = row.get(name);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static int parseInt(String value, int fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseLong(String value, long fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static float parseFloat(String value, float fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+}
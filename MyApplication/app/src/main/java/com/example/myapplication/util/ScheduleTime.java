@@ -0,0 +1,124 @@
+package com.example.myapplication.util;
+
+import java.util.Locale;
+
+/**
+ * Conversions between the schedule's string formats ("yyyy-MM-dd", "HH:mm") and primitive
+ * values: days since 1970-01-01 and minutes since midnight. Parsing allocates nothing, so
+ * unlike SimpleDateFormat it is cheap enough to run over thousands of instances.
+ */
+public final class ScheduleTime {
+    /** Returned for a missing or malformed date */
+    public static final int INVALID_DAY = Integer.MIN_VALUE;
+    /** Returned for a missing or malformed time */
+    public static final int INVALID_MINUTE = -1;
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private ScheduleTime() {
+    }
+
+    /**
+     * @param date Date in yyyy-MM-dd format
+     * @return Days since 1970-01-01, or {@link #INVALID_DAY}
+     */
+    public static int parseEpochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return INVALID_DAY;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return INVALID_DAY;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * @param epochDay Days since 1970-01-01
+     * @return Date in yyyy-MM-dd format
+     */
+    public static String formatEpochDay(int epochDay) {
+        // Inverse of toEpochDay, using 400-year eras starting on March 1st
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return String.format(Locale.US, "%04d-%02d-%02d", year, month, day);
+    }
+
+    /**
+     * @param time Time in HH:mm format
+     * @return Minutes since midnight, or {@link #INVALID_MINUTE}
+     */
+    public static int parseMinuteOfDay(String time) {
+        if (time == null || time.length() != 5 || time.charAt(2) != ':') {
+            return INVALID_MINUTE;
+        }
+        int hour = digits(time, 0, 2);
+        int minute = digits(time, 3, 5);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return INVALID_MINUTE;
+        }
+        return hour * 60 + minute;
+    }
+
+    /**
+     * @param minuteOfDay Minutes since midnight
+     * @return Time in HH:mm format
+     */
+    public static String formatMinuteOfDay(int minuteOfDay) {
+        return String.format(Locale.US, "%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    /**
+     * @param epochDay Days since 1970-01-01
+     * @return Day of week as a java.util.Calendar constant (Calendar.SUNDAY = 1 ... SATURDAY = 7)
+     */
+    public static int dayOfWeek(int epochDay) {
+        // 1970-01-01 was a Thursday
+        return Math.floorMod(epochDay + 4, 7) + 1;
+    }
+
+    static int toEpochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Parse a fixed-width run of ASCII digits; -1 if anything else is found
+    private static int digits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
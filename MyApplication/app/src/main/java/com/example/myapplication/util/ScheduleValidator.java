@@ -0,0 +1,277 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Course;
+import com.example.myapplication.model.Instance;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Validates whole lists of courses and instances in one pass, e.g. before a bulk import.
+ * Rules that depend on other rows, such as the weekday each course runs on, are computed once
+ * when the validator is built. Checks use hand-written parsers and primitive comparisons, and
+ * errors are recorded as codes in reusable arrays, so a valid batch allocates nothing.
+ */
+public class ScheduleValidator {
+    public enum Field { NAME, DESCRIPTION, DURATION, CAPACITY, PRICE, DAY_OF_WEEK, TIME, DATE, INSTRUCTOR, COURSE }
+
+    public enum Rule { REQUIRED, TOO_SHORT, INVALID_FORMAT, OUT_OF_RANGE, WRONG_DAY, UNKNOWN_COURSE }
+
+    private static final Field[] FIELDS = Field.values();
+    private static final Rule[] RULES = Rule.values();
+    // Indexed by java.util.Calendar day constant
+    private static final String[] DAY_NAMES = {
+            null, "Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"};
+    private static final int NO_DAY = 0;
+    private static final int MIN_NAME_LENGTH = 2;
+
+    // Sorted course IDs with the weekday each course runs on, for instance checks
+    private final long[] courseIds;
+    private final int[] courseDays;
+
+    /**
+     * Validator for courses only; instances are checked without course rules
+     */
+    public ScheduleValidator() {
+        this(null);
+    }
+
+    /**
+     * @param courses Courses the validated instances may belong to
+     */
+    public ScheduleValidator(List<Course> courses) {
+        int count = courses != null ? courses.size() : 0;
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = courses.get(i).getId();
+        }
+        Arrays.sort(ids);
+        int[] days = new int[count];
+        for (int i = 0; i < count; i++) {
+            Course course = courses.get(i);
+            days[Arrays.binarySearch(ids, course.getId())] = dayOfWeek(course.getDayOfWeek());
+        }
+        courseIds = ids;
+        courseDays = days;
+    }
+
+    /**
+     * @param courses Courses to check
+     * @param errors Receives one entry per failed check; cleared first
+     * @return Number of courses with at least one error
+     */
+    public int validateCourses(List<Course> courses, Errors errors) {
+        errors.clear();
+        int invalidRows = 0;
+        for (int row = 0; row < courses.size(); row++) {
+            int before = errors.size();
+            Course course = courses.get(row);
+            String name = course.getName();
+            if (isBlank(name)) {
+                errors.add(row, Field.NAME, Rule.REQUIRED);
+            } else if (name.length() < MIN_NAME_LENGTH) {
+                errors.add(row, Field.NAME, Rule.TOO_SHORT);
+            }
+            if (isBlank(course.getDescription())) {
+                errors.add(row, Field.DESCRIPTION, Rule.REQUIRED);
+            }
+            if (course.getDuration() <= 0) {
+                errors.add(row, Field.DURATION, Rule.OUT_OF_RANGE);
+            }
+            if (course.getCapacity() <= 0) {
+                errors.add(row, Field.CAPACITY, Rule.OUT_OF_RANGE);
+            }
+            if (course.getPrice() < 0 || Float.isNaN(course.getPrice())) {
+                errors.add(row, Field.PRICE, Rule.OUT_OF_RANGE);
+            }
+            if (course.getDayOfWeek() != null && dayOfWeek(course.getDayOfWeek()) == NO_DAY) {
+                errors.add(row, Field.DAY_OF_WEEK, Rule.INVALID_FORMAT);
+            }
+            if (course.getTime() != null && !isValidTime(course.getTime())) {
+                errors.add(row, Field.TIME, Rule.INVALID_FORMAT);
+            }
+            if (errors.size() > before) {
+                invalidRows++;
+            }
+        }
+        return invalidRows;
+    }
+
+    /**
+     * Check instances, including that each falls on its course's weekday when the validator
+     * was built with courses
+     * @param instances Instances to check
+     * @param errors Receives one entry per failed check; cleared first
+     * @return Number of instances with at least one error
+     */
+    public int validateInstances(List<Instance> instances, Errors errors) {
+        errors.clear();
+        boolean checkCourses = courseIds.length > 0;
+        int invalidRows = 0;
+        for (int row = 0; row < instances.size(); row++) {
+            int before = errors.size();
+            Instance instance = instances.get(row);
+            int epochDay = instance.getEpochDay();
+            if (epochDay == ScheduleTime.INVALID_DAY) {
+                errors.add(row, Field.DATE, instance.getDate() == null ? Rule.REQUIRED : Rule.INVALID_FORMAT);
+            }
+            if (instance.getMinuteOfDay() == ScheduleTime.INVALID_MINUTE) {
+                errors.add(row, Field.TIME, instance.getTime() == null ? Rule.REQUIRED : Rule.INVALID_FORMAT);
+            }
+            if (instance.getCapacity() <= 0) {
+                errors.add(row, Field.CAPACITY, Rule.OUT_OF_RANGE);
+            }
+            if (instance.getPrice() < 0 || Float.isNaN(instance.getPrice())) {
+                errors.add(row, Field.PRICE, Rule.OUT_OF_RANGE);
+            }
+            String instructor = instance.getInstructor();
+            if (isBlank(instructor)) {
+                errors.add(row, Field.INSTRUCTOR, Rule.REQUIRED);
+            } else if (instructor.length() < MIN_NAME_LENGTH) {
+                errors.add(row, Field.INSTRUCTOR, Rule.TOO_SHORT);
+            }
+            if (checkCourses) {
+                int index = Arrays.binarySearch(courseIds, instance.getCourseId());
+                if (index < 0) {
+                    errors.add(row, Field.COURSE, Rule.UNKNOWN_COURSE);
+                } else if (epochDay != ScheduleTime.INVALID_DAY && courseDays[index] != NO_DAY
+                        && ScheduleTime.dayOfWeek(epochDay) != courseDays[index]) {
+                    errors.add(row, Field.DATE, Rule.WRONG_DAY);
+                }
+            }
+            if (errors.size() > before) {
+                invalidRows++;
+            }
+        }
+        return invalidRows;
+    }
+
+    /**
+     * Strict HH:mm check, the same rule instances are held to through
+     * {@link Instance#getMinuteOfDay()}
+     * @param time Text to check
+     * @return true if the time is well formed
+     */
+    public static boolean isValidTime(String time) {
+        return ScheduleTime.parseMinuteOfDay(time) != ScheduleTime.INVALID_MINUTE;
+    }
+
+    /**
+     * @param name Day name, e.g. "Monday", in any case
+     * @return java.util.Calendar day constant, or 0 if the name is not a day
+     */
+    static int dayOfWeek(String name) {
+        if (name == null) {
+            return NO_DAY;
+        }
+        for (int day = Calendar.SUNDAY; day <= Calendar.SATURDAY; day++) {
+            if (DAY_NAMES[day].equalsIgnoreCase(name)) {
+                return day;
+            }
+        }
+        return NO_DAY;
+    }
+
+    private static boolean isBlank(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Errors found in a batch, stored as parallel code arrays. Reuse one instance across
+     * batches; its arrays only grow when a batch has more errors than any before it.
+     */
+    public static class Errors {
+        private int size;
+        private int[] rows = new int[16];
+        private byte[] fields = new byte[16];
+        private byte[] rules = new byte[16];
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        /**
+         * @return Position in the validated list of the row with error i
+         */
+        public int row(int i) {
+            return rows[i];
+        }
+
+        public Field field(int i) {
+            return FIELDS[fields[i]];
+        }
+
+        public Rule rule(int i) {
+            return RULES[rules[i]];
+        }
+
+        /**
+         * @return Readable description of error i, e.g. "Row 3: date is not on the course's day"
+         */
+        public String message(int i) {
+            return message(i, 0);
+        }
+
+        /**
+         * @param rowOffset Added to row numbers, when the validated list is part of a larger file
+         * @return Readable description of error i
+         */
+        public String message(int i, int rowOffset) {
+            String field = field(i).name().toLowerCase(Locale.ROOT).replace('_', ' ');
+            String problem;
+            switch (rule(i)) {
+                case REQUIRED:
+                    problem = "is required";
+                    break;
+                case TOO_SHORT:
+                    problem = "is too short";
+                    break;
+                case INVALID_FORMAT:
+                    problem = "has an invalid format";
+                    break;
+                case OUT_OF_RANGE:
+                    problem = "is out of range";
+                    break;
+                case WRONG_DAY:
+                    problem = "is not on the course's day";
+                    break;
+                case UNKNOWN_COURSE:
+                default:
+                    problem = "does not match a known course";
+                    break;
+            }
+            return "Row " + (rowOffset + row(i) + 1) + ": " + field + " " + problem;
+        }
+
+        void add(int row, Field field, Rule rule) {
+            if (size == rows.length) {
+                int newLength = size * 2;
+                rows = Arrays.copyOf(rows, newLength);
+                fields = Arrays.copyOf(fields, newLength);
+                rules = Arrays.copyOf(rules, newLength);
+            }
+            rows[size] = row;
+            fields[size] = (byte) field.ordinal();
+            rules[size] = (byte) rule.ordinal();
+            size++;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.myapplication.util;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.model.GlideUrl;
+
+/**
+ * Glide model for Firebase Storage download URLs. The URL's token query parameter can change
+ * while the object stays the same, so the cache key is the URL without its query string, i.e.
+ * the bucket and object path.
+ */
+public class StorageGlideUrl extends GlideUrl {
+    private final String cacheKey;
+
+    public StorageGlideUrl(String url) {
+        super(url);
+        int query = url.indexOf('?');
+        cacheKey = query >= 0 ? url.substring(0, query) : url;
+    }
+
+    @NonNull
+    @Override
+    public String getCacheKey() {
+        return cacheKey;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.myapplication.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps each distinct string to a small int code, so a column of repeated values (instructors,
+ * locations, ...) can be stored as an int[] and compared by code. Not thread-safe.
+ */
+public class StringDictionary {
+    /** Code of a null value */
+    public static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * @param value String to encode, may be null
+     * @return Its code, assigning the next free one the first time a value is seen
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * @param code Code returned by {@link #encode}
+     * @return The string, or null for {@link #NULL_CODE}
+     */
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values.get(code);
+    }
+
+    /**
+     * @return Number of distinct non-null values; codes run from 0 to size() - 1
+     */
+    public int size() {
+        return values.size();
+    }
+}
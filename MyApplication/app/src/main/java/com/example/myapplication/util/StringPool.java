@@ -0,0 +1,59 @@
+package com.example.myapplication.util;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared pool for the low-cardinality strings read from Firestore: levels, types, days,
+ * locations, instructors, roles and statuses. Every decoded document would otherwise carry
+ * its own copy of the same few values; pooled values are shared and compare equal by
+ * identity, which String.equals checks first. Unlike String.intern() the pool is bounded,
+ * so free-text values that slip in cannot grow it without limit. Thread-safe.
+ */
+public final class StringPool {
+    // Far more than the distinct values a catalog has; beyond this values are not pooled
+    private static final int MAX_ENTRIES = 4096;
+    private static final ConcurrentHashMap<String, String> POOL = new ConcurrentHashMap<>();
+
+    private StringPool() {
+    }
+
+    /**
+     * @param value String to share, may be null
+     * @return The pooled instance equal to value
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = POOL.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (POOL.size() >= MAX_ENTRIES) {
+            return value;
+        }
+        pooled = POOL.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    /**
+     * Map a value onto one of a fixed set of constants, ignoring case and surrounding spaces,
+     * so e.g. "Active" from an older client becomes User.STATUS_ACTIVE
+     * @param value Decoded value, may be null
+     * @param constants Canonical values
+     * @return The matching constant, otherwise the pooled value
+     */
+    public static String canonical(String value, String... constants) {
+        if (value == null) {
+            return null;
+        }
+        String key = value.trim().toLowerCase(Locale.ROOT);
+        for (String constant : constants) {
+            if (constant.equals(key)) {
+                return constant;
+            }
+        }
+        return intern(value);
+    }
+}
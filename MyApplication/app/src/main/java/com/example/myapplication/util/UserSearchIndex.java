@@ -0,0 +1,368 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Substring search index over users, updated incrementally as users change.
+ * Each user occupies a slot holding its name, email and role normalized into a single key,
+ * and a trigram table maps every 3-character sequence to the sorted slots containing it.
+ * Updating a user only touches the postings of that user's trigrams. A query of 3+
+ * characters only verifies users present in all of its trigram lists; a query that extends
+ * the previous one only re-checks the previous result, which is kept current across updates.
+ * Results are in insertion order; an updated user keeps its position.
+ */
+public class UserSearchIndex {
+    // Separates fields in a key so a match never spans two fields
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private User[] users = new User[16];
+    private String[] keys = new String[16];
+    // Insertion sequence of each slot, so reused slots do not reorder results
+    private int[] order = new int[16];
+    private int slotCount;
+    private int nextOrder;
+    private final IntList freeSlots = new IntList();
+    private final Map<String, Integer> slotByUid = new HashMap<>();
+    private final TrigramTable trigrams = new TrigramTable();
+
+    // Last query and its matching slots, used to narrow the next query when it extends this one
+    private String lastQuery;
+    private IntList lastResult;
+
+    /**
+     * Replace every indexed user
+     * @param newUsers Users to index, in display order
+     */
+    public synchronized void replaceAll(List<User> newUsers) {
+        users = new User[Math.max(16, newUsers.size())];
+        keys = new String[users.length];
+        order = new int[users.length];
+        slotCount = 0;
+        nextOrder = 0;
+        freeSlots.clear();
+        slotByUid.clear();
+        trigrams.clear();
+        lastQuery = null;
+        lastResult = null;
+        for (User user : newUsers) {
+            upsert(user);
+        }
+    }
+
+    /**
+     * Add a user, or update it in place if a user with the same Firebase UID is indexed
+     * @param user User to index
+     */
+    public synchronized void upsert(User user) {
+        Integer existing = slotByUid.get(user.getFirebaseUid());
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            unindex(slot);
+        } else {
+            slot = freeSlots.size() > 0 ? freeSlots.removeLast() : slotCount++;
+            ensureCapacity(slot + 1);
+            order[slot] = nextOrder++;
+            slotByUid.put(user.getFirebaseUid(), slot);
+        }
+        String key = normalize(user.getName()) + FIELD_SEPARATOR
+                + normalize(user.getEmail()) + FIELD_SEPARATOR
+                + normalize(user.getRole());
+        users[slot] = user;
+        keys[slot] = key;
+        for (int j = 0; j + 3 <= key.length(); j++) {
+            trigrams.postings(trigram(key, j)).insertSorted(slot);
+        }
+        if (lastResult != null) {
+            if (key.contains(lastQuery)) {
+                lastResult.insertSorted(slot);
+            } else {
+                lastResult.removeSorted(slot);
+            }
+        }
+    }
+
+    /**
+     * Remove a user from the index
+     * @param uid Firebase UID of the user
+     */
+    public synchronized void remove(String uid) {
+        Integer slot = slotByUid.remove(uid);
+        if (slot == null) {
+            return;
+        }
+        unindex(slot);
+        users[slot] = null;
+        keys[slot] = null;
+        freeSlots.add(slot);
+        if (lastResult != null) {
+            lastResult.removeSorted(slot);
+        }
+    }
+
+    /**
+     * @return Number of indexed users
+     */
+    public synchronized int size() {
+        return slotByUid.size();
+    }
+
+    /**
+     * Find users whose name, email or role contains the query
+     * @param query Query already lower-cased and trimmed
+     * @return Matching users in insertion order
+     */
+    public synchronized List<User> search(String query) {
+        if (query.isEmpty()) {
+            lastQuery = null;
+            lastResult = null;
+            return inOrder(allSlots());
+        }
+
+        IntList candidates = null;
+        if (lastQuery != null && query.contains(lastQuery)) {
+            candidates = lastResult;
+        }
+        if (query.length() >= 3) {
+            IntList trigramCandidates = trigramCandidates(query);
+            if (candidates == null || trigramCandidates.size() < candidates.size()) {
+                candidates = trigramCandidates;
+            }
+        }
+        if (candidates == null) {
+            candidates = allSlots();
+        }
+
+        IntList matches = new IntList();
+        for (int i = 0; i < candidates.size(); i++) {
+            int slot = candidates.get(i);
+            if (keys[slot].contains(query)) {
+                matches.add(slot);
+            }
+        }
+        lastQuery = query;
+        lastResult = matches;
+        return inOrder(matches);
+    }
+
+    private void unindex(int slot) {
+        String key = keys[slot];
+        for (int j = 0; j + 3 <= key.length(); j++) {
+            IntList list = trigrams.get(trigram(key, j));
+            if (list != null) {
+                list.removeSorted(slot);
+            }
+        }
+    }
+
+    private IntList allSlots() {
+        IntList slots = new IntList();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (users[slot] != null) {
+                slots.add(slot);
+            }
+        }
+        return slots;
+    }
+
+    // Sort slots by insertion sequence without boxing: sequence in the high bits, slot in the low bits
+    private List<User> inOrder(IntList slots) {
+        long[] packed = new long[slots.size()];
+        for (int i = 0; i < packed.length; i++) {
+            int slot = slots.get(i);
+            packed[i] = ((long) order[slot] << 32) | slot;
+        }
+        Arrays.sort(packed);
+        List<User> result = new ArrayList<>(packed.length);
+        for (long value : packed) {
+            result.add(users[(int) value]);
+        }
+        return result;
+    }
+
+    // Intersect the posting lists of every trigram in the query, smallest list first
+    private IntList trigramCandidates(String query) {
+        int count = query.length() - 2;
+        IntList[] lists = new IntList[count];
+        for (int i = 0; i < count; i++) {
+            IntList list = trigrams.get(trigram(query, i));
+            if (list == null || list.size() == 0) {
+                return new IntList();
+            }
+            lists[i] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+
+        IntList result = lists[0].copy();
+        for (int i = 1; i < lists.length && result.size() > 0; i++) {
+            result.retainAll(lists[i]);
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > users.length) {
+            int newLength = Math.max(size, users.length * 2);
+            users = Arrays.copyOf(users, newLength);
+            keys = Arrays.copyOf(keys, newLength);
+            order = Arrays.copyOf(order, newLength);
+        }
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase();
+    }
+
+    /**
+     * Open-addressing map from trigram code to its posting list, so lookups never box the key.
+     * Entries are never removed; a trigram no user contains any more keeps an empty list.
+     */
+    private static class TrigramTable {
+        private long[] codes = new long[64];
+        private IntList[] lists = new IntList[64];
+        private int size;
+
+        IntList get(long code) {
+            int mask = codes.length - 1;
+            for (int i = hash(code) & mask; lists[i] != null; i = (i + 1) & mask) {
+                if (codes[i] == code) {
+                    return lists[i];
+                }
+            }
+            return null;
+        }
+
+        IntList postings(long code) {
+            IntList list = get(code);
+            if (list != null) {
+                return list;
+            }
+            if ((size + 1) * 2 > codes.length) {
+                grow();
+            }
+            list = new IntList();
+            put(code, list);
+            size++;
+            return list;
+        }
+
+        void clear() {
+            codes = new long[64];
+            lists = new IntList[64];
+            size = 0;
+        }
+
+        private void put(long code, IntList list) {
+            int mask = codes.length - 1;
+            int i = hash(code) & mask;
+            while (lists[i] != null) {
+                i = (i + 1) & mask;
+            }
+            codes[i] = code;
+            lists[i] = list;
+        }
+
+        private void grow() {
+            long[] oldCodes = codes;
+            IntList[] oldLists = lists;
+            codes = new long[oldCodes.length * 2];
+            lists = new IntList[oldLists.length * 2];
+            for (int i = 0; i < oldLists.length; i++) {
+                if (oldLists[i] != null) {
+                    put(oldCodes[i], oldLists[i]);
+                }
+            }
+        }
+
+        private static int hash(long code) {
+            long h = code * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    // Minimal growable int array to avoid boxing posting lists
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int removeLast() {
+            return values[--size];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void insertSorted(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        void removeSorted(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+        }
+
+        // Keep only values also present in the other sorted list
+        void retainAll(IntList other) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < size && from < other.size; i++) {
+                int index = Arrays.binarySearch(other.values, from, other.size, values[i]);
+                if (index >= 0) {
+                    values[kept++] = values[i];
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+            size = kept;
+        }
+
+        IntList copy() {
+            IntList copy = new IntList();
+            copy.values = Arrays.copyOf(values, Math.max(4, size));
+            copy.size = size;
+            return copy;
+        }
+    }
+}
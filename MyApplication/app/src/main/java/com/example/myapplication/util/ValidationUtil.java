@@ -3,13 +3,10 @@ package com.example.myapplication.util;
 import android.text.TextUtils;
 import android.util.Patterns;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
-import java.util.regex.Pattern;
-
+/**
+ * Single-field checks for form input. Bulk checks over many rows go through
+ * {@link ScheduleValidator}, which shares the date and time parsers used here.
+ */
 public class ValidationUtil {
     
     public static boolean isValidEmail(String email) {
@@ -69,79 +66,19 @@ public class ValidationUtil {
     }
     
     public static boolean isValidDate(String date) {
-        if (TextUtils.isEmpty(date)) {
-            return false;
-        }
-        
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        sdf.setLenient(false);
-        
-        try {
-            Date parsedDate = sdf.parse(date);
-            return parsedDate != null;
-        } catch (ParseException e) {
-            return false;
-        }
+        // Dates must be in yyyy-MM-dd format
+        return ScheduleTime.parseEpochDay(date) != ScheduleTime.INVALID_DAY;
     }
     
     public static boolean isValidTime(String time) {
-        if (TextUtils.isEmpty(time)) {
-            return false;
-        }
-        
-        // Check if time is in HH:mm format
-        Pattern pattern = Pattern.compile("^([01]?[0-9]|2[0-3]):[0-5][0-9]$");
-        return pattern.matcher(time).matches();
+        // Time must be in HH:mm format
+        return ScheduleValidator.isValidTime(time);
     }
     
     public static boolean isValidDayOfWeek(String date, String dayOfWeek) {
-        if (!isValidDate(date) || TextUtils.isEmpty(dayOfWeek)) {
-            return false;
-        }
-        
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            Date parsedDate = sdf.parse(date);
-            
-            if (parsedDate == null) {
-                return false;
-            }
-            
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(parsedDate);
-            
-            int dayOfWeekValue = calendar.get(Calendar.DAY_OF_WEEK);
-            String actualDayOfWeek;
-            
-            switch (dayOfWeekValue) {
-                case Calendar.MONDAY:
-                    actualDayOfWeek = "Monday";
-                    break;
-                case Calendar.TUESDAY:
-                    actualDayOfWeek = "Tuesday";
-                    break;
-                case Calendar.WEDNESDAY:
-                    actualDayOfWeek = "Wednesday";
-                    break;
-                case Calendar.THURSDAY:
-                    actualDayOfWeek = "Thursday";
-                    break;
-                case Calendar.FRIDAY:
-                    actualDayOfWeek = "Friday";
-                    break;
-                case Calendar.SATURDAY:
-                    actualDayOfWeek = "Saturday";
-                    break;
-                case Calendar.SUNDAY:
-                    actualDayOfWeek = "Sunday";
-                    break;
-                default:
-                    return false;
-            }
-            
-            return actualDayOfWeek.equalsIgnoreCase(dayOfWeek);
-        } catch (ParseException e) {
-            return false;
-        }
+        int epochDay = ScheduleTime.parseEpochDay(date);
+        int expectedDay = ScheduleValidator.dayOfWeek(dayOfWeek);
+        return epochDay != ScheduleTime.INVALID_DAY && expectedDay != 0
+                && ScheduleTime.dayOfWeek(epochDay) == expectedDay;
     }
 }
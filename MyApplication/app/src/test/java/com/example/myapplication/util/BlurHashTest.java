@@ -0,0 +1,95 @@
+package com.example.myapplication.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BlurHashTest {
+    @Test
+    public void singleComponentOfBlackIsAllZeros() {
+        assertEquals("000000", BlurHash.encode(solid(0xFF000000, 4, 4), 4, 4, 1, 1));
+    }
+
+    @Test
+    public void hashLengthFollowsComponentCount() {
+        String hash = BlurHash.encode(solid(0xFF3366CC, 8, 8), 8, 8, 4, 3);
+        assertEquals(4 + 2 * 4 * 3, hash.length());
+        // Size flag: (4 - 1) + (3 - 1) * 9 = 21
+        assertEquals('L', hash.charAt(0));
+    }
+
+    @Test
+    public void averageColorRoundTrips() {
+        int color = 0xFF3366CC;
+        // With a single component the hash holds just the average color
+        String hash = BlurHash.encode(solid(color, 8, 8), 8, 8, 1, 1);
+        int[] pixels = BlurHash.decodePixels(hash, 6, 6);
+        assertNotNull(pixels);
+        for (int pixel : pixels) {
+            assertChannelsClose(color, pixel, 2);
+        }
+    }
+
+    @Test
+    public void gradientKeepsItsDirection() {
+        int width = 16;
+        int height = 8;
+        int[] source = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int gray = x * 255 / (width - 1);
+                source[y * width + x] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+            }
+        }
+        String hash = BlurHash.encode(source, width, height, 4, 3);
+        int[] pixels = BlurHash.decodePixels(hash, 8, 4);
+        assertNotNull(pixels);
+        int left = pixels[2 * 8] & 0xFF;
+        int right = pixels[2 * 8 + 7] & 0xFF;
+        assertTrue("left " + left + " should be darker than right " + right, left + 100 < right);
+    }
+
+    @Test
+    public void malformedHashesDecodeToNull() {
+        assertNull(BlurHash.decodePixels(null, 4, 4));
+        assertNull(BlurHash.decodePixels("L", 4, 4));
+        // Size flag says 4x3 components but the hash is too short
+        assertNull(BlurHash.decodePixels("L00000000000", 4, 4));
+        // '!' is not a base-83 digit
+        assertNull(BlurHash.decodePixels("00!000", 4, 4));
+    }
+
+    @Test
+    public void componentCountIsValidated() {
+        try {
+            BlurHash.encode(solid(0xFF000000, 2, 2), 2, 2, 0, 3);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Components must be 1-9
+        }
+        try {
+            BlurHash.encode(solid(0xFF000000, 2, 2), 2, 2, 4, 10);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Components must be 1-9
+        }
+    }
+
+    private static int[] solid(int color, int width, int height) {
+        int[] pixels = new int[width * height];
+        java.util.Arrays.fill(pixels, color);
+        return pixels;
+    }
+
+    private static void assertChannelsClose(int expected, int actual, int tolerance) {
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int e = (expected >> shift) & 0xFF;
+            int a = (actual >> shift) & 0xFF;
+            assertTrue("channel " + shift + ": expected " + e + " but was " + a, Math.abs(e - a) <= tolerance);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Course;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CourseSearchIndexTest {
+    private CourseSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new CourseSearchIndex();
+        index.rebuild(Arrays.asList(
+                course(1, "Morning Flow", "Gentle vinyasa", "Beginner", "Flow Yoga", "Monday", 10f, "07:00"),
+                course(2, "Power Hour", "Strong vinyasa", "Advanced", "Power Yoga", "Tuesday", 15f, "18:00"),
+                course(3, "Evening Yin", "Slow stretches", "Beginner", "Yin Yoga", "Monday", 12f, "20:00")));
+    }
+
+    @Test
+    public void textMatchesWordPrefixes() {
+        CourseSearchIndex.Query query = new CourseSearchIndex.Query();
+        query.text = "vin";
+        assertEquals(ids(1, 2), idsOf(index.search(query)));
+        query.text = "evening str";
+        assertEquals(ids(3), idsOf(index.search(query)));
+    }
+
+    @Test
+    public void facetsAndRangesCombine() {
+        CourseSearchIndex.Query query = new CourseSearchIndex.Query();
+        query.level = "beginner";
+        query.dayOfWeek = "Monday";
+        assertEquals(ids(1, 3), idsOf(index.search(query)));
+        query.minPrice = 11f;
+        assertEquals(ids(3), idsOf(index.search(query)));
+        query.minPrice = null;
+        query.toMinute = 12 * 60;
+        assertEquals(ids(1), idsOf(index.search(query)));
+    }
+
+    @Test
+    public void updateReplacesIndexedFields() {
+        index.upsert(course(2, "Power Hour", "Strong vinyasa", "Beginner", "Power Yoga", "Friday", 15f, "18:00"));
+        CourseSearchIndex.Query query = new CourseSearchIndex.Query();
+        query.level = "advanced";
+        assertTrue(index.search(query).isEmpty());
+        query.level = "beginner";
+        assertEquals(ids(1, 2, 3), idsOf(index.search(query)));
+        assertEquals(3, index.capacityUsed());
+    }
+
+    @Test
+    public void removedSlotsAreReused() {
+        for (int round = 0; round < 100; round++) {
+            index.remove(2);
+            index.upsert(course(2, "Power Hour", "Strong vinyasa", "Advanced", "Power Yoga", "Tuesday", 15f, "18:00"));
+        }
+        index.remove(1);
+        index.upsert(course(4, "Lunch Stretch", "Quick stretches", "Beginner", "Yin Yoga", "Monday", 8f, "12:00"));
+        assertEquals(3, index.capacityUsed());
+    }
+
+    @Test
+    public void reusedSlotKeepsInsertionOrder() {
+        index.remove(1);
+        index.upsert(course(4, "Lunch Stretch", "Quick stretches", "Beginner", "Yin Yoga", "Monday", 8f, "12:00"));
+        CourseSearchIndex.Query query = new CourseSearchIndex.Query();
+        // Course 4 reuses course 1's slot but is the newest, so it comes last
+        assertEquals(ids(2, 3, 4), idsOf(index.search(query)));
+        query.text = "stretch";
+        assertEquals(ids(3, 4), idsOf(index.search(query)));
+    }
+
+    @Test
+    public void removedCourseLeavesNoStaleMatches() {
+        index.remove(3);
+        CourseSearchIndex.Query query = new CourseSearchIndex.Query();
+        query.type = "Yin Yoga";
+        assertTrue(index.search(query).isEmpty());
+        query.type = null;
+        query.text = "slow";
+        assertTrue(index.search(query).isEmpty());
+    }
+
+    private static Course course(long id, String name, String description, String level, String type,
+                                 String day, float price, String time) {
+        Course course = new Course(name, description, 60, level, 20, day, type, price, time, "");
+        course.setId(id);
+        return course;
+    }
+
+    private static List<Long> ids(long... ids) {
+        List<Long> result = new ArrayList<>();
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private static List<Long> idsOf(List<Course> courses) {
+        List<Long> ids = new ArrayList<>();
+        for (Course course : courses) {
+            ids.add(course.getId());
+        }
+        return ids;
+    }
+}
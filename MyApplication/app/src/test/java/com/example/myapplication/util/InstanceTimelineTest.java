@@ -0,0 +1,70 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Instance;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class InstanceTimelineTest {
+    private InstanceTimeline timeline;
+
+    @Before
+    public void setUp() {
+        timeline = new InstanceTimeline(Arrays.asList(
+                instance(1, "2024-03-01", "09:00"),
+                instance(2, "2024-02-29", "18:00"),
+                instance(3, "2024-02-29", "07:00"),
+                instance(4, "2024-02-28", "23:59"),
+                instance(5, "2025-01-01", "00:00"),
+                instance(6, "2024-12-31", "20:00"),
+                instance(7, "not a date", "09:00")));
+    }
+
+    @Test
+    public void sortsByDateThenTimeWithInvalidDatesLast() {
+        assertEquals(Arrays.asList(4L, 3L, 2L, 1L, 6L, 5L, 7L), ids(timeline.all()));
+    }
+
+    @Test
+    public void betweenIsInclusiveOnBothDays() {
+        int leapDay = ScheduleTime.parseEpochDay("2024-02-29");
+        assertEquals(Arrays.asList(3L, 2L), ids(timeline.between(leapDay, leapDay)));
+        assertEquals(Arrays.asList(4L, 3L, 2L, 1L), ids(timeline.between(leapDay - 1, leapDay + 1)));
+        assertEquals(Arrays.asList(), ids(timeline.between(leapDay + 1, leapDay)));
+    }
+
+    @Test
+    public void inMonthHandlesLeapFebruaryAndDecember() {
+        assertEquals(Arrays.asList(4L, 3L, 2L), ids(timeline.inMonth(2024, 2)));
+        assertEquals(Arrays.asList(1L), ids(timeline.inMonth(2024, 3)));
+        assertEquals(Arrays.asList(6L), ids(timeline.inMonth(2024, 12)));
+        assertEquals(Arrays.asList(5L), ids(timeline.inMonth(2025, 1)));
+    }
+
+    @Test
+    public void nextDaysCrossesTheYearBoundary() {
+        int newYearsEve = ScheduleTime.parseEpochDay("2024-12-31");
+        assertEquals(Arrays.asList(6L), ids(timeline.nextDays(newYearsEve, 1)));
+        assertEquals(Arrays.asList(6L, 5L), ids(timeline.nextDays(newYearsEve, 2)));
+    }
+
+    private static Instance instance(long id, String date, String time) {
+        Instance instance = new Instance(1, date, time, "Studio A", 10, "Anna", 12f);
+        instance.setId(id);
+        return instance;
+    }
+
+    private static List<Long> ids(List<Instance> instances) {
+        List<Long> ids = new ArrayList<>();
+        for (Instance instance : instances) {
+            ids.add(instance.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Instance;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RecurrenceRuleTest {
+    private static final long COURSE_ID = 1_700_000_000_000L;
+
+    @Test
+    public void startsOnTheFirstMatchingWeekday() {
+        // 2024-02-27 is a Tuesday; the first Thursday is the leap day
+        RecurrenceRule rule = new RecurrenceRule("2024-02-27", "thursday", "09:00", 3, 1, null);
+        assertEquals(Arrays.asList("2024-02-29", "2024-03-07", "2024-03-14"), rule.occurrenceDates());
+    }
+
+    @Test
+    public void startDateOnTheWeekdayIsIncluded() {
+        RecurrenceRule rule = new RecurrenceRule("2024-02-29", "Thursday", "09:00", 1, 1, null);
+        assertEquals(Collections.singletonList("2024-02-29"), rule.occurrenceDates());
+    }
+
+    @Test
+    public void intervalSkipsWeeksWithinTheSpan() {
+        // Fortnightly over 5 weeks: weeks 0, 2 and 4, across the year boundary
+        RecurrenceRule rule = new RecurrenceRule("2024-12-29", "Sunday", "09:00", 5, 2, null);
+        assertEquals(Arrays.asList("2024-12-29", "2025-01-12", "2025-01-26"), rule.occurrenceDates());
+        rule = new RecurrenceRule("2024-12-29", "Sunday", "09:00", 4, 2, null);
+        assertEquals(Arrays.asList("2024-12-29", "2025-01-12"), rule.occurrenceDates());
+    }
+
+    @Test
+    public void exceptionDatesAreSkipped() {
+        RecurrenceRule rule = new RecurrenceRule("2024-03-04", "Monday", "09:00", 4, 1,
+                new HashSet<>(Arrays.asList("2024-03-11", "2024-03-12")));
+        assertEquals(Arrays.asList("2024-03-04", "2024-03-18", "2024-03-25"), rule.occurrenceDates());
+    }
+
+    @Test
+    public void expandCopiesTheTemplate() {
+        RecurrenceRule rule = new RecurrenceRule("2024-03-04", "Monday", "18:30", 2, 1, null);
+        List<Instance> instances = rule.expand(template(COURSE_ID));
+        assertEquals(2, instances.size());
+        Instance first = instances.get(0);
+        assertEquals(COURSE_ID, first.getCourseId());
+        assertEquals("2024-03-04", first.getDate());
+        assertEquals("18:30", first.getTime());
+        assertEquals("Studio A", first.getLocation());
+        assertEquals(12, first.getCapacity());
+        assertEquals("Anna", first.getInstructor());
+        assertEquals("2024-03-11", instances.get(1).getDate());
+    }
+
+    @Test
+    public void expandIsIdempotent() {
+        RecurrenceRule rule = new RecurrenceRule("2024-03-04", "Monday", "09:00", 3, 1, null);
+        assertEquals(ids(rule.expand(template(COURSE_ID))), ids(rule.expand(template(COURSE_ID))));
+        // A second rule overlapping the first reuses the IDs of the shared dates
+        RecurrenceRule later = new RecurrenceRule("2024-03-11", "Monday", "09:00", 1, 1, null);
+        assertEquals(ids(rule.expand(template(COURSE_ID))).get(1), ids(later.expand(template(COURSE_ID))).get(0));
+    }
+
+    @Test
+    public void idsAreDistinctAcrossCoursesAndDays() {
+        RecurrenceRule rule = new RecurrenceRule("2024-03-04", "Monday", "09:00", 2, 1, null);
+        List<Long> first = ids(rule.expand(template(COURSE_ID)));
+        List<Long> second = ids(rule.expand(template(COURSE_ID + 1)));
+        assertEquals(4, new HashSet<>(Arrays.asList(first.get(0), first.get(1), second.get(0), second.get(1))).size());
+        // Well above IDs made from the current time in milliseconds, or milliseconds * 1000
+        assertTrue(first.get(0) > System.currentTimeMillis() * 1000);
+    }
+
+    @Test
+    public void idBoundsFitInALong() {
+        long largest = RecurrenceRule.instanceId(RecurrenceRule.MAX_COURSE_ID, RecurrenceRule.MAX_EPOCH_DAY);
+        assertTrue(largest > 0);
+        assertTrue(largest > RecurrenceRule.instanceId(RecurrenceRule.MAX_COURSE_ID, 0));
+        assertEquals("2243-10-16", ScheduleTime.formatEpochDay(RecurrenceRule.MAX_EPOCH_DAY));
+    }
+
+    @Test
+    public void courseIdsOutOfRangeAreRejected() {
+        RecurrenceRule rule = new RecurrenceRule("2024-03-04", "Monday", "09:00", 1, 1, null);
+        rule.expand(template(RecurrenceRule.MAX_COURSE_ID));
+        try {
+            rule.expand(template(RecurrenceRule.MAX_COURSE_ID + 1));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+        try {
+            rule.expand(template(-1));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void datesOutsideTheIdRangeAreRejected() {
+        try {
+            new RecurrenceRule("1969-12-25", "Monday", "09:00", 1, 1, null);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+        try {
+            new RecurrenceRule("2243-10-01", "Monday", "09:00", 4, 1, null);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    private static Instance template(long courseId) {
+        return new Instance(courseId, null, "09:00", "Studio A", 12, "Anna", 10f);
+    }
+
+    private static List<Long> ids(List<Instance> instances) {
+        Long[] ids = new Long[instances.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = instances.get(i).getId();
+        }
+        return Arrays.asList(ids);
+    }
+}
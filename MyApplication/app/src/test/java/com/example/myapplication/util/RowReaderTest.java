@@ -0,0 +1,89 @@
+package com.example.myapplication.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RowReaderTest {
+    @Test
+    public void headerNamesAreNormalized() throws IOException {
+        List<Map<String, String>> rows = readCsv("\uFEFF Name ,DAYOFWEEK\nMorning Flow,Monday\n");
+        assertEquals(1, rows.size());
+        assertEquals("Morning Flow", rows.get(0).get("name"));
+        assertEquals("Monday", rows.get(0).get("dayofweek"));
+    }
+
+    @Test
+    public void quotedFieldsKeepCommasAndQuotes() throws IOException {
+        List<Map<String, String>> rows = readCsv("name,description\n"
+                + "\"Flow, gentle\",\"Bring a \"\"thick\"\" mat\"\n"
+                + "\"\",plain\n");
+        assertEquals(2, rows.size());
+        assertEquals("Flow, gentle", rows.get(0).get("name"));
+        assertEquals("Bring a \"thick\" mat", rows.get(0).get("description"));
+        assertEquals("", rows.get(1).get("name"));
+        assertEquals("plain", rows.get(1).get("description"));
+    }
+
+    @Test
+    public void quotedFieldsMaySpanLines() throws IOException {
+        List<Map<String, String>> rows = readCsv("name,description\r\n"
+                + "Yin,\"Line one\r\nLine two\nLine three\"\r\n"
+                + "Power,Strong\r\n");
+        assertEquals(2, rows.size());
+        assertEquals("Line one\r\nLine two\nLine three", rows.get(0).get("description"));
+        assertEquals("Power", rows.get(1).get("name"));
+    }
+
+    @Test
+    public void blankLinesAndMissingTrailingNewlineAreHandled() throws IOException {
+        List<Map<String, String>> rows = readCsv("name,level\n\nYin,Beginner\n\r\nPower,Advanced");
+        assertEquals(2, rows.size());
+        assertEquals("Yin", rows.get(0).get("name"));
+        assertEquals("Advanced", rows.get(1).get("level"));
+    }
+
+    @Test
+    public void shortRowsOnlyFillTheirColumns() throws IOException {
+        List<Map<String, String>> rows = readCsv("name,level,type\nYin,Beginner\n");
+        assertEquals(2, rows.get(0).size());
+        assertFalse(rows.get(0).containsKey("type"));
+    }
+
+    @Test
+    public void emptyDocumentHasNoRows() throws IOException {
+        assertTrue(readCsv("").isEmpty());
+        assertTrue(readCsv("name,level\n").isEmpty());
+    }
+
+    @Test
+    public void unterminatedQuoteFails() {
+        try {
+            readCsv("name\n\"Yin\n");
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    private static List<Map<String, String>> readCsv(String csv) throws IOException {
+        List<Map<String, String>> rows = new ArrayList<>();
+        try (RowReader reader = RowReader.open(RowReader.FORMAT_CSV, new StringReader(csv))) {
+            Map<String, String> row = new HashMap<>();
+            while (reader.next(row)) {
+                rows.add(new HashMap<>(row));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Instance;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScheduleConflictDetectorTest {
+    private static final long SHORT_COURSE = 1;
+    private static final long LONG_COURSE = 2;
+
+    private Map<Long, Integer> durations;
+
+    @Before
+    public void setUp() {
+        durations = new HashMap<>();
+        durations.put(SHORT_COURSE, 60);
+        durations.put(LONG_COURSE, 90);
+    }
+
+    @Test
+    public void backToBackClassesDoNotClash() {
+        ScheduleConflictDetector detector = new ScheduleConflictDetector(durations);
+        detector.add(instance(1, SHORT_COURSE, "2024-03-04", "09:00", "Studio A", "Anna"));
+        // Starts exactly when the booked class ends
+        assertTrue(detector.findConflicts(instance(2, SHORT_COURSE, "2024-03-04", "10:00", "Studio A", "Anna")).isEmpty());
+        // Ends exactly when the booked class starts
+        assertTrue(detector.findConflicts(instance(3, SHORT_COURSE, "2024-03-04", "08:00", "Studio A", "Anna")).isEmpty());
+    }
+
+    @Test
+    public void overlapByOneMinuteClashes() {
+        ScheduleConflictDetector detector = new ScheduleConflictDetector(durations);
+        Instance booked = instance(1, SHORT_COURSE, "2024-03-04", "09:00", "Studio A", "Anna");
+        detector.add(booked);
+        List<ScheduleConflictDetector.Conflict> conflicts =
+                detector.findConflicts(instance(2, SHORT_COURSE, "2024-03-04", "09:59", "Studio B", "Anna"));
+        assertEquals(1, conflicts.size());
+        assertSame(booked, conflicts.get(0).other);
+        assertEquals(ScheduleConflictDetector.Conflict.Kind.INSTRUCTOR, conflicts.get(0).kind);
+    }
+
+    @Test
+    public void durationComesFromTheCourse() {
+        ScheduleConflictDetector detector = new ScheduleConflictDetector(durations);
+        detector.add(instance(1, LONG_COURSE, "2024-03-04", "09:00", "Studio A", "Anna"));
+        List<ScheduleConflictDetector.Conflict> conflicts =
+                detector.findConflicts(instance(2, SHORT_COURSE, "2024-03-04", "10:15", "studio a ", "Ben"));
+        assertEquals(1, conflicts.size());
+        assertEquals(ScheduleConflictDetector.Conflict.Kind.LOCATION, conflicts.get(0).kind);
+        assertTrue(detector.findConflicts(instance(3, SHORT_COURSE, "2024-03-04", "10:30", "Studio A", "Ben")).isEmpty());
+    }
+
+    @Test
+    public void classRunningPastMidnightClashesNextDay() {
+        ScheduleConflictDetector detector = new ScheduleConflictDetector(durations);
+        detector.add(instance(1, LONG_COURSE, "2024-02-29", "23:30", "Studio A", "Anna"));
+        assertEquals(1, detector.findConflicts(
+                instance(2, SHORT_COURSE, "2024-03-01", "00:30", "Studio B", "Anna")).size());
+        assertTrue(detector.findConflicts(
+                instance(3, SHORT_COURSE, "2024-03-01", "01:00", "Studio B", "Anna")).isEmpty());
+    }
+
+    @Test
+    public void candidateIsNotCheckedAgainstItself() {
+        ScheduleConflictDetector detector = new ScheduleConflictDetector(durations);
+        Instance booked = instance(1, SHORT_COURSE, "2024-03-04", "09:00", "Studio A", "Anna");
+        detector.add(booked);
+        assertTrue(detector.findConflicts(booked).isEmpty());
+
+        detector.remove(booked);
+        assertTrue(detector.findConflicts(instance(2, SHORT_COURSE, "2024-03-04", "09:00", "Studio A", "Anna")).isEmpty());
+    }
+
+    @Test
+    public void scanAllUsesHalfOpenIntervals() {
+        List<ScheduleConflictDetector.Conflict> conflicts = ScheduleConflictDetector.scanAll(Arrays.asList(
+                instance(1, SHORT_COURSE, "2024-03-04", "09:00", "Studio A", "Anna"),
+                instance(2, SHORT_COURSE, "2024-03-04", "10:00", "Studio A", "Anna"),
+                instance(3, SHORT_COURSE, "2024-03-04", "10:30", "Studio B", "Ben")), durations);
+        assertTrue(conflicts.isEmpty());
+
+        conflicts = ScheduleConflictDetector.scanAll(Arrays.asList(
+                instance(1, LONG_COURSE, "2024-03-04", "09:00", "Studio A", "Anna"),
+                instance(2, SHORT_COURSE, "2024-03-04", "10:00", "Studio B", "Anna")), durations);
+        assertEquals(1, conflicts.size());
+        assertEquals(2, conflicts.get(0).instance.getId());
+    }
+
+    private static Instance instance(long id, long courseId, String date, String time, String location,
+                                     String instructor) {
+        Instance instance = new Instance(courseId, date, time, location, 10, instructor, 12f);
+        instance.setId(id);
+        return instance;
+    }
+}
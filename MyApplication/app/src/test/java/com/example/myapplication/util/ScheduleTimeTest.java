@@ -0,0 +1,82 @@
+package com.example.myapplication.util;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScheduleTimeTest {
+    @Test
+    public void epochDayOfKnownDates() {
+        assertEquals(0, ScheduleTime.parseEpochDay("1970-01-01"));
+        assertEquals(-1, ScheduleTime.parseEpochDay("1969-12-31"));
+        assertEquals(10957, ScheduleTime.parseEpochDay("2000-01-01"));
+        assertEquals(19782, ScheduleTime.parseEpochDay("2024-02-29"));
+    }
+
+    @Test
+    public void consecutiveAcrossMonthAndYearBoundaries() {
+        assertEquals(ScheduleTime.parseEpochDay("2024-01-31") + 1, ScheduleTime.parseEpochDay("2024-02-01"));
+        assertEquals(ScheduleTime.parseEpochDay("2024-04-30") + 1, ScheduleTime.parseEpochDay("2024-05-01"));
+        assertEquals(ScheduleTime.parseEpochDay("2024-12-31") + 1, ScheduleTime.parseEpochDay("2025-01-01"));
+    }
+
+    @Test
+    public void leapYearRules() {
+        // Divisible by 4, by 100 but not 400, and by 400
+        assertEquals(ScheduleTime.parseEpochDay("2024-02-28") + 2, ScheduleTime.parseEpochDay("2024-03-01"));
+        assertEquals(ScheduleTime.parseEpochDay("2023-02-28") + 1, ScheduleTime.parseEpochDay("2023-03-01"));
+        assertEquals(ScheduleTime.parseEpochDay("1900-02-28") + 1, ScheduleTime.parseEpochDay("1900-03-01"));
+        assertEquals(ScheduleTime.parseEpochDay("2000-02-28") + 2, ScheduleTime.parseEpochDay("2000-03-01"));
+        assertEquals(ScheduleTime.INVALID_DAY, ScheduleTime.parseEpochDay("2023-02-29"));
+        assertEquals(ScheduleTime.INVALID_DAY, ScheduleTime.parseEpochDay("1900-02-29"));
+    }
+
+    @Test
+    public void formatInvertsParse() {
+        for (String date : new String[]{"1970-01-01", "1969-12-31", "2000-02-29", "2024-02-29",
+                "2024-03-01", "2024-12-31", "2100-03-01"}) {
+            assertEquals(date, ScheduleTime.formatEpochDay(ScheduleTime.parseEpochDay(date)));
+        }
+        int start = ScheduleTime.parseEpochDay("1999-12-01");
+        for (int day = start; day < start + 3 * 366; day++) {
+            assertEquals(day, ScheduleTime.parseEpochDay(ScheduleTime.formatEpochDay(day)));
+        }
+    }
+
+    @Test
+    public void rejectsMalformedDates() {
+        assertEquals(ScheduleTime.INVALID_DAY, ScheduleTime.parseEpochDay(null));
+        assertEquals(ScheduleTime.INVALID_DAY, ScheduleTime.parseEpochDay("2024-4-01"));
+        assertEquals(ScheduleTime.INVALID_DAY, ScheduleTime.parseEpochDay("2024-13-01"));
+        assertEquals(ScheduleTime.INVALID_DAY, ScheduleTime.parseEpochDay("2024-04-31"));
+        assertEquals(ScheduleTime.INVALID_DAY, ScheduleTime.parseEpochDay("2024/04/01"));
+        assertEquals(ScheduleTime.INVALID_DAY, ScheduleTime.parseEpochDay("2024- 1-05"));
+        assertEquals(ScheduleTime.INVALID_DAY, ScheduleTime.parseEpochDay(" 202-01-05"));
+        assertEquals(ScheduleTime.INVALID_DAY, ScheduleTime.parseEpochDay("+024-01-05"));
+    }
+
+    @Test
+    public void minuteOfDay() {
+        assertEquals(0, ScheduleTime.parseMinuteOfDay("00:00"));
+        assertEquals(9 * 60 + 5, ScheduleTime.parseMinuteOfDay("09:05"));
+        assertEquals(23 * 60 + 59, ScheduleTime.parseMinuteOfDay("23:59"));
+        // Exactly two digits each, no spaces
+        assertEquals(ScheduleTime.INVALID_MINUTE, ScheduleTime.parseMinuteOfDay("9:05"));
+        assertEquals(ScheduleTime.INVALID_MINUTE, ScheduleTime.parseMinuteOfDay("09:5"));
+        assertEquals(ScheduleTime.INVALID_MINUTE, ScheduleTime.parseMinuteOfDay(" 009: 5"));
+        assertEquals(ScheduleTime.INVALID_MINUTE, ScheduleTime.parseMinuteOfDay("09 :05"));
+        assertEquals(ScheduleTime.INVALID_MINUTE, ScheduleTime.parseMinuteOfDay("24:00"));
+        assertEquals(ScheduleTime.INVALID_MINUTE, ScheduleTime.parseMinuteOfDay("12:60"));
+        assertEquals("07:30", ScheduleTime.formatMinuteOfDay(7 * 60 + 30));
+    }
+
+    @Test
+    public void dayOfWeekMatchesCalendarConstants() {
+        assertEquals(Calendar.THURSDAY, ScheduleTime.dayOfWeek(0));
+        assertEquals(Calendar.WEDNESDAY, ScheduleTime.dayOfWeek(-1));
+        assertEquals(Calendar.THURSDAY, ScheduleTime.dayOfWeek(ScheduleTime.parseEpochDay("2024-02-29")));
+        assertEquals(Calendar.SUNDAY, ScheduleTime.dayOfWeek(ScheduleTime.parseEpochDay("2025-01-05")));
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.Course;
+import com.example.myapplication.model.Instance;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScheduleValidatorTest {
+    private ScheduleValidator.Errors errors;
+
+    @Before
+    public void setUp() {
+        errors = new ScheduleValidator.Errors();
+    }
+
+    @Test
+    public void validCoursesHaveNoErrors() {
+        ScheduleValidator validator = new ScheduleValidator();
+        assertEquals(0, validator.validateCourses(Arrays.asList(
+                course(1, "Morning Flow", "monday", "07:00"),
+                course(2, "Power Hour", "Tuesday", "18:30")), errors));
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void courseErrorsAreReportedPerField() {
+        Course course = course(1, "A", "Funday", "25:00");
+        course.setDescription(" ");
+        course.setDuration(0);
+        course.setPrice(-1f);
+        ScheduleValidator validator = new ScheduleValidator();
+        assertEquals(1, validator.validateCourses(Arrays.asList(course(2, "Fine", "Friday", "10:00"), course), errors));
+        assertEquals(6, errors.size());
+        assertError(0, 1, ScheduleValidator.Field.NAME, ScheduleValidator.Rule.TOO_SHORT);
+        assertError(1, 1, ScheduleValidator.Field.DESCRIPTION, ScheduleValidator.Rule.REQUIRED);
+        assertError(2, 1, ScheduleValidator.Field.DURATION, ScheduleValidator.Rule.OUT_OF_RANGE);
+        assertError(3, 1, ScheduleValidator.Field.PRICE, ScheduleValidator.Rule.OUT_OF_RANGE);
+        assertError(4, 1, ScheduleValidator.Field.DAY_OF_WEEK, ScheduleValidator.Rule.INVALID_FORMAT);
+        assertError(5, 1, ScheduleValidator.Field.TIME, ScheduleValidator.Rule.INVALID_FORMAT);
+        assertEquals("Row 2: name is too short", errors.message(0));
+        assertEquals("Row 12: day of week has an invalid format", errors.message(4, 10));
+    }
+
+    @Test
+    public void instancesMustFallOnTheirCourseDay() {
+        ScheduleValidator validator = new ScheduleValidator(Arrays.asList(
+                course(20, "Morning Flow", "Thursday", "07:00"),
+                course(10, "Power Hour", "Friday", "18:00")));
+        assertEquals(1, validator.validateInstances(Arrays.asList(
+                instance(20, "2024-02-29", "07:00"),
+                instance(10, "2024-03-01", "18:00"),
+                instance(10, "2024-02-29", "18:00")), errors));
+        assertEquals(1, errors.size());
+        assertError(0, 2, ScheduleValidator.Field.DATE, ScheduleValidator.Rule.WRONG_DAY);
+    }
+
+    @Test
+    public void instancesOfUnknownCoursesAreRejected() {
+        ScheduleValidator validator = new ScheduleValidator(
+                Collections.singletonList(course(10, "Power Hour", "Friday", "18:00")));
+        assertEquals(1, validator.validateInstances(
+                Collections.singletonList(instance(11, "2024-03-01", "18:00")), errors));
+        assertError(0, 0, ScheduleValidator.Field.COURSE, ScheduleValidator.Rule.UNKNOWN_COURSE);
+
+        // Without courses the course rules are skipped
+        assertEquals(0, new ScheduleValidator().validateInstances(
+                Collections.singletonList(instance(11, "2024-03-01", "18:00")), errors));
+    }
+
+    @Test
+    public void instanceFieldErrors() {
+        Instance missing = new Instance(10, null, "9h05", "Studio A", 0, "", -2f);
+        ScheduleValidator validator = new ScheduleValidator();
+        assertEquals(1, validator.validateInstances(Collections.singletonList(missing), errors));
+        assertEquals(5, errors.size());
+        assertError(0, 0, ScheduleValidator.Field.DATE, ScheduleValidator.Rule.REQUIRED);
+        assertError(1, 0, ScheduleValidator.Field.TIME, ScheduleValidator.Rule.INVALID_FORMAT);
+        assertError(2, 0, ScheduleValidator.Field.CAPACITY, ScheduleValidator.Rule.OUT_OF_RANGE);
+        assertError(3, 0, ScheduleValidator.Field.PRICE, ScheduleValidator.Rule.OUT_OF_RANGE);
+        assertError(4, 0, ScheduleValidator.Field.INSTRUCTOR, ScheduleValidator.Rule.REQUIRED);
+    }
+
+    @Test
+    public void errorsAreClearedBetweenBatches() {
+        ScheduleValidator validator = new ScheduleValidator();
+        validator.validateCourses(Collections.singletonList(course(1, "", "Monday", "07:00")), errors);
+        assertFalse(errors.isEmpty());
+        validator.validateCourses(Collections.singletonList(course(1, "Morning Flow", "Monday", "07:00")), errors);
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void strictTimeFormat() {
+        assertTrue(ScheduleValidator.isValidTime("00:00"));
+        assertTrue(ScheduleValidator.isValidTime("09:30"));
+        assertTrue(ScheduleValidator.isValidTime("23:59"));
+        assertFalse(ScheduleValidator.isValidTime("24:00"));
+        assertFalse(ScheduleValidator.isValidTime("12:60"));
+        assertFalse(ScheduleValidator.isValidTime("9:30"));
+        assertFalse(ScheduleValidator.isValidTime("12:5"));
+        assertFalse(ScheduleValidator.isValidTime("1230"));
+        assertFalse(ScheduleValidator.isValidTime(null));
+    }
+
+    @Test
+    public void coursesAndInstancesShareTheTimeAndCapacityRules() {
+        Course course = course(1, "Morning Flow", "Monday", "9:5");
+        course.setCapacity(0);
+        ScheduleValidator validator = new ScheduleValidator();
+        validator.validateCourses(Collections.singletonList(course), errors);
+        assertEquals(2, errors.size());
+        assertError(0, 0, ScheduleValidator.Field.CAPACITY, ScheduleValidator.Rule.OUT_OF_RANGE);
+        assertError(1, 0, ScheduleValidator.Field.TIME, ScheduleValidator.Rule.INVALID_FORMAT);
+
+        Instance instance = new Instance(1, "2024-03-04", "9:5", "Studio A", 0, "Anna", 12f);
+        validator.validateInstances(Collections.singletonList(instance), errors);
+        assertEquals(2, errors.size());
+        assertError(0, 0, ScheduleValidator.Field.TIME, ScheduleValidator.Rule.INVALID_FORMAT);
+        assertError(1, 0, ScheduleValidator.Field.CAPACITY, ScheduleValidator.Rule.OUT_OF_RANGE);
+    }
+
+    private void assertError(int i, int row, ScheduleValidator.Field field, ScheduleValidator.Rule rule) {
+        assertEquals(row, errors.row(i));
+        assertEquals(field, errors.field(i));
+        assertEquals(rule, errors.rule(i));
+    }
+
+    private static Course course(long id, String name, String dayOfWeek, String time) {
+        Course course = new Course(name, "A yoga class", 60, "Beginner");
+        course.setId(id);
+        course.setCapacity(10);
+        course.setPrice(12f);
+        course.setDayOfWeek(dayOfWeek);
+        course.setTime(time);
+        return course;
+    }
+
+    private static Instance instance(long courseId, String date, String time) {
+        return new Instance(courseId, date, time, "Studio A", 10, "Anna", 12f);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.myapplication.util;
+
+import com.example.myapplication.model.User;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UserSearchIndexTest {
+    private UserSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new UserSearchIndex();
+        index.replaceAll(Arrays.asList(
+                user("u1", "Alice Smith", "alice@example.com", User.ROLE_ADMIN),
+                user("u2", "Alicia Keys", "akeys@example.com", User.ROLE_CUSTOMER),
+                user("u3", "Bob Jones", "bob@example.com", User.ROLE_CUSTOMER),
+                user("u4", "Malik Ali", "malik@test.org", User.ROLE_CUSTOMER)));
+    }
+
+    @Test
+    public void matchesNameEmailOrRole() {
+        assertEquals(uids("u1", "u2", "u4"), uidsOf(index.search("ali")));
+        assertEquals(uids("u4"), uidsOf(index.search("test.org")));
+        assertEquals(uids("u1"), uidsOf(index.search("admin")));
+    }
+
+    @Test
+    public void matchNeverSpansTwoFields() {
+        // "smith" ends the name and "alice" starts the email of the same user
+        assertEquals(uids(), uidsOf(index.search("smithalice")));
+    }
+
+    @Test
+    public void extendingQueryNarrowsResult() {
+        assertEquals(uids("u1", "u2", "u4"), uidsOf(index.search("ali")));
+        assertEquals(uids("u1", "u2"), uidsOf(index.search("alic")));
+        assertEquals(uids("u1"), uidsOf(index.search("alice")));
+    }
+
+    @Test
+    public void shorteningQueryWidensResultAgain() {
+        assertEquals(uids("u1"), uidsOf(index.search("alice")));
+        // The previous result must not be reused when the new query does not contain it
+        assertEquals(uids("u1", "u2"), uidsOf(index.search("alic")));
+        assertEquals(uids("u1", "u2", "u4"), uidsOf(index.search("ali")));
+        assertEquals(uids("u1", "u2", "u3", "u4"), uidsOf(index.search("")));
+    }
+
+    @Test
+    public void shortQueriesBelowTrigramLengthStillMatch() {
+        assertEquals(uids("u1", "u2", "u4"), uidsOf(index.search("al")));
+        assertEquals(uids("u2"), uidsOf(index.search("y")));
+    }
+
+    @Test
+    public void updatesKeepNarrowingResultCurrent() {
+        assertEquals(uids("u3"), uidsOf(index.search("bo")));
+        index.upsert(user("u3", "Robert Jones", "rjones@example.com", User.ROLE_CUSTOMER));
+        index.upsert(user("u5", "Bobby Tables", "bobby@example.com", User.ROLE_CUSTOMER));
+        // "bob" extends "bo", so only the kept result is re-checked
+        assertEquals(uids("u5"), uidsOf(index.search("bob")));
+    }
+
+    @Test
+    public void removedUserIsNotFound() {
+        assertEquals(uids("u1", "u2", "u4"), uidsOf(index.search("ali")));
+        index.remove("u2");
+        assertEquals(uids("u1"), uidsOf(index.search("alic")));
+        assertEquals(uids("u1", "u4"), uidsOf(index.search("ali")));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void reusedSlotKeepsInsertionOrder() {
+        index.remove("u1");
+        index.upsert(user("u5", "Alina Newman", "alina@example.com", User.ROLE_CUSTOMER));
+        // u5 takes the slot freed by u1 but is listed last, as the newest user
+        assertEquals(uids("u2", "u4", "u5"), uidsOf(index.search("ali")));
+        assertEquals(uids("u2", "u3", "u4", "u5"), uidsOf(index.search("")));
+    }
+
+    @Test
+    public void updatedUserKeepsItsPosition() {
+        index.upsert(user("u1", "Alice Cooper", "alice@example.com", User.ROLE_ADMIN));
+        List<User> all = index.search("");
+        assertEquals("u1", all.get(0).getFirebaseUid());
+        assertEquals("Alice Cooper", all.get(0).getName());
+        assertTrue(index.search("smith").isEmpty());
+    }
+
+    @Test
+    public void replaceAllDropsPreviousUsers() {
+        index.search("ali");
+        index.replaceAll(Arrays.asList(user("u9", "Zed", "zed@example.com", User.ROLE_CUSTOMER)));
+        assertEquals(uids(), uidsOf(index.search("ali")));
+        assertEquals(uids("u9"), uidsOf(index.search("")));
+    }
+
+    private static User user(String uid, String name, String email, String role) {
+        User user = new User(email, null, name, role, User.STATUS_ACTIVE);
+        user.setFirebaseUid(uid);
+        return user;
+    }
+
+    private static List<String> uids(String... uids) {
+        return Arrays.asList(uids);
+    }
+
+    private static List<String> uidsOf(List<User> users) {
+        List<String> uids = new ArrayList<>();
+        for (User user : users) {
+            uids.add(user.getFirebaseUid());
+        }
+        return uids;
+    }
+}